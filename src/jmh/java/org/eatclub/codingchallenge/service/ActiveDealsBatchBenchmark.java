@@ -0,0 +1,71 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.response.ActiveDealsBatchResponse;
+import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
+import org.eatclub.codingchallenge.util.DefaultActiveDealsResponseMapper;
+import org.eatclub.codingchallenge.util.SyntheticRestaurantResponseGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An evening planned every 15 minutes from 5pm to 10pm (21 times): one
+ * {@link DefaultActiveDealsService#getActiveDealsAt(List, org.eatclub.codingchallenge.model.DealFilter)} batch against
+ * one {@link DefaultActiveDealsService#getActiveDealsAt(LocalTime)} per time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class ActiveDealsBatchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int deals;
+
+    private DefaultActiveDealsService activeDealsService;
+    private List<LocalTime> timesOfDay;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final FixedSnapshotRestaurantService restaurantService =
+            FixedSnapshotRestaurantService.of(SyntheticRestaurantResponseGenerator.generate(deals));
+        restaurantService.snapshot().getDealTimelineIndex();
+        activeDealsService = new DefaultActiveDealsService(restaurantService, new DefaultActiveDealsResponseMapper());
+        ReflectionTestUtils.setField(activeDealsService, "maxBatchTimes", 288);
+        timesOfDay = new ArrayList<>();
+        for (LocalTime time = LocalTime.of(17, 0); !time.isAfter(LocalTime.of(22, 0)); time = time.plusMinutes(15)) {
+            timesOfDay.add(time);
+        }
+    }
+
+    @Benchmark
+    public ActiveDealsBatchResponse batch() {
+        return activeDealsService.getActiveDealsAt(timesOfDay, null).block();
+    }
+
+    @Benchmark
+    public void requestPerTime(final Blackhole blackhole) {
+        for (LocalTime time : timesOfDay) {
+            final ActiveDealsResponse response = activeDealsService.getActiveDealsAt(time).block();
+            blackhole.consume(response);
+        }
+    }
+}
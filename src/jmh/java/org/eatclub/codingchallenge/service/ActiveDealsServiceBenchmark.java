@@ -0,0 +1,57 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
+import org.eatclub.codingchallenge.util.DefaultActiveDealsResponseMapper;
+import org.eatclub.codingchallenge.util.SyntheticRestaurantResponseGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DefaultActiveDealsService#getActiveDealsAt(LocalTime)} against a synthetic snapshot whose index is already
+ * built, i.e. the per request cost: the timeline lookup plus mapping every active deal to a response item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class ActiveDealsServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int deals;
+
+    // Lunch, dinner and a time most restaurants are closed
+    @Param({"12:30", "19:00", "03:00"})
+    private String timeOfDay;
+
+    private DefaultActiveDealsService activeDealsService;
+    private LocalTime time;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final FixedSnapshotRestaurantService restaurantService =
+            FixedSnapshotRestaurantService.of(SyntheticRestaurantResponseGenerator.generate(deals));
+        restaurantService.snapshot().getDealTimelineIndex();
+        activeDealsService = new DefaultActiveDealsService(restaurantService, new DefaultActiveDealsResponseMapper());
+        time = LocalTime.parse(timeOfDay);
+    }
+
+    @Benchmark
+    public ActiveDealsResponse getActiveDealsAt() {
+        return activeDealsService.getActiveDealsAt(time).block();
+    }
+}
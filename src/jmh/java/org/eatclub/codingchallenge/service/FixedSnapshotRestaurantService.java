@@ -0,0 +1,30 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import reactor.core.publisher.Mono;
+
+/**
+ * Restaurant service that always answers with the same snapshot, so benchmarks never touch the network.
+ */
+public record FixedSnapshotRestaurantService(RestaurantSnapshot snapshot) implements RestaurantService {
+
+    public static FixedSnapshotRestaurantService of(final RestaurantResponse restaurantResponse) {
+        return new FixedSnapshotRestaurantService(RestaurantSnapshot.of(restaurantResponse));
+    }
+
+    @Override
+    public Mono<RestaurantResponse> getRestaurants() {
+        return Mono.just(snapshot.getRestaurantResponse());
+    }
+
+    @Override
+    public Mono<RestaurantSnapshot> getSnapshot() {
+        return Mono.just(snapshot);
+    }
+
+    @Override
+    public Mono<RestaurantSnapshot> findSnapshot(final long version) {
+        return version == snapshot.getVersion() ? Mono.just(snapshot) : Mono.empty();
+    }
+}
@@ -0,0 +1,74 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.index.DealColumns;
+import org.eatclub.codingchallenge.index.DealMinuteHistogram;
+import org.eatclub.codingchallenge.service.SortingPeakDealTimeRange.DealStatusChangeEvent;
+import org.eatclub.codingchallenge.util.SyntheticRestaurantResponseGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The peak deal window of a snapshot, computed by the original sort and sweep over every deal start and end event
+ * ({@link SortingPeakDealTimeRange}) and by {@link DealMinuteHistogram}, with and without building the histogram.
+ * The event sweep sorts in place, so every invocation gets a fresh copy of the events in feed order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class PeakDealTimeRangeBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int deals;
+
+    private DealColumns dealColumns;
+    private DealMinuteHistogram dealMinuteHistogram;
+    private List<DealStatusChangeEvent> feedOrderEvents;
+    private List<DealStatusChangeEvent> events;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final FixedSnapshotRestaurantService restaurantService =
+            FixedSnapshotRestaurantService.of(SyntheticRestaurantResponseGenerator.generate(deals));
+        dealColumns = restaurantService.snapshot().getDealColumns();
+        dealMinuteHistogram = DealMinuteHistogram.build(dealColumns);
+        feedOrderEvents = SortingPeakDealTimeRange.events(dealColumns);
+    }
+
+    @Setup(Level.Invocation)
+    public void copyEvents() {
+        events = new ArrayList<>(feedOrderEvents);
+    }
+
+    @Benchmark
+    public LocalTime[] sortedEventSweep() {
+        return SortingPeakDealTimeRange.findOverlappingDealEventAtMax(events);
+    }
+
+    @Benchmark
+    public DealMinuteHistogram.PeakRange minuteHistogramBuildAndSweep() {
+        return DealMinuteHistogram.build(dealColumns).firstPeakRange();
+    }
+
+    @Benchmark
+    public DealMinuteHistogram.PeakRange minuteHistogramSweep() {
+        return dealMinuteHistogram.firstPeakRange();
+    }
+}
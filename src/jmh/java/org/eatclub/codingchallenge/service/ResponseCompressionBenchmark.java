@@ -0,0 +1,99 @@
+package org.eatclub.codingchallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
+import org.eatclub.codingchallenge.util.DefaultActiveDealsResponseMapper;
+import org.eatclub.codingchallenge.util.SyntheticRestaurantResponseGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CPU per gzip response for an {@code /active-deals} body holding every deal of a synthetic snapshot: compressed on
+ * every request, as response compression in the server would (level 6, the Netty default), against the variant
+ * {@link DefaultEncodedResponseCache} compressed once and serves from memory. {@code identityFromCache} is the cache
+ * lookup without compression for reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCompressionBenchmark {
+
+    private static final String QUERY = "/active-deals?timeOfDay=18:00";
+
+    @Param({"100", "1000", "10000"})
+    private int deals;
+
+    private byte[] identity;
+    private DefaultEncodedResponseCache encodedResponseCache;
+    private HttpHeaders acceptGzip;
+    private HttpHeaders acceptAny;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final FixedSnapshotRestaurantService restaurantService =
+            FixedSnapshotRestaurantService.of(SyntheticRestaurantResponseGenerator.generate(deals));
+        // Every deal of the snapshot, whatever the time
+        final DealTimelineIndex dealTimelineIndex = restaurantService.snapshot().getDealTimelineIndex();
+        final int[] allDeals = IntStream.range(0, dealTimelineIndex.getDealCount()).toArray();
+        identity = objectMapper.writeValueAsBytes(
+            new DefaultActiveDealsResponseMapper().mapToActiveDealsResponse(dealTimelineIndex, allDeals));
+
+        encodedResponseCache = new DefaultEncodedResponseCache(restaurantService, objectMapper);
+        ReflectionTestUtils.setField(encodedResponseCache, "maxEntries", 16);
+        ReflectionTestUtils.setField(encodedResponseCache, "maxBytes", 1L << 30);
+        ReflectionTestUtils.setField(encodedResponseCache, "gzipEnabled", true);
+        ReflectionTestUtils.setField(encodedResponseCache, "gzipMinBytes", 1024);
+
+        acceptGzip = new HttpHeaders();
+        acceptGzip.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br");
+        acceptAny = new HttpHeaders();
+
+        // Fill the cache with both variants, the benchmarks only measure hits
+        encodedResponseCache.respond(QUERY, acceptGzip, () -> Mono.just(identity)).block();
+    }
+
+    @Benchmark
+    public byte[] gzipPerRequest() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length / 8);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(identity);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Benchmark
+    public Object gzipFromCache() {
+        return encodedResponseCache.respond(QUERY, acceptGzip, () -> Mono.error(new IllegalStateException()))
+            .block().getBody();
+    }
+
+    @Benchmark
+    public Object identityFromCache() {
+        return encodedResponseCache.respond(QUERY, acceptAny, () -> Mono.error(new IllegalStateException()))
+            .block().getBody();
+    }
+}
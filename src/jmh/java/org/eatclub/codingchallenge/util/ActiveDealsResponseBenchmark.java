@@ -0,0 +1,67 @@
+package org.eatclub.codingchallenge.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the {@code /active-deals} response for the deals active at 7pm in a synthetic snapshot: mapping every deal
+ * with {@link DefaultActiveDealsResponseMapper#mapToDealsItem} and serializing the whole {@link ActiveDealsResponse}
+ * with the Jackson configuration Spring Boot uses. Both scale with the number of active deals, not the snapshot size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class ActiveDealsResponseBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int deals;
+
+    private final DefaultActiveDealsResponseMapper activeDealsResponseMapper = new DefaultActiveDealsResponseMapper();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private DealTimelineIndex dealTimelineIndex;
+    private int[] activeDeals;
+    private ActiveDealsResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final RestaurantSnapshot snapshot = RestaurantSnapshot.of(SyntheticRestaurantResponseGenerator.generate(deals));
+        dealTimelineIndex = snapshot.getDealTimelineIndex();
+        activeDeals = dealTimelineIndex.activeDealsAt(LocalTime.of(19, 0));
+        response = activeDealsResponseMapper.mapToActiveDealsResponse(dealTimelineIndex, activeDeals);
+    }
+
+    @Benchmark
+    public void mapToDealsItem(final Blackhole blackhole) {
+        for (int deal : activeDeals) {
+            blackhole.consume(activeDealsResponseMapper.mapToDealsItem(
+                dealTimelineIndex.getRestaurant(deal), dealTimelineIndex.getDeal(deal)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,51 @@
+package org.eatclub.codingchallenge.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.eatclub.codingchallenge.util.Constants.TIME_FORMATTER;
+
+/**
+ * Upstream time string to minute of day, through {@link Constants#TIME_FORMATTER} and through
+ * {@link MinuteOfDayParser}. Run with {@code -prof gc} to compare allocation per parse.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinuteOfDayParserBenchmark {
+
+    // The shapes the upstream feed sends
+    private static final String[] TIMES = {"3:00pm", "9:00pm", "12:00pm", "11:30am", "6:00pm", "12:00am", "10:45AM", "1:15am"};
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void localTimeParse(final Blackhole blackhole) {
+        for (String time : TIMES) {
+            final LocalTime localTime = LocalTime.parse(time, TIME_FORMATTER);
+            blackhole.consume(localTime.getHour() * 60 + localTime.getMinute());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void minuteOfDayParser(final Blackhole blackhole) {
+        for (String time : TIMES) {
+            blackhole.consume(MinuteOfDayParser.parse(time));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.eatclub.codingchallenge.loadtest;
+
+import io.netty.channel.ChannelOption;
+import org.HdrHistogram.Histogram;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+
+/**
+ * Open model load: requests are started at a fixed rate whether or not earlier ones have completed, and each latency
+ * is measured from the time the request was due to start, so a stalled server shows up in the percentiles instead of
+ * silently lowering the request rate (coordinated omission).
+ */
+final class FixedRateLoad implements AutoCloseable {
+
+    private static final long HIGHEST_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final Scheduler ticks = Schedulers.newSingle("load-ticks");
+
+    FixedRateLoad(final String baseUrl, final int connections) {
+        this.connectionProvider = ConnectionProvider.builder("load")
+            .maxConnections(connections)
+            .pendingAcquireMaxCount(-1)
+            .pendingAcquireTimeout(Duration.ofMinutes(1))
+            .build();
+        this.webClient = WebClient.builder()
+            .baseUrl(baseUrl)
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)))
+            .build();
+    }
+
+    /**
+     * Sends {@code rate} requests per second for the given time, request {@code i} going to {@code uri.apply(i)}.
+     */
+    Result run(final LongFunction<String> uri, final int rate, final Duration duration) {
+        final long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        final long requests = duration.toNanos() / periodNanos;
+        final long startNanos = System.nanoTime();
+        final Result result = new Result(requests, startNanos, periodNanos);
+
+        Flux.interval(Duration.ZERO, Duration.ofNanos(periodNanos), ticks)
+            .take(requests)
+            // Ticks queue up rather than fail when every connection is busy, their latency still counts from the tick
+            .onBackpressureBuffer()
+            .flatMap(i -> send(uri.apply(i), startNanos + i * periodNanos, result), Integer.MAX_VALUE)
+            .blockLast();
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    private Mono<Void> send(final String uri, final long dueNanos, final Result result) {
+        return webClient.get().uri(uri)
+            .exchangeToMono(response -> response.bodyToFlux(DataBuffer.class)
+                .doOnNext(buffer -> {
+                    result.bytes.addAndGet(buffer.readableByteCount());
+                    DataBufferUtils.release(buffer);
+                })
+                .then(Mono.just(response.statusCode().is2xxSuccessful() || response.statusCode().value() == 304)))
+            .onErrorReturn(false)
+            .doOnNext(ok -> result.record(dueNanos, System.nanoTime(), ok))
+            .then();
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.dispose();
+        ticks.dispose();
+    }
+
+    static final class Result {
+        private final long startNanos;
+        private final long periodNanos;
+        private final long[] due;
+        private final long[] latency;
+        private int size;
+        private long errors;
+        private final AtomicLong bytes = new AtomicLong();
+        private long elapsedNanos;
+
+        private Result(long requests, long startNanos, long periodNanos) {
+            this.startNanos = startNanos;
+            this.periodNanos = periodNanos;
+            this.due = new long[(int) requests];
+            this.latency = new long[(int) requests];
+        }
+
+        private synchronized void record(final long dueNanos, final long endNanos, final boolean ok) {
+            if (!ok) {
+                errors++;
+                return;
+            }
+            due[size] = dueNanos;
+            latency[size] = Math.min(endNanos - dueNanos, HIGHEST_LATENCY_NANOS);
+            size++;
+        }
+
+        synchronized Histogram histogram() {
+            return histogram(List.of(), Long.MAX_VALUE);
+        }
+
+        /**
+         * Latencies of the requests due within {@code windowNanos} of any of the given times, all of them when the
+         * window is {@code Long.MAX_VALUE}.
+         */
+        synchronized Histogram histogram(final List<Long> aroundNanos, final long windowNanos) {
+            final Histogram histogram = new Histogram(HIGHEST_LATENCY_NANOS, 3);
+            for (int i = 0; i < size; i++) {
+                if (windowNanos == Long.MAX_VALUE || isNear(due[i], aroundNanos, windowNanos)) {
+                    histogram.recordValue(latency[i]);
+                }
+            }
+            return histogram;
+        }
+
+        /**
+         * Latencies of the requests whose number, as passed to the uri function, passes the predicate.
+         */
+        synchronized Histogram histogram(final LongPredicate request) {
+            final Histogram histogram = new Histogram(HIGHEST_LATENCY_NANOS, 3);
+            for (int i = 0; i < size; i++) {
+                if (request.test((due[i] - startNanos) / periodNanos)) {
+                    histogram.recordValue(latency[i]);
+                }
+            }
+            return histogram;
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+
+        synchronized long completed() {
+            return size + errors;
+        }
+
+        long bytes() {
+            return bytes.get();
+        }
+
+        long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        private static boolean isNear(final long nanos, final List<Long> aroundNanos, final long windowNanos) {
+            for (long around : new ArrayList<>(aroundNanos)) {
+                if (Math.abs(nanos - around) <= windowNanos) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
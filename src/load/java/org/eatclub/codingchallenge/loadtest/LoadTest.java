@@ -0,0 +1,146 @@
+package org.eatclub.codingchallenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.eatclub.codingchallenge.CodingChallengeApplication;
+import org.eatclub.codingchallenge.service.RestaurantSnapshotRefreshedEvent;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongFunction;
+
+/**
+ * End to end load test: starts the app against a local {@link UpstreamStandIn} serving a generated feed and drives
+ * each endpoint at a fixed arrival rate, reporting HdrHistogram percentiles and throughput.
+ * <p>
+ * The app runs with a short upstream cache TTL and the stand-in switches feeds after every refresh, so a run of a
+ * minute crosses several snapshot rebuilds. Requests due close to a refresh are reported separately as well. Full
+ * percentile distributions are written to {@code target/loadtest/*.hgrm}.
+ * <p>
+ * Run with {@code ./mvnw -Ploadtest -DskipTests test-compile exec:exec -Dloadtest.args="--deals=100000 --rate=500"},
+ * see {@link LoadTestSettings} for every setting.
+ */
+public final class LoadTest {
+
+    private static final Path REPORT_DIRECTORY = Path.of("target", "loadtest");
+    // /active-deals latencies are also reported per period of this many hours of the time of day asked for
+    private static final int HOURS_PER_PERIOD = 6;
+
+    private LoadTest() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final LoadTestSettings settings = LoadTestSettings.parse(args);
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final List<Long> refreshNanos = new CopyOnWriteArrayList<>();
+
+        try (UpstreamStandIn upstream = UpstreamStandIn.start(settings.deals(), objectMapper)) {
+            System.out.printf("Upstream feed: %d deals, %d bytes%n", settings.deals(), upstream.feedBytes());
+            // Devtools would restart the app in a new class loader, where the stand-in and listener aren't visible
+            System.setProperty("spring.devtools.restart.enabled", "false");
+            final ConfigurableApplicationContext app = new SpringApplicationBuilder(CodingChallengeApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                // As command line arguments, so they take precedence over application.properties
+                .run("--server.port=0",
+                    "--upstream.restaurants.url=" + upstream.url(),
+                    "--upstream.restaurants.cacheTTL=" + settings.cacheTtl(),
+                    "--upstream.restaurants.refreshAhead=3",
+                    "--upstream.restaurants.refreshJitter=2");
+            app.addApplicationListener((ApplicationListener<PayloadApplicationEvent<RestaurantSnapshotRefreshedEvent>>)
+                event -> {
+                    refreshNanos.add(System.nanoTime());
+                    upstream.nextFeed();
+                });
+
+            final String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port") + "/api";
+            try (FixedRateLoad load = new FixedRateLoad(baseUrl, settings.connections())) {
+                Files.createDirectories(REPORT_DIRECTORY);
+                for (String endpoint : settings.endpoints()) {
+                    final LongFunction<String> uri = uri(endpoint);
+                    load.run(uri, settings.rate(), settings.warmup());
+                    refreshNanos.clear();
+                    final FixedRateLoad.Result result = load.run(uri, settings.rate(), settings.duration());
+                    report(endpoint, settings, result, List.copyOf(refreshNanos));
+                }
+            } finally {
+                app.close();
+            }
+        }
+    }
+
+    // Active deals are asked for every minute of the day in turn, as many different clients would
+    private static LongFunction<String> uri(final String endpoint) {
+        if (!endpoint.startsWith("/active-deals")) {
+            return i -> endpoint;
+        }
+        return i -> {
+            final int minute = minuteOfDay(i);
+            final int hour = minute / 60;
+            return String.format("%s?timeOfDay=%d:%02d%s", endpoint, hour % 12 == 0 ? 12 : hour % 12, minute % 60,
+                hour < 12 ? "am" : "pm");
+        };
+    }
+
+    private static int minuteOfDay(final long request) {
+        return (int) (request % (24 * 60));
+    }
+
+    private static void report(final String endpoint, final LoadTestSettings settings, final FixedRateLoad.Result result,
+                               final List<Long> refreshNanos) throws IOException {
+        final double seconds = result.elapsedNanos() / 1e9;
+        System.out.printf("%n%s at %d req/s for %ds, %d refreshes%n", endpoint, settings.rate(),
+            settings.duration().toSeconds(), refreshNanos.size());
+        System.out.printf("  %d requests, %d errors, %.1f req/s, %.2f MB/s%n", result.completed(), result.errors(),
+            result.completed() / seconds, result.bytes() / seconds / 1e6);
+
+        final Histogram all = result.histogram();
+        final Histogram aroundRefresh = result.histogram(refreshNanos, settings.refreshWindow().toNanos());
+        printPercentiles("all", all);
+        printPercentiles("near refresh", aroundRefresh);
+        if (endpoint.startsWith("/active-deals")) {
+            // Response sizes follow the deals active at the time asked for, so does the cost of a response
+            for (int hour = 0; hour < 24; hour += HOURS_PER_PERIOD) {
+                final int from = hour * 60;
+                final int to = from + HOURS_PER_PERIOD * 60;
+                printPercentiles(String.format("%02d:00-%02d:00", hour, hour + HOURS_PER_PERIOD),
+                    result.histogram(i -> minuteOfDay(i) >= from && minuteOfDay(i) < to));
+            }
+        }
+
+        final String name = endpoint.replaceAll("[^A-Za-z0-9]+", "-").replaceAll("^-|-$", "");
+        writeDistribution(REPORT_DIRECTORY.resolve(name + ".hgrm"), all);
+        writeDistribution(REPORT_DIRECTORY.resolve(name + "-near-refresh.hgrm"), aroundRefresh);
+    }
+
+    private static void printPercentiles(final String label, final Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            System.out.printf("  %-13s no requests%n", label);
+            return;
+        }
+        System.out.printf("  %-13s n=%-7d p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  max %8.2f ms%n", label,
+            histogram.getTotalCount(), millis(histogram.getValueAtPercentile(50)),
+            millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+            millis(histogram.getMaxValue()));
+    }
+
+    private static void writeDistribution(final Path file, final Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            // In milliseconds, as the HdrHistogram plotter expects
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1e6;
+    }
+}
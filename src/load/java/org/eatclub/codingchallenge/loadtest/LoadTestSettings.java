@@ -0,0 +1,51 @@
+package org.eatclub.codingchallenge.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test parameters, given as {@code --name=value} program arguments.
+ *
+ * @param deals         deals in the generated upstream feed
+ * @param rate          requests per second sent to each endpoint, whatever the response times
+ * @param warmup        time each endpoint is driven before anything is recorded
+ * @param duration      time each endpoint is driven while recording
+ * @param cacheTtl      upstream cache TTL of the app in seconds, refreshes start 3 to 5 seconds before it
+ * @param connections   most connections the load generator opens to the app
+ * @param refreshWindow requests starting this close to a snapshot refresh are also reported on their own
+ * @param endpoints     paths driven one after the other, relative to {@code /api}
+ */
+record LoadTestSettings(int deals, int rate, Duration warmup, Duration duration, int cacheTtl, int connections,
+                        Duration refreshWindow, List<String> endpoints) {
+
+    static LoadTestSettings parse(final String[] args) {
+        final Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        final LoadTestSettings settings = new LoadTestSettings(
+            Integer.parseInt(values.getOrDefault("deals", "10000")),
+            Integer.parseInt(values.getOrDefault("rate", "200")),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+            Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "60"))),
+            Integer.parseInt(values.getOrDefault("cacheTtl", "15")),
+            Integer.parseInt(values.getOrDefault("connections", "256")),
+            Duration.ofMillis(Long.parseLong(values.getOrDefault("refreshWindowMillis", "1000"))),
+            Arrays.asList(values.getOrDefault("endpoints", "/active-deals,/peak-time-window").split(",")));
+        values.keySet().removeAll(List.of("deals", "rate", "warmup", "duration", "cacheTtl", "connections",
+            "refreshWindowMillis", "endpoints"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown settings " + values.keySet());
+        }
+        if (settings.cacheTtl() < 6) {
+            throw new IllegalArgumentException("cacheTtl must be at least 6 seconds");
+        }
+        return settings;
+    }
+}
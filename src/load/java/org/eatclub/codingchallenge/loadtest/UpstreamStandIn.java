@@ -0,0 +1,71 @@
+package org.eatclub.codingchallenge.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.eatclub.codingchallenge.util.SyntheticRestaurantResponseGenerator;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Local WireMock server standing in for the upstream restaurants feed.
+ * <p>
+ * Two generated feeds of the same size but different seeds are served in turn, {@link #nextFeed()} switches to the
+ * other one so the following refresh of the app decodes and indexes a changed feed rather than revalidating it.
+ */
+final class UpstreamStandIn implements AutoCloseable {
+
+    private static final String FEED_PATH = "/misc/challengedata.json";
+
+    private final WireMockServer server;
+    private final byte[][] feeds;
+    private int current;
+
+    private UpstreamStandIn(WireMockServer server, byte[][] feeds) {
+        this.server = server;
+        this.feeds = feeds;
+    }
+
+    static UpstreamStandIn start(final int deals, final ObjectMapper objectMapper) throws Exception {
+        final byte[][] feeds = {
+            objectMapper.writeValueAsBytes(SyntheticRestaurantResponseGenerator.generate(deals)),
+            objectMapper.writeValueAsBytes(
+                SyntheticRestaurantResponseGenerator.generate(deals, SyntheticRestaurantResponseGenerator.DEFAULT_SEED + 1))
+        };
+        final WireMockServer server = new WireMockServer(wireMockConfig()
+            .dynamicPort()
+            .http2PlainDisabled(true)
+            .disableRequestJournal());
+        server.start();
+        final UpstreamStandIn upstream = new UpstreamStandIn(server, feeds);
+        upstream.serve(0);
+        return upstream;
+    }
+
+    String url() {
+        return server.baseUrl() + FEED_PATH;
+    }
+
+    int feedBytes() {
+        return feeds[current].length;
+    }
+
+    synchronized void nextFeed() {
+        serve(1 - current);
+    }
+
+    private synchronized void serve(final int feed) {
+        current = feed;
+        server.stubFor(get(urlEqualTo(FEED_PATH)).willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/json")
+            .withBody(feeds[feed])));
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+}
@@ -0,0 +1,17 @@
+package org.eatclub.codingchallenge.config;
+
+import org.eatclub.codingchallenge.util.TimeOfDayFormatter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+import java.time.LocalTime;
+
+@Configuration
+public class WebFluxFormatConfig implements WebFluxConfigurer {
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addFormatterForFieldType(LocalTime.class, new TimeOfDayFormatter());
+    }
+}
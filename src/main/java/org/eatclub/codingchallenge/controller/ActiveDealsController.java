@@ -2,26 +2,171 @@ package org.eatclub.codingchallenge.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
+import org.eatclub.codingchallenge.model.DealFilter;
+import org.eatclub.codingchallenge.model.response.DealsItem;
 import org.eatclub.codingchallenge.service.ActiveDealsService;
-import org.springframework.format.annotation.DateTimeFormat;
+import org.eatclub.codingchallenge.service.EncodedResponseCache;
+import org.eatclub.codingchallenge.service.PrecomputedActiveDealsService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
 public class ActiveDealsController {
 
     private final ActiveDealsService activeDealsService;
+    private final PrecomputedActiveDealsService precomputedActiveDealsService;
+    private final EncodedResponseCache encodedResponseCache;
 
-    @GetMapping("/active-deals")
-    public Mono<ActiveDealsResponse> getActiveDeals(@RequestParam("timeOfDay")
-                                                        @Valid
-                                                        @DateTimeFormat(pattern = "h:mm[a]") LocalTime timeOfDay) {
-        return this.activeDealsService.getActiveDealsAt(timeOfDay);
+    @GetMapping(value = "/active-deals", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getActiveDeals(@RequestParam("timeOfDay")
+                                                           @Valid
+                                                           LocalTime timeOfDay,
+                                                       @RequestParam(value = "suburb", required = false) String suburb,
+                                                       @RequestParam(value = "cuisine", required = false) String cuisine,
+                                                       @RequestParam(value = "dineIn", required = false) Boolean dineIn,
+                                                       @RequestParam(value = "lightning", required = false) Boolean lightning,
+                                                       @RequestParam(value = "minDiscount", required = false) Integer minDiscount,
+                                                       @RequestParam(value = "limit", required = false) Integer limit,
+                                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                                       @RequestHeader HttpHeaders requestHeaders) {
+        final DealFilter filter = dealFilter(suburb, cuisine, dineIn, lightning, minDiscount);
+        final String query = activeDealsQuery(timeOfDay, filter, limit, cursor);
+
+        final Supplier<Mono<?>> response = () -> {
+            if (!filter.isEmpty() || limit != null || cursor != null) {
+                return this.activeDealsService.getActiveDealsPageAt(timeOfDay, filter, cursor, limit);
+            }
+            // The body encoded at snapshot refresh when there is one, otherwise built for this request
+            return this.precomputedActiveDealsService.findEncodedActiveDealsAt(timeOfDay)
+                .cast(Object.class)
+                .switchIfEmpty(Mono.defer(() -> this.activeDealsService.getActiveDealsAt(timeOfDay)));
+        };
+        // Pages carry the snapshot version in their cursors, so only whole responses can outlive a refresh
+        return limit == null && cursor == null
+            ? this.encodedResponseCache.respond(query, minuteOfDay(timeOfDay), requestHeaders, response)
+            : this.encodedResponseCache.respond(query, requestHeaders, response);
+    }
+
+    // Streaming clients get one deal per NDJSON line or SSE event, written as soon as it is mapped
+    @GetMapping(value = "/active-deals", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<DealsItem> streamActiveDeals(@RequestParam("timeOfDay")
+                                             @Valid
+                                             LocalTime timeOfDay,
+                                             @RequestParam(value = "suburb", required = false) String suburb,
+                                             @RequestParam(value = "cuisine", required = false) String cuisine,
+                                             @RequestParam(value = "dineIn", required = false) Boolean dineIn,
+                                             @RequestParam(value = "lightning", required = false) Boolean lightning,
+                                             @RequestParam(value = "minDiscount", required = false) Integer minDiscount) {
+        return this.activeDealsService.streamActiveDealsAt(timeOfDay,
+            dealFilter(suburb, cuisine, dineIn, lightning, minDiscount));
+    }
+
+    // Deals active at any instant of the window, e.g. from=6:00pm&to=8:00pm
+    @GetMapping(value = "/active-deals/window", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getActiveDealsInWindow(@RequestParam("from") LocalTime from,
+                                                               @RequestParam("to") LocalTime to,
+                                                               @RequestParam(value = "suburb", required = false) String suburb,
+                                                               @RequestParam(value = "cuisine", required = false) String cuisine,
+                                                               @RequestParam(value = "dineIn", required = false) Boolean dineIn,
+                                                               @RequestParam(value = "lightning", required = false) Boolean lightning,
+                                                               @RequestParam(value = "minDiscount", required = false) Integer minDiscount,
+                                                               @RequestHeader HttpHeaders requestHeaders) {
+        final DealFilter filter = dealFilter(suburb, cuisine, dineIn, lightning, minDiscount);
+        final String query = "/active-deals/window?from=" + from + "&to=" + to + filterQuery(filter);
+
+        return this.encodedResponseCache.respond(query, requestHeaders,
+            () -> this.activeDealsService.getActiveDealsBetween(from, to, filter));
+    }
+
+    // Either a list of times, or every stepMinutes from `from` up to and including `to`
+    @GetMapping(value = "/active-deals/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getActiveDealsBatch(@RequestParam(value = "timesOfDay", required = false)
+                                                            List<LocalTime> timesOfDay,
+                                                            @RequestParam(value = "from", required = false)
+                                                            LocalTime from,
+                                                            @RequestParam(value = "to", required = false)
+                                                            LocalTime to,
+                                                            @RequestParam(value = "stepMinutes", defaultValue = "15")
+                                                            int stepMinutes,
+                                                            @RequestParam(value = "suburb", required = false) String suburb,
+                                                            @RequestParam(value = "cuisine", required = false) String cuisine,
+                                                            @RequestParam(value = "dineIn", required = false) Boolean dineIn,
+                                                            @RequestParam(value = "lightning", required = false) Boolean lightning,
+                                                            @RequestParam(value = "minDiscount", required = false) Integer minDiscount,
+                                                            @RequestHeader HttpHeaders requestHeaders) {
+        final List<LocalTime> times;
+        if (timesOfDay != null && (from != null || to != null)) {
+            return Mono.error(new ServerWebInputException("Either timesOfDay or from and to are allowed, not both"));
+        } else if (timesOfDay != null) {
+            times = timesOfDay;
+        } else if (from == null || to == null) {
+            return Mono.error(new ServerWebInputException("Either timesOfDay or both from and to are required"));
+        } else if (stepMinutes < 1 || to.isBefore(from)) {
+            return Mono.error(new ServerWebInputException("stepMinutes must be at least 1 and to can't be before from"));
+        } else {
+            times = new ArrayList<>();
+            for (int minute = minuteOfDay(from); minute <= minuteOfDay(to); minute += stepMinutes) {
+                times.add(LocalTime.of(minute / 60, minute % 60));
+            }
+        }
+        final DealFilter filter = dealFilter(suburb, cuisine, dineIn, lightning, minDiscount);
+        final String query = "/active-deals/batch?timesOfDay="
+            + times.stream().map(LocalTime::toString).collect(Collectors.joining(","))
+            + filterQuery(filter);
+
+        return this.encodedResponseCache.respond(query, requestHeaders,
+            () -> this.activeDealsService.getActiveDealsAt(times, filter));
+    }
+
+    // Same for every request that gets the same answer, e.g. 4:00pm and 04:00pm
+    private static String activeDealsQuery(final LocalTime timeOfDay, final DealFilter filter, final Integer limit,
+                                           final String cursor) {
+        return "/active-deals?timeOfDay=" + timeOfDay
+            + filterQuery(filter)
+            + "&limit=" + limit
+            + "&cursor=" + cursor;
+    }
+
+    private static String filterQuery(final DealFilter filter) {
+        return "&suburb=" + normalize(filter.getSuburb())
+            + "&cuisine=" + normalize(filter.getCuisine())
+            + "&dineIn=" + filter.getDineIn()
+            + "&lightning=" + filter.getLightning()
+            + "&minDiscount=" + filter.getMinDiscount();
+    }
+
+    private static int minuteOfDay(final LocalTime timeOfDay) {
+        return timeOfDay.getHour() * 60 + timeOfDay.getMinute();
+    }
+
+    private static String normalize(final String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static DealFilter dealFilter(final String suburb, final String cuisine, final Boolean dineIn,
+                                         final Boolean lightning, final Integer minDiscount) {
+        return DealFilter.builder()
+            .suburb(suburb)
+            .cuisine(cuisine)
+            .dineIn(dineIn)
+            .lightning(lightning)
+            .minDiscount(minDiscount)
+            .build();
     }
 }
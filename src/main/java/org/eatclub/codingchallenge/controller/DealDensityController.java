@@ -0,0 +1,32 @@
+package org.eatclub.codingchallenge.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.eatclub.codingchallenge.service.DealDensityService;
+import org.eatclub.codingchallenge.service.EncodedResponseCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequiredArgsConstructor
+public class DealDensityController {
+
+    private final DealDensityService dealDensityService;
+    private final EncodedResponseCache encodedResponseCache;
+
+    @GetMapping(value = "/deal-density", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getDealDensity(@RequestParam(value = "bucketMinutes", defaultValue = "1")
+                                                       int bucketMinutes,
+                                                       @RequestParam(value = "qtyLeft", defaultValue = "false")
+                                                       boolean qtyLeft,
+                                                       @RequestHeader HttpHeaders requestHeaders) {
+        final String query = "/deal-density?bucketMinutes=" + bucketMinutes + "&qtyLeft=" + qtyLeft;
+        return this.encodedResponseCache.respond(query, requestHeaders,
+            () -> this.dealDensityService.getDealDensity(bucketMinutes, qtyLeft));
+    }
+}
@@ -0,0 +1,42 @@
+package org.eatclub.codingchallenge.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.eatclub.codingchallenge.model.response.DealEvent;
+import org.eatclub.codingchallenge.service.DealEventService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+public class DealEventsController {
+
+    private final DealEventService dealEventService;
+    @Value("${deal-events.heartbeatSeconds:15}")
+    private long heartbeatSeconds;
+
+    // One long-lived connection instead of polling /active-deals, e.g. types=activated,qty-changed
+    @GetMapping(value = "/deal-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<DealEvent>> streamDealEvents(@RequestParam(value = "types", required = false)
+                                                             List<String> types) {
+        final Set<String> eventTypes = types == null
+            ? Set.of()
+            : types.stream().map(type -> type.trim().toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        // Comments keep proxies from closing a connection that goes without events for hours, e.g. overnight
+        final Flux<ServerSentEvent<DealEvent>> heartbeats = Flux.interval(Duration.ofSeconds(heartbeatSeconds))
+            .map(tick -> ServerSentEvent.<DealEvent>builder().comment("heartbeat").build());
+        return this.dealEventService.subscribe(eventTypes)
+            .map(event -> ServerSentEvent.builder(event).event(event.getType()).build())
+            .publish(events -> Flux.merge(events, heartbeats.takeUntilOther(events.then())));
+    }
+}
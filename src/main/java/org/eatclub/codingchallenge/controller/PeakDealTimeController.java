@@ -2,21 +2,50 @@ package org.eatclub.codingchallenge.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.eatclub.codingchallenge.model.response.PeakDealTimeRangeResponse;
+import org.eatclub.codingchallenge.service.EncodedResponseCache;
+import org.eatclub.codingchallenge.service.PeakAnalyticsService;
 import org.eatclub.codingchallenge.service.PeakDealTimeRangeService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Mono;
 
+import java.util.Locale;
+
 @RestController
 @RequiredArgsConstructor
 @Slf4j
 public class PeakDealTimeController {
 
     private final PeakDealTimeRangeService peakDealTimeRangeService;
+    private final PeakAnalyticsService peakAnalyticsService;
+    private final EncodedResponseCache encodedResponseCache;
+
+    @GetMapping(value = "/peak-time-window", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getPeakTimeWindow(@RequestHeader HttpHeaders requestHeaders) {
+        return this.encodedResponseCache.respond("/peak-time-window", requestHeaders,
+            this.peakDealTimeRangeService::getPeakDealTimeRange);
+    }
+
+    @GetMapping(value = "/peak-time-window/top", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getTopPeakTimeWindows(@RequestParam(value = "k", defaultValue = "5") int k,
+                                                              @RequestHeader HttpHeaders requestHeaders) {
+        return this.encodedResponseCache.respond("/peak-time-window/top?k=" + k, requestHeaders,
+            () -> this.peakAnalyticsService.getTopPeakWindows(k));
+    }
 
-    @GetMapping("/peak-time-window")
-    public Mono<PeakDealTimeRangeResponse> getPeakTimeWindow() {
-        return this.peakDealTimeRangeService.getPeakDealTimeRange();
+    @GetMapping(value = "/peak-time-window/groups", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getGroupedPeakTimeWindows(@RequestParam("groupBy") String groupBy,
+                                                                  @RequestParam(value = "limit", required = false)
+                                                                  Integer limit,
+                                                                  @RequestHeader HttpHeaders requestHeaders) {
+        final String query = "/peak-time-window/groups?groupBy=" + groupBy.trim().toLowerCase(Locale.ROOT)
+            + "&limit=" + limit;
+        return this.encodedResponseCache.respond(query, requestHeaders,
+            () -> this.peakAnalyticsService.getGroupedPeakWindows(groupBy, limit));
     }
 }
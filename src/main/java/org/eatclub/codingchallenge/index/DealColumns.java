@@ -0,0 +1,223 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.util.MinuteOfDayParser;
+import org.springframework.util.ObjectUtils;
+
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable struct-of-arrays view of every deal in a restaurant snapshot.
+ * <p>
+ * Deals are numbered in feed order and every attribute the services compute with is held in a primitive array
+ * indexed by that number: the start and end minute of day with the deal start -> deal open -> restaurant open (and
+ * end -> close -> restaurant close) fallback already resolved, the discount, the quantity left, the dine in and
+ * lightning flags and the index of the restaurant the deal belongs to. The upstream model objects are only kept to
+ * write responses.
+ * <p>
+ * A time that can't be parsed is only reported when it is read, so a bad value only fails the computations that
+ * actually need it.
+ */
+public final class DealColumns {
+
+    public static final byte LIGHTNING = 1;
+    public static final byte DINE_IN = 1 << 1;
+
+    private static final int INVALID_TIME = -1;
+
+    private final Restaurant[] restaurants;
+    private final int[] restaurantOpen;
+    private final int[] restaurantClose;
+    private final Deals[] deals;
+    private final int[] dealRestaurant;
+    private final int[] start;
+    private final int[] end;
+    private final int[] discount;
+    private final long[] qtyLeft;
+    private final byte[] flags;
+
+    private DealColumns(Restaurant[] restaurants, Deals[] deals) {
+        this.restaurants = restaurants;
+        this.restaurantOpen = new int[restaurants.length];
+        this.restaurantClose = new int[restaurants.length];
+        this.deals = deals;
+        this.dealRestaurant = new int[deals.length];
+        this.start = new int[deals.length];
+        this.end = new int[deals.length];
+        this.discount = new int[deals.length];
+        this.qtyLeft = new long[deals.length];
+        this.flags = new byte[deals.length];
+    }
+
+    public static DealColumns build(final List<Restaurant> restaurantList) {
+        final DealColumns columns = allocate(restaurantList);
+        int ordinal = 0;
+        for (int r = 0; r < columns.restaurants.length; r++) {
+            final Restaurant restaurant = columns.restaurants[r];
+            columns.restaurantOpen[r] = tryParse(restaurant.getOpen());
+            columns.restaurantClose[r] = tryParse(restaurant.getClose());
+
+            for (Deals deal : restaurant.getDeals()) {
+                columns.resolve(ordinal++, r, restaurant, deal);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Columns of the next feed, copying what was resolved for the previous feed for every deal the diff has as
+     * unchanged, so only added and modified deals (and restaurants with nothing but those) are parsed again.
+     */
+    public static DealColumns patch(final DealColumns previous, final List<Restaurant> restaurantList,
+                                    final SnapshotDiff diff) {
+        final DealColumns columns = allocate(restaurantList);
+        int ordinal = 0;
+        for (int r = 0; r < columns.restaurants.length; r++) {
+            final Restaurant restaurant = columns.restaurants[r];
+            // A restaurant is resolved again unless one of its deals is unchanged, which means it is too
+            int previousRestaurant = -1;
+
+            for (Deals deal : restaurant.getDeals()) {
+                final int previousDeal = diff.previousOrdinal(ordinal);
+                if (previousDeal >= 0 && !diff.isModified(ordinal)) {
+                    columns.dealRestaurant[ordinal] = r;
+                    columns.start[ordinal] = previous.start[previousDeal];
+                    columns.end[ordinal] = previous.end[previousDeal];
+                    columns.discount[ordinal] = previous.discount[previousDeal];
+                    columns.qtyLeft[ordinal] = previous.qtyLeft[previousDeal];
+                    columns.flags[ordinal] = previous.flags[previousDeal];
+                    previousRestaurant = previous.dealRestaurant[previousDeal];
+                    ordinal++;
+                } else {
+                    columns.resolve(ordinal++, r, restaurant, deal);
+                }
+            }
+            columns.restaurantOpen[r] = previousRestaurant >= 0
+                ? previous.restaurantOpen[previousRestaurant]
+                : tryParse(restaurant.getOpen());
+            columns.restaurantClose[r] = previousRestaurant >= 0
+                ? previous.restaurantClose[previousRestaurant]
+                : tryParse(restaurant.getClose());
+        }
+        return columns;
+    }
+
+    private static DealColumns allocate(final List<Restaurant> restaurantList) {
+        // Restaurants without deals can't contribute anything
+        final List<Restaurant> dealRestaurants = new ArrayList<>();
+        final List<Deals> dealList = new ArrayList<>();
+        for (Restaurant restaurant : restaurantList) {
+            if (!restaurant.getDeals().isEmpty()) {
+                dealRestaurants.add(restaurant);
+                dealList.addAll(restaurant.getDeals());
+            }
+        }
+        return new DealColumns(dealRestaurants.toArray(Restaurant[]::new), dealList.toArray(Deals[]::new));
+    }
+
+    private void resolve(final int ordinal, final int r, final Restaurant restaurant, final Deals deal) {
+        dealRestaurant[ordinal] = r;
+        start[ordinal] = tryParse(startTime(restaurant, deal));
+        end[ordinal] = tryParse(endTime(restaurant, deal));
+        discount[ordinal] = parseDiscount(deal.getDiscount());
+        qtyLeft[ordinal] = deal.getQtyLeft();
+        flags[ordinal] = (byte) ((deal.isLightning() ? LIGHTNING : 0) | (deal.isDineIn() ? DINE_IN : 0));
+    }
+
+    public int getDealCount() {
+        return deals.length;
+    }
+
+    public int getRestaurantCount() {
+        return restaurants.length;
+    }
+
+    public int restaurantOf(final int deal) {
+        return dealRestaurant[deal];
+    }
+
+    public int restaurantOpenMinute(final int restaurant) {
+        final int minute = restaurantOpen[restaurant];
+        return minute != INVALID_TIME ? minute : MinuteOfDayParser.parse(restaurants[restaurant].getOpen());
+    }
+
+    public int restaurantCloseMinute(final int restaurant) {
+        final int minute = restaurantClose[restaurant];
+        return minute != INVALID_TIME ? minute : MinuteOfDayParser.parse(restaurants[restaurant].getClose());
+    }
+
+    public int startMinute(final int deal) {
+        final int minute = start[deal];
+        return minute != INVALID_TIME
+            ? minute
+            : MinuteOfDayParser.parse(startTime(restaurants[dealRestaurant[deal]], deals[deal]));
+    }
+
+    public int endMinute(final int deal) {
+        final int minute = end[deal];
+        return minute != INVALID_TIME
+            ? minute
+            : MinuteOfDayParser.parse(endTime(restaurants[dealRestaurant[deal]], deals[deal]));
+    }
+
+    /**
+     * Discount percentage, {@code 0} when the upstream value isn't a whole number.
+     */
+    public int discount(final int deal) {
+        return discount[deal];
+    }
+
+    public long qtyLeft(final int deal) {
+        return qtyLeft[deal];
+    }
+
+    public boolean hasFlag(final int deal, final byte flag) {
+        return (flags[deal] & flag) != 0;
+    }
+
+    public Restaurant getRestaurant(final int restaurant) {
+        return restaurants[restaurant];
+    }
+
+    public Deals getDeal(final int deal) {
+        return deals[deal];
+    }
+
+    // Actual start time and end times are calculated with following order of priority
+    // deal start -> deal open -> restaurant open
+    // deal end -> deal close -> restaurant close
+    private static String startTime(final Restaurant restaurant, final Deals deal) {
+        return !ObjectUtils.isEmpty(deal.getStart())
+            ? deal.getStart()
+            : !ObjectUtils.isEmpty(deal.getOpen())
+            ? deal.getOpen()
+            : restaurant.getOpen();
+    }
+
+    private static String endTime(final Restaurant restaurant, final Deals deal) {
+        return !ObjectUtils.isEmpty(deal.getEnd())
+            ? deal.getEnd()
+            : !ObjectUtils.isEmpty(deal.getClose())
+            ? deal.getClose()
+            : restaurant.getClose();
+    }
+
+    private static int tryParse(final String time) {
+        try {
+            return MinuteOfDayParser.parse(time);
+        } catch (DateTimeParseException | NullPointerException e) {
+            return INVALID_TIME;
+        }
+    }
+
+    private static int parseDiscount(final String discount) {
+        try {
+            return discount == null ? 0 : Integer.parseInt(discount.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.eatclub.codingchallenge.index;
+
+import java.util.BitSet;
+
+/**
+ * Number of active deals, and their total quantity left, at every whole minute of the day.
+ * <p>
+ * Built from the same active ranges as {@link DealTimelineIndex}, so the count at a minute is the number of deals an
+ * {@code /active-deals} request for that minute returns. Every range adds one at its first and removes one past its
+ * last time key of a difference array, and a single prefix sum over the day turns that into the curve, O(n + 1440)
+ * for the whole day.
+ */
+public final class DealDensityCurve {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int[] activeDeals;
+    private final long[] qtyLeft;
+
+    private DealDensityCurve(int[] activeDeals, long[] qtyLeft) {
+        this.activeDeals = activeDeals;
+        this.qtyLeft = qtyLeft;
+    }
+
+    public static DealDensityCurve build(final DealColumns dealColumns) {
+        // One slot per time key, plus one for the ranges that end with the day
+        final int[] dealDelta = new int[2 * MINUTES_PER_DAY + 1];
+        final long[] qtyDelta = new long[2 * MINUTES_PER_DAY + 1];
+        DealTimelineIndex.forEachActiveSegment(dealColumns, (deal, from, to) -> {
+            dealDelta[from]++;
+            dealDelta[to + 1]--;
+            qtyDelta[from] += dealColumns.qtyLeft(deal);
+            qtyDelta[to + 1] -= dealColumns.qtyLeft(deal);
+        });
+
+        final int[] activeDeals = new int[MINUTES_PER_DAY];
+        final long[] qtyLeft = new long[MINUTES_PER_DAY];
+        int deals = 0;
+        long qty = 0;
+        for (int key = 0; key < 2 * MINUTES_PER_DAY; key++) {
+            deals += dealDelta[key];
+            qty += qtyDelta[key];
+            // Even keys are the whole minutes
+            if (key % 2 == 0) {
+                activeDeals[key / 2] = deals;
+                qtyLeft[key / 2] = qty;
+            }
+        }
+        return new DealDensityCurve(activeDeals, qtyLeft);
+    }
+
+    /**
+     * Curve of the next feed made from the one of the previous feed: the ranges of the deals in the diff are taken out
+     * with their previous quantity and put back with their new one, O(changed deals + 1440).
+     */
+    public static DealDensityCurve patch(final DealDensityCurve previous, final DealColumns previousColumns,
+                                         final DealColumns dealColumns, final SnapshotDiff diff) {
+        // Per whole minute this time, a range covers the minutes whose time key it contains
+        final int[] dealDelta = new int[MINUTES_PER_DAY + 1];
+        final long[] qtyDelta = new long[MINUTES_PER_DAY + 1];
+        final DealTimelineIndex.SegmentConsumer removeFromPrevious = (deal, from, to) ->
+            addRange(dealDelta, qtyDelta, from, to, -1, -previousColumns.qtyLeft(deal));
+        final DealTimelineIndex.SegmentConsumer addToNext = (deal, from, to) ->
+            addRange(dealDelta, qtyDelta, from, to, 1, dealColumns.qtyLeft(deal));
+
+        final BitSet removed = diff.removedDeals();
+        for (int deal = removed.nextSetBit(0); deal >= 0; deal = removed.nextSetBit(deal + 1)) {
+            DealTimelineIndex.forEachActiveSegment(previousColumns, deal, removeFromPrevious);
+        }
+        final BitSet changed = diff.changedDeals();
+        for (int deal = changed.nextSetBit(0); deal >= 0; deal = changed.nextSetBit(deal + 1)) {
+            if (diff.previousOrdinal(deal) >= 0) {
+                DealTimelineIndex.forEachActiveSegment(previousColumns, diff.previousOrdinal(deal), removeFromPrevious);
+            }
+            DealTimelineIndex.forEachActiveSegment(dealColumns, deal, addToNext);
+        }
+
+        final int[] activeDeals = previous.activeDeals.clone();
+        final long[] qtyLeft = previous.qtyLeft.clone();
+        int deals = 0;
+        long qty = 0;
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            deals += dealDelta[minute];
+            qty += qtyDelta[minute];
+            activeDeals[minute] += deals;
+            qtyLeft[minute] += qty;
+        }
+        return new DealDensityCurve(activeDeals, qtyLeft);
+    }
+
+    private static void addRange(final int[] dealDelta, final long[] qtyDelta, final int from, final int to,
+                                 final int deals, final long qty) {
+        // Even time keys are the whole minutes
+        final int first = (from + 1) / 2;
+        final int last = to / 2;
+        if (first <= last) {
+            dealDelta[first] += deals;
+            dealDelta[last + 1] -= deals;
+            qtyDelta[first] += qty;
+            qtyDelta[last + 1] -= qty;
+        }
+    }
+
+    public int activeDealsAt(final int minuteOfDay) {
+        return activeDeals[minuteOfDay];
+    }
+
+    public long qtyLeftAt(final int minuteOfDay) {
+        return qtyLeft[minuteOfDay];
+    }
+}
@@ -0,0 +1,200 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.DealFilter;
+import org.eatclub.codingchallenge.model.Restaurant;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable secondary indexes over the deals of a restaurant snapshot, used to narrow a time of day lookup down to the
+ * deals a client asked for.
+ * <p>
+ * Suburbs, cuisines and the dine in and lightning flags each map to a bitset of deal ordinals, shared by every
+ * request. A time of day result is filtered by testing each of its ordinals against the bitsets of the criteria and the
+ * discount column, so the cost follows the deals active at that time rather than all deals of the snapshot, and the
+ * deals themselves are never visited.
+ */
+public final class DealFilterIndex {
+
+    private static final BitSet NONE = new BitSet();
+
+    private final int dealCount;
+    private final Map<String, BitSet> bySuburb;
+    private final Map<String, BitSet> byCuisine;
+    private final BitSet dineIn;
+    private final BitSet lightning;
+    // Discounts are read from the columns by ordinal
+    private final DealColumns dealColumns;
+
+    private DealFilterIndex(int dealCount, Map<String, BitSet> bySuburb, Map<String, BitSet> byCuisine,
+                            BitSet dineIn, BitSet lightning, DealColumns dealColumns) {
+        this.dealCount = dealCount;
+        this.bySuburb = bySuburb;
+        this.byCuisine = byCuisine;
+        this.dineIn = dineIn;
+        this.lightning = lightning;
+        this.dealColumns = dealColumns;
+    }
+
+    public static DealFilterIndex build(final DealColumns dealColumns) {
+        final int dealCount = dealColumns.getDealCount();
+        final Map<String, BitSet> bySuburb = new HashMap<>();
+        final Map<String, BitSet> byCuisine = new HashMap<>();
+        final BitSet dineIn = new BitSet(dealCount);
+        final BitSet lightning = new BitSet(dealCount);
+
+        // Deals of a restaurant are numbered consecutively, so a restaurant attribute covers a range of ordinals
+        int first = 0;
+        for (int r = 0; r < dealColumns.getRestaurantCount(); r++) {
+            final Restaurant restaurant = dealColumns.getRestaurant(r);
+            final int last = first + restaurant.getDeals().size();
+            if (restaurant.getSuburb() != null) {
+                bySuburb.computeIfAbsent(key(restaurant.getSuburb()), k -> new BitSet(dealCount)).set(first, last);
+            }
+            final List<String> cuisines = restaurant.getCuisines();
+            if (cuisines != null) {
+                for (String cuisine : cuisines) {
+                    if (cuisine != null) {
+                        byCuisine.computeIfAbsent(key(cuisine), k -> new BitSet(dealCount)).set(first, last);
+                    }
+                }
+            }
+            first = last;
+        }
+
+        for (int deal = 0; deal < dealCount; deal++) {
+            dineIn.set(deal, dealColumns.hasFlag(deal, DealColumns.DINE_IN));
+            lightning.set(deal, dealColumns.hasFlag(deal, DealColumns.LIGHTNING));
+        }
+
+        return new DealFilterIndex(dealCount, bySuburb, byCuisine, dineIn, lightning, dealColumns);
+    }
+
+    /**
+     * Index of the next feed made from the one of the previous feed. When no deal was added or removed, and no
+     * changed deal has a different suburb, cuisine or discount, the previous bitsets are shared and only the flags that
+     * changed are copied and updated. Anything else is built from scratch.
+     */
+    public static DealFilterIndex patch(final DealFilterIndex previous, final DealColumns previousColumns,
+                                        final DealColumns dealColumns, final SnapshotDiff diff) {
+        if (!diff.isSameLayout()) {
+            return build(dealColumns);
+        }
+        BitSet dineIn = previous.dineIn;
+        BitSet lightning = previous.lightning;
+        final BitSet changed = diff.changedDeals();
+        for (int deal = changed.nextSetBit(0); deal >= 0; deal = changed.nextSetBit(deal + 1)) {
+            final Restaurant previousRestaurant = previousColumns.getRestaurant(previousColumns.restaurantOf(deal));
+            final Restaurant restaurant = dealColumns.getRestaurant(dealColumns.restaurantOf(deal));
+            if (!Objects.equals(previousRestaurant.getSuburb(), restaurant.getSuburb())
+                || !Objects.equals(previousRestaurant.getCuisines(), restaurant.getCuisines())
+                || previousColumns.discount(deal) != dealColumns.discount(deal)) {
+                return build(dealColumns);
+            }
+            final boolean isDineIn = dealColumns.hasFlag(deal, DealColumns.DINE_IN);
+            if (dineIn.get(deal) != isDineIn) {
+                dineIn = dineIn == previous.dineIn ? (BitSet) dineIn.clone() : dineIn;
+                dineIn.set(deal, isDineIn);
+            }
+            final boolean isLightning = dealColumns.hasFlag(deal, DealColumns.LIGHTNING);
+            if (lightning.get(deal) != isLightning) {
+                lightning = lightning == previous.lightning ? (BitSet) lightning.clone() : lightning;
+                lightning.set(deal, isLightning);
+            }
+        }
+        return new DealFilterIndex(previous.dealCount, previous.bySuburb, previous.byCuisine, dineIn, lightning,
+            dealColumns);
+    }
+
+    /**
+     * The given deal ordinals that match every criterion of the filter, in the same order.
+     */
+    public int[] filter(final int[] dealOrdinals, final DealFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return dealOrdinals;
+        }
+        final BitSet suburb = filter.getSuburb() != null ? bySuburb.get(key(filter.getSuburb())) : null;
+        final BitSet cuisine = filter.getCuisine() != null ? byCuisine.get(key(filter.getCuisine())) : null;
+        if ((filter.getSuburb() != null && suburb == null) || (filter.getCuisine() != null && cuisine == null)) {
+            return new int[0];
+        }
+        final Boolean isDineIn = filter.getDineIn();
+        final Boolean isLightning = filter.getLightning();
+        final Integer minDiscount = filter.getMinDiscount();
+        final int[] result = new int[dealOrdinals.length];
+        int size = 0;
+        for (int deal : dealOrdinals) {
+            if ((suburb == null || suburb.get(deal))
+                && (cuisine == null || cuisine.get(deal))
+                && (isDineIn == null || dineIn.get(deal) == isDineIn)
+                && (isLightning == null || lightning.get(deal) == isLightning)
+                && (minDiscount == null || dealColumns.discount(deal) >= minDiscount)) {
+                result[size++] = deal;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Every deal ordinal that matches all criteria of the filter, regardless of time.
+     */
+    public BitSet matching(final DealFilter filter) {
+        final BitSet matching = new BitSet(dealCount);
+        matching.set(0, dealCount);
+        if (filter.getSuburb() != null) {
+            matching.and(bySuburb.getOrDefault(key(filter.getSuburb()), NONE));
+        }
+        if (filter.getCuisine() != null) {
+            matching.and(byCuisine.getOrDefault(key(filter.getCuisine()), NONE));
+        }
+        if (filter.getDineIn() != null) {
+            andFlag(matching, dineIn, filter.getDineIn());
+        }
+        if (filter.getLightning() != null) {
+            andFlag(matching, lightning, filter.getLightning());
+        }
+        if (filter.getMinDiscount() != null) {
+            final int minDiscount = filter.getMinDiscount();
+            for (int deal = matching.nextSetBit(0); deal >= 0; deal = matching.nextSetBit(deal + 1)) {
+                if (dealColumns.discount(deal) < minDiscount) {
+                    matching.clear(deal);
+                }
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Deals of every suburb, keyed by the trimmed and lower cased suburb name. The bitsets must not be modified.
+     */
+    public Map<String, BitSet> getSuburbGroups() {
+        return Collections.unmodifiableMap(bySuburb);
+    }
+
+    /**
+     * Deals of every cuisine, keyed by the trimmed and lower cased cuisine name. A deal is in every cuisine of its
+     * restaurant. The bitsets must not be modified.
+     */
+    public Map<String, BitSet> getCuisineGroups() {
+        return Collections.unmodifiableMap(byCuisine);
+    }
+
+    private static void andFlag(final BitSet matching, final BitSet flag, final boolean value) {
+        if (value) {
+            matching.and(flag);
+        } else {
+            matching.andNot(flag);
+        }
+    }
+
+    private static String key(final String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,165 @@
+package org.eatclub.codingchallenge.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Number of deals starting and ending in every minute of the day, the difference array of the deal count over the
+ * day.
+ * <p>
+ * Starts and ends are kept apart rather than netted out, so a sweep can count the deals starting in a minute before
+ * the ones ending in it, as the event sort of the original peak computation did. Building it is one pass over the
+ * resolved minutes of {@link DealColumns} and a sweep is a fixed 1440 steps whatever the number of deals, with no per
+ * deal allocation.
+ */
+public final class DealMinuteHistogram {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int[] starts;
+    private final int[] ends;
+
+    private DealMinuteHistogram(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    public static DealMinuteHistogram build(final DealColumns dealColumns) {
+        final int[] starts = new int[MINUTES_PER_DAY];
+        final int[] ends = new int[MINUTES_PER_DAY];
+        for (int deal = 0; deal < dealColumns.getDealCount(); deal++) {
+            starts[dealColumns.startMinute(deal)]++;
+            ends[dealColumns.endMinute(deal)]++;
+        }
+        return new DealMinuteHistogram(starts, ends);
+    }
+
+    /**
+     * Histogram of the next feed made from the one of the previous feed, counting only the deals in the diff again.
+     */
+    public static DealMinuteHistogram patch(final DealMinuteHistogram previous, final DealColumns previousColumns,
+                                            final DealColumns dealColumns, final SnapshotDiff diff) {
+        final int[] starts = previous.starts.clone();
+        final int[] ends = previous.ends.clone();
+        final BitSet removed = diff.removedDeals();
+        for (int deal = removed.nextSetBit(0); deal >= 0; deal = removed.nextSetBit(deal + 1)) {
+            starts[previousColumns.startMinute(deal)]--;
+            ends[previousColumns.endMinute(deal)]--;
+        }
+        final BitSet changed = diff.changedDeals();
+        for (int deal = changed.nextSetBit(0); deal >= 0; deal = changed.nextSetBit(deal + 1)) {
+            final int previousDeal = diff.previousOrdinal(deal);
+            if (previousDeal >= 0) {
+                starts[previousColumns.startMinute(previousDeal)]--;
+                ends[previousColumns.endMinute(previousDeal)]--;
+            }
+            starts[dealColumns.startMinute(deal)]++;
+            ends[dealColumns.endMinute(deal)]++;
+        }
+        return new DealMinuteHistogram(starts, ends);
+    }
+
+    /**
+     * Histogram of the given deals only, e.g. the deals of one suburb.
+     */
+    public static DealMinuteHistogram build(final DealColumns dealColumns, final BitSet deals) {
+        final int[] starts = new int[MINUTES_PER_DAY];
+        final int[] ends = new int[MINUTES_PER_DAY];
+        for (int deal = deals.nextSetBit(0); deal >= 0; deal = deals.nextSetBit(deal + 1)) {
+            starts[dealColumns.startMinute(deal)]++;
+            ends[dealColumns.endMinute(deal)]++;
+        }
+        return new DealMinuteHistogram(starts, ends);
+    }
+
+    public int startsAt(final int minuteOfDay) {
+        return starts[minuteOfDay];
+    }
+
+    public int endsAt(final int minuteOfDay) {
+        return ends[minuteOfDay];
+    }
+
+    /**
+     * First range with the most deals at once, or {@code null} when no such range ends within the day.
+     * <p>
+     * A range starts at the minute the count reaches a new (or equals the current) maximum and ends at the first minute
+     * a deal ends while the count is still at that maximum. A range reaching a higher maximum replaces any range found
+     * before, and of ranges reaching the same maximum the earliest is kept. Deals ending before they start (past
+     * midnight) count down at their end minute and up at their start minute, exactly like start and end events sorted
+     * by time would.
+     */
+    public PeakRange firstPeakRange() {
+        int active = 0;
+        int maxActive = 0;
+        int rangeStart = -1;
+        PeakRange firstMaxRange = null;
+
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            final int started = starts[minute];
+            if (started > 0) {
+                active += started;
+                if (active > maxActive) {
+                    // New max, any range found so far is for a lower count
+                    maxActive = active;
+                    rangeStart = minute;
+                    firstMaxRange = null;
+                } else if (active == maxActive && rangeStart < 0) {
+                    rangeStart = minute;
+                }
+            }
+            final int ended = ends[minute];
+            if (ended > 0) {
+                // Only the first deal ending in the minute can close a range, the count is below the max after it
+                if (active == maxActive && rangeStart >= 0) {
+                    if (firstMaxRange == null) {
+                        firstMaxRange = new PeakRange(rangeStart, minute, maxActive);
+                    }
+                    rangeStart = -1;
+                }
+                active -= ended;
+            }
+        }
+        return firstMaxRange;
+    }
+
+    /**
+     * Every local peak of the day, most deals first and earliest first among equal counts.
+     * <p>
+     * A local peak starts at a minute deals start in and ends at the next minute a deal ends in, when no other deal
+     * starts in between, i.e. the count rises to it and falls from it. Local peaks never overlap, and the first one
+     * with the most deals is {@link #firstPeakRange()} whenever that exists.
+     */
+    public List<PeakRange> localPeakRanges() {
+        final List<PeakRange> peaks = new ArrayList<>();
+        int active = 0;
+        int rangeStart = -1;
+
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            final int started = starts[minute];
+            if (started > 0) {
+                active += started;
+                rangeStart = minute;
+            }
+            final int ended = ends[minute];
+            if (ended > 0) {
+                if (rangeStart >= 0) {
+                    peaks.add(new PeakRange(rangeStart, minute, active));
+                    rangeStart = -1;
+                }
+                active -= ended;
+            }
+        }
+        peaks.sort(Comparator.comparingInt(PeakRange::activeDeals).reversed()
+            .thenComparingInt(PeakRange::startMinute));
+        return peaks;
+    }
+
+    /**
+     * A range of minutes of day, both ends included, with the number of deals active throughout it.
+     */
+    public record PeakRange(int startMinute, int endMinute, int activeDeals) {
+    }
+}
@@ -0,0 +1,505 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable time-of-day index over every deal of a restaurant snapshot.
+ * <p>
+ * The index is built from the resolved minutes of {@link DealColumns}. Each deal becomes one or two closed segments
+ * on a doubled minute-of-day axis (see {@link #timeKey(LocalTime)}) holding exactly the instants the deal is active,
+ * and the segments are stored in a centered interval tree. A lookup, of an instant or of every deal active at any
+ * point of a window, is O(log n + k) and returns deal ordinals in feed order, i.e. the same order a restaurant by
+ * restaurant scan of the snapshot produces.
+ * <p>
+ * The segment boundaries are also kept sorted, so a batch of times is answered with one lookup for the earliest time
+ * and a sweep over only the boundaries between consecutive times.
+ */
+public final class DealTimelineIndex {
+
+    private final DealColumns dealColumns;
+    private final Node root;
+    // Segments sorted by first time key, and by last time key
+    private final Segment[] byFrom;
+    private final Segment[] byTo;
+
+    private DealTimelineIndex(DealColumns dealColumns, Node root, Segment[] byFrom, Segment[] byTo) {
+        this.dealColumns = dealColumns;
+        this.root = root;
+        this.byFrom = byFrom;
+        this.byTo = byTo;
+    }
+
+    public static DealTimelineIndex build(final List<Restaurant> restaurantList) {
+        return build(DealColumns.build(restaurantList));
+    }
+
+    public static DealTimelineIndex build(final DealColumns dealColumns) {
+        final List<Segment> segments = new ArrayList<>();
+        forEachActiveSegment(dealColumns, (deal, from, to) -> segments.add(new Segment(deal, from, to)));
+        final Segment[] byFrom = segments.toArray(Segment[]::new);
+        Arrays.sort(byFrom, Comparator.comparingInt(Segment::from));
+        final Segment[] byTo = segments.toArray(Segment[]::new);
+        Arrays.sort(byTo, Comparator.comparingInt(Segment::to));
+        return new DealTimelineIndex(dealColumns, Node.build(segments), byFrom, byTo);
+    }
+
+    /**
+     * Index of the new deal columns made from the index of the previous feed, with only the segments of the deals in
+     * the diff replaced. Nodes holding no changed segment are shared with the previous index when no deal was added
+     * or removed, otherwise they are copied with the deal ordinals renumbered, without sorting anything again. Segments
+     * whose center node is missing get a new subtree, so patches can leave the tree less balanced than a full build.
+     */
+    public static DealTimelineIndex patch(final DealTimelineIndex previous, final DealColumns dealColumns,
+                                          final SnapshotDiff diff) {
+        final DealColumns previousColumns = previous.dealColumns;
+        // Previous deals all of whose segments go, and the segments that replace them
+        final BitSet dropped = diff.removedDeals();
+        final List<Segment> added = new ArrayList<>();
+        final BitSet changed = diff.changedDeals();
+        for (int deal = changed.nextSetBit(0); deal >= 0; deal = changed.nextSetBit(deal + 1)) {
+            final List<Segment> segments = segmentsOf(dealColumns, deal);
+            final int previousDeal = diff.previousOrdinal(deal);
+            if (previousDeal >= 0) {
+                // Most changes, e.g. to the quantity left, keep the deal active for the same time
+                if (sameRanges(segmentsOf(previousColumns, previousDeal), segments)) {
+                    continue;
+                }
+                dropped.set(previousDeal);
+            }
+            added.addAll(segments);
+        }
+
+        final int[] nextOrdinal = diff.isSameLayout() ? null : diff.nextOrdinals();
+        if (nextOrdinal == null && dropped.isEmpty() && added.isEmpty()) {
+            return new DealTimelineIndex(dealColumns, previous.root, previous.byFrom, previous.byTo);
+        }
+        final UnaryOperator<Segment> renumber = segment -> {
+            if (dropped.get(segment.deal)) {
+                return null;
+            }
+            return nextOrdinal == null ? segment : new Segment(nextOrdinal[segment.deal], segment.from, segment.to);
+        };
+
+        // Without renumbering only the nodes on the way to a dropped segment have to be copied
+        final Set<Node> touched = nextOrdinal == null ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        if (touched != null) {
+            for (int deal = dropped.nextSetBit(0); deal >= 0; deal = dropped.nextSetBit(deal + 1)) {
+                for (Segment segment : segmentsOf(previousColumns, deal)) {
+                    Node node = previous.root;
+                    while (node != null) {
+                        touched.add(node);
+                        node = segment.to < node.center ? node.left : segment.from > node.center ? node.right : null;
+                    }
+                }
+            }
+        }
+
+        return new DealTimelineIndex(dealColumns, Node.patch(previous.root, added, renumber, touched),
+            merge(previous.byFrom, renumber, added, Comparator.comparingInt(Segment::from)),
+            merge(previous.byTo, renumber, added, Comparator.comparingInt(Segment::to)));
+    }
+
+    /**
+     * Ordinals of the deals active at the given time of day, in ascending (feed) order.
+     */
+    public int[] activeDealsAt(final LocalTime timeOfDay) {
+        return activeDealsAt(timeKey(timeOfDay));
+    }
+
+    /**
+     * Ordinals of the deals active at any instant from {@code from} to {@code to}, both included, in ascending (feed)
+     * order. The same deals {@link #activeDealsAt(LocalTime)} returns for any one of those instants, each once.
+     */
+    public int[] activeDealsBetween(final LocalTime from, final LocalTime to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Window ends before it starts: " + from + " - " + to);
+        }
+        final IntBuffer result = new IntBuffer();
+        collectOverlapping(root, timeKey(from), timeKey(to), result);
+        // A deal cut in two around an overnight closed window can overlap with both segments
+        return result.sortedDistinct();
+    }
+
+    // Walks one path towards each end of the window, taking whole nodes whose center lies inside it
+    private static void collectOverlapping(Node node, final int from, final int to, final IntBuffer result) {
+        while (node != null) {
+            if (to < node.center) {
+                for (Segment segment : node.byFrom) {
+                    if (segment.from > to) {
+                        break;
+                    }
+                    result.add(segment.deal);
+                }
+                node = node.left;
+            } else if (from > node.center) {
+                for (Segment segment : node.byToDesc) {
+                    if (segment.to < from) {
+                        break;
+                    }
+                    result.add(segment.deal);
+                }
+                node = node.right;
+            } else {
+                for (Segment segment : node.byFrom) {
+                    result.add(segment.deal);
+                }
+                collectOverlapping(node.left, from, to, result);
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Ordinals of the deals active at each of the given times of day, in ascending (feed) order, one array per time in
+     * the given order. Only the earliest time is looked up, every later one is reached by applying the segments that
+     * start or end in between, so the cost is O(log n + boundaries crossed + deals returned).
+     */
+    public int[][] activeDealsAt(final List<LocalTime> timesOfDay) {
+        final int[] keys = timesOfDay.stream().mapToInt(DealTimelineIndex::timeKey).toArray();
+        final int[] sortedKeys = Arrays.stream(keys).sorted().distinct().toArray();
+        final int[][] bySortedKey = new int[sortedKeys.length][];
+        if (sortedKeys.length > 0) {
+            bySortedKey[0] = activeDealsAt(sortedKeys[0]);
+            final BitSet active = new BitSet(getDealCount());
+            for (int deal : bySortedKey[0]) {
+                active.set(deal);
+            }
+            for (int i = 1; i < sortedKeys.length; i++) {
+                advance(active, sortedKeys[i - 1], sortedKeys[i]);
+                bySortedKey[i] = toArray(active);
+            }
+        }
+
+        final int[][] result = new int[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = bySortedKey[Arrays.binarySearch(sortedKeys, keys[i])];
+        }
+        return result;
+    }
+
+    // Turns the deals active at time key `from` into those active at the later key `to`. Segments ending before `to`
+    // are dropped before segments starting after `from` are added, so a deal whose two segments (see
+    // forEachActiveSegment) fall on either side of a closed window stays active.
+    private void advance(final BitSet active, final int from, final int to) {
+        for (int i = firstAtOrAfter(byTo, Segment::to, from); i < byTo.length && byTo[i].to < to; i++) {
+            if (byTo[i].from <= from) {
+                active.clear(byTo[i].deal);
+            }
+        }
+        for (int i = firstAtOrAfter(byFrom, Segment::from, from + 1); i < byFrom.length && byFrom[i].from <= to; i++) {
+            if (byFrom[i].to >= to) {
+                active.set(byFrom[i].deal);
+            }
+        }
+    }
+
+    private static int[] toArray(final BitSet bits) {
+        final int[] result = new int[bits.cardinality()];
+        int size = 0;
+        for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+            result[size++] = bit;
+        }
+        return result;
+    }
+
+    private static int firstAtOrAfter(final Segment[] sorted, final ToIntFunction<Segment> key, final int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (key.applyAsInt(sorted[middle]) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int[] activeDealsAt(final int key) {
+        final IntBuffer result = new IntBuffer();
+        Node node = root;
+        while (node != null) {
+            if (key < node.center) {
+                for (Segment segment : node.byFrom) {
+                    if (segment.from > key) {
+                        break;
+                    }
+                    result.add(segment.deal);
+                }
+                node = node.left;
+            } else if (key > node.center) {
+                for (Segment segment : node.byToDesc) {
+                    if (segment.to < key) {
+                        break;
+                    }
+                    result.add(segment.deal);
+                }
+                node = node.right;
+            } else {
+                for (Segment segment : node.byFrom) {
+                    result.add(segment.deal);
+                }
+                node = null;
+            }
+        }
+        return result.sorted();
+    }
+
+    public DealColumns getDealColumns() {
+        return dealColumns;
+    }
+
+    public int getDealCount() {
+        return dealColumns.getDealCount();
+    }
+
+    public Restaurant getRestaurant(final int dealOrdinal) {
+        return dealColumns.getRestaurant(dealColumns.restaurantOf(dealOrdinal));
+    }
+
+    public Deals getDeal(final int dealOrdinal) {
+        return dealColumns.getDeal(dealOrdinal);
+    }
+
+    /**
+     * Maps a time of day onto the doubled minute axis: {@code 2 * minute} for a whole minute and
+     * {@code 2 * minute + 1} for any instant strictly inside that minute. Upstream times have minute resolution, so
+     * the strict comparisons of the original scan ({@code start < t < end}) become closed integer ranges.
+     */
+    static int timeKey(final LocalTime timeOfDay) {
+        final int minuteOfDay = timeOfDay.getHour() * 60 + timeOfDay.getMinute();
+        final boolean wholeMinute = timeOfDay.getSecond() == 0 && timeOfDay.getNano() == 0;
+        return 2 * minuteOfDay + (wholeMinute ? 0 : 1);
+    }
+
+    /**
+     * Hands every closed range of {@link #timeKey(LocalTime) time keys} a deal is active for to the consumer, one or
+     * two per deal with quantity left, in feed order.
+     */
+    static void forEachActiveSegment(final DealColumns dealColumns, final SegmentConsumer consumer) {
+        for (int deal = 0; deal < dealColumns.getDealCount(); deal++) {
+            forEachActiveSegment(dealColumns, deal, consumer);
+        }
+    }
+
+    static void forEachActiveSegment(final DealColumns dealColumns, final int deal, final SegmentConsumer consumer) {
+        // Deals with nothing left are never active
+        if (dealColumns.qtyLeft(deal) <= 0) {
+            return;
+        }
+        final int restaurant = dealColumns.restaurantOf(deal);
+        addActiveSegments(consumer, deal, dealColumns.startMinute(deal), dealColumns.endMinute(deal),
+            dealColumns.restaurantOpenMinute(restaurant), dealColumns.restaurantCloseMinute(restaurant));
+    }
+
+    private static void addActiveSegments(final SegmentConsumer segments, final int deal,
+                                          final int start, final int end,
+                                          final int restaurantOpen, final int restaurantClose) {
+        // The deal is active strictly between start and end, so an overnight or empty deal range never matches
+        final int from = 2 * start + 1;
+        final int to = 2 * end - 1;
+        if (from > to) {
+            return;
+        }
+
+        // The restaurant counts as closed strictly between close and open, which only happens when it closes
+        // before it opens (overnight trading). Cut that window out of the deal range.
+        if (restaurantClose < restaurantOpen) {
+            final int closedFrom = 2 * restaurantClose + 1;
+            final int closedTo = 2 * restaurantOpen - 1;
+            addSegment(segments, deal, from, Math.min(to, closedFrom - 1));
+            addSegment(segments, deal, Math.max(from, closedTo + 1), to);
+        } else {
+            addSegment(segments, deal, from, to);
+        }
+    }
+
+    private static void addSegment(final SegmentConsumer segments, final int deal, final int from, final int to) {
+        if (from <= to) {
+            segments.accept(deal, from, to);
+        }
+    }
+
+    private static List<Segment> segmentsOf(final DealColumns dealColumns, final int deal) {
+        final List<Segment> segments = new ArrayList<>(2);
+        forEachActiveSegment(dealColumns, deal, (ordinal, from, to) -> segments.add(new Segment(ordinal, from, to)));
+        return segments;
+    }
+
+    private static boolean sameRanges(final List<Segment> previous, final List<Segment> next) {
+        if (previous.size() != next.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (previous.get(i).from != next.get(i).from || previous.get(i).to != next.get(i).to) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The kept segments, renumbered, merged with the added ones, all in the given order
+    private static Segment[] merge(final Segment[] sorted, final UnaryOperator<Segment> renumber,
+                                   final List<Segment> added, final Comparator<Segment> order) {
+        final Segment[] addedSorted = added.toArray(Segment[]::new);
+        Arrays.sort(addedSorted, order);
+        final Segment[] result = new Segment[sorted.length + addedSorted.length];
+        int size = 0;
+        int next = 0;
+        for (Segment segment : sorted) {
+            final Segment kept = renumber.apply(segment);
+            if (kept == null) {
+                continue;
+            }
+            while (next < addedSorted.length && order.compare(addedSorted[next], kept) < 0) {
+                result[size++] = addedSorted[next++];
+            }
+            result[size++] = kept;
+        }
+        while (next < addedSorted.length) {
+            result[size++] = addedSorted[next++];
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    @FunctionalInterface
+    interface SegmentConsumer {
+        void accept(int deal, int from, int to);
+    }
+
+    private record Segment(int deal, int from, int to) {
+    }
+
+    /**
+     * Centered interval tree node, holding the segments that contain {@code center} sorted both ways.
+     */
+    private static final class Node {
+        private final int center;
+        private final Segment[] byFrom;
+        private final Segment[] byToDesc;
+        private final Node left;
+        private final Node right;
+
+        private Node(int center, Segment[] byFrom, Segment[] byToDesc, Node left, Node right) {
+            this.center = center;
+            this.byFrom = byFrom;
+            this.byToDesc = byToDesc;
+            this.left = left;
+            this.right = right;
+        }
+
+        static Node build(final List<Segment> segments) {
+            if (segments.isEmpty()) {
+                return null;
+            }
+
+            // Median endpoint keeps both subtrees at most half the size of this one
+            final int[] endpoints = new int[segments.size() * 2];
+            for (int i = 0; i < segments.size(); i++) {
+                endpoints[2 * i] = segments.get(i).from;
+                endpoints[2 * i + 1] = segments.get(i).to;
+            }
+            Arrays.sort(endpoints);
+            final int center = endpoints[segments.size()];
+
+            final List<Segment> here = new ArrayList<>();
+            final List<Segment> before = new ArrayList<>();
+            final List<Segment> after = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment.to < center) {
+                    before.add(segment);
+                } else if (segment.from > center) {
+                    after.add(segment);
+                } else {
+                    here.add(segment);
+                }
+            }
+
+            final Segment[] byFrom = here.toArray(Segment[]::new);
+            Arrays.sort(byFrom, Comparator.comparingInt(Segment::from));
+            final Segment[] byToDesc = here.toArray(Segment[]::new);
+            Arrays.sort(byToDesc, Comparator.comparingInt(Segment::to).reversed());
+
+            return new Node(center, byFrom, byToDesc, build(before), build(after));
+        }
+
+        /**
+         * Copy of the subtree with every segment renumbered (or dropped when renumbered to {@code null}) and the added
+         * segments inserted at the node whose center they contain. When {@code touched} is given, any subtree outside
+         * it that gets no added segment is returned as is.
+         */
+        static Node patch(final Node node, final List<Segment> added, final UnaryOperator<Segment> renumber,
+                          final Set<Node> touched) {
+            if (node == null) {
+                return build(added);
+            }
+            if (added.isEmpty() && touched != null && !touched.contains(node)) {
+                return node;
+            }
+
+            final List<Segment> here = new ArrayList<>();
+            final List<Segment> before = new ArrayList<>();
+            final List<Segment> after = new ArrayList<>();
+            for (Segment segment : added) {
+                if (segment.to < node.center) {
+                    before.add(segment);
+                } else if (segment.from > node.center) {
+                    after.add(segment);
+                } else {
+                    here.add(segment);
+                }
+            }
+            final Segment[] byFrom = merge(node.byFrom, renumber, here, Comparator.comparingInt(Segment::from));
+            final Segment[] byToDesc = merge(node.byToDesc, renumber, here,
+                Comparator.comparingInt(Segment::to).reversed());
+            final Node left = patch(node.left, before, renumber, touched);
+            final Node right = patch(node.right, after, renumber, touched);
+            return byFrom.length == 0 && left == null && right == null
+                ? null
+                : new Node(node.center, byFrom, byToDesc, left, right);
+        }
+    }
+
+    private static final class IntBuffer {
+        private int[] values = new int[16];
+        private int size;
+
+        void add(final int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] sorted() {
+            final int[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+
+        int[] sortedDistinct() {
+            final int[] sorted = sorted();
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
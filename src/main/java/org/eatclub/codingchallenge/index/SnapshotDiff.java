@@ -0,0 +1,282 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Deals added, removed and modified between two restaurant feeds, matched by restaurant and deal {@code objectId}.
+ * <p>
+ * Deals are numbered in feed order as in {@link DealColumns}. Every deal of the new feed knows the ordinal of the
+ * same deal in the previous feed, or {@code -1} when it was added, and a deal counts as modified when any of its
+ * fields, or any field of its restaurant, differs. Feeds usually list the same restaurants and deals in the same
+ * order, so they are first compared position by position and only matched through maps when that fails.
+ * <p>
+ * Structures derived from the previous feed can only be patched when deals kept their relative order, since responses
+ * list deals in feed order, so a feed that reorders deals, or where an id is missing or repeated, has no diff.
+ */
+public final class SnapshotDiff {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int previousDealCount;
+    private final int[] previousOrdinal;
+    private final BitSet added;
+    private final BitSet modified;
+    private final BitSet removed;
+
+    private SnapshotDiff(int previousDealCount, int[] previousOrdinal, BitSet added, BitSet modified, BitSet removed) {
+        this.previousDealCount = previousDealCount;
+        this.previousOrdinal = previousOrdinal;
+        this.added = added;
+        this.modified = modified;
+        this.removed = removed;
+    }
+
+    /**
+     * Difference from the previous to the next feed, or {@code null} when the two can't be matched deal by deal.
+     */
+    public static SnapshotDiff between(final List<Restaurant> previous, final List<Restaurant> next) {
+        final int previousDealCount = countDeals(previous);
+        final int[] previousOrdinal = new int[countDeals(next)];
+        final Restaurant[] previousRestaurant = new Restaurant[previousOrdinal.length];
+        if (!matchByPosition(previous, next, previousOrdinal, previousRestaurant)
+            && !matchById(previous, next, previousOrdinal, previousRestaurant)) {
+            return null;
+        }
+
+        final Deals[] previousDeals = previous.stream()
+            .flatMap(restaurant -> restaurant.getDeals().stream())
+            .toArray(Deals[]::new);
+        final BitSet added = new BitSet(previousOrdinal.length);
+        final BitSet modified = new BitSet(previousOrdinal.length);
+        final BitSet removed = new BitSet(previousDealCount);
+        removed.set(0, previousDealCount);
+        int lastMatched = -1;
+        int deal = 0;
+        for (Restaurant restaurant : next) {
+            for (Deals nextDeal : restaurant.getDeals()) {
+                final int previousDeal = previousOrdinal[deal];
+                if (previousDeal < 0) {
+                    added.set(deal);
+                } else if (previousDeal < lastMatched) {
+                    // Reordered, a patched response would list deals in the previous order
+                    return null;
+                } else {
+                    lastMatched = previousDeal;
+                    removed.clear(previousDeal);
+                    if (!nextDeal.equals(previousDeals[previousDeal])
+                        || !sameRestaurantFields(previousRestaurant[deal], restaurant)) {
+                        modified.set(deal);
+                    }
+                }
+                deal++;
+            }
+        }
+        return new SnapshotDiff(previousDealCount, previousOrdinal, added, modified, removed);
+    }
+
+    public int getDealCount() {
+        return previousOrdinal.length;
+    }
+
+    public int getPreviousDealCount() {
+        return previousDealCount;
+    }
+
+    /**
+     * Ordinal of the deal in the previous feed, {@code -1} when it was added.
+     */
+    public int previousOrdinal(final int deal) {
+        return previousOrdinal[deal];
+    }
+
+    public boolean isAdded(final int deal) {
+        return previousOrdinal[deal] < 0;
+    }
+
+    public boolean isModified(final int deal) {
+        return modified.get(deal);
+    }
+
+    /**
+     * Ordinals in the new feed of the deals that were added or modified.
+     */
+    public BitSet changedDeals() {
+        final BitSet changed = (BitSet) modified.clone();
+        changed.or(added);
+        return changed;
+    }
+
+    /**
+     * Ordinals in the previous feed of the deals that were removed.
+     */
+    public BitSet removedDeals() {
+        return (BitSet) removed.clone();
+    }
+
+    /**
+     * Ordinal in the new feed of every deal of the previous feed, {@code -1} for removed deals.
+     */
+    public int[] nextOrdinals() {
+        final int[] nextOrdinal = new int[previousDealCount];
+        Arrays.fill(nextOrdinal, -1);
+        for (int deal = 0; deal < previousOrdinal.length; deal++) {
+            if (previousOrdinal[deal] >= 0) {
+                nextOrdinal[previousOrdinal[deal]] = deal;
+            }
+        }
+        return nextOrdinal;
+    }
+
+    public int getAddedCount() {
+        return added.cardinality();
+    }
+
+    public int getRemovedCount() {
+        return removed.cardinality();
+    }
+
+    public int getModifiedCount() {
+        return modified.cardinality();
+    }
+
+    public int getChangedCount() {
+        return getAddedCount() + getRemovedCount() + getModifiedCount();
+    }
+
+    /**
+     * Whether every deal kept its ordinal, i.e. nothing was added or removed.
+     */
+    public boolean isSameLayout() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Whole minutes of the day at which a deal that changed is active in either feed, the only minutes whose active
+     * deals, and their response, can differ.
+     */
+    public BitSet changedMinutes(final DealColumns previousColumns, final DealColumns dealColumns) {
+        final BitSet minutes = new BitSet(MINUTES_PER_DAY);
+        final DealTimelineIndex.SegmentConsumer addMinutes = (deal, from, to) -> {
+            // Even time keys are the whole minutes
+            final int first = (from + 1) / 2;
+            final int last = to / 2;
+            if (first <= last) {
+                minutes.set(first, last + 1);
+            }
+        };
+        for (int deal = removed.nextSetBit(0); deal >= 0; deal = removed.nextSetBit(deal + 1)) {
+            DealTimelineIndex.forEachActiveSegment(previousColumns, deal, addMinutes);
+        }
+        final BitSet changed = changedDeals();
+        for (int deal = changed.nextSetBit(0); deal >= 0; deal = changed.nextSetBit(deal + 1)) {
+            if (previousOrdinal[deal] >= 0) {
+                DealTimelineIndex.forEachActiveSegment(previousColumns, previousOrdinal[deal], addMinutes);
+            }
+            DealTimelineIndex.forEachActiveSegment(dealColumns, deal, addMinutes);
+        }
+        return minutes;
+    }
+
+    // Cheap common case: same restaurants and deals at the same positions
+    private static boolean matchByPosition(final List<Restaurant> previous, final List<Restaurant> next,
+                                           final int[] previousOrdinal, final Restaurant[] previousRestaurant) {
+        if (previous.size() != next.size()) {
+            return false;
+        }
+        int deal = 0;
+        for (int r = 0; r < next.size(); r++) {
+            final Restaurant previousOne = previous.get(r);
+            final Restaurant nextOne = next.get(r);
+            if (nextOne.getObjectId() == null || !nextOne.getObjectId().equals(previousOne.getObjectId())
+                || nextOne.getDeals().size() != previousOne.getDeals().size()) {
+                return false;
+            }
+            for (int d = 0; d < nextOne.getDeals().size(); d++) {
+                final String dealId = nextOne.getDeals().get(d).getObjectId();
+                if (dealId == null || !dealId.equals(previousOne.getDeals().get(d).getObjectId())) {
+                    return false;
+                }
+                previousOrdinal[deal] = deal;
+                previousRestaurant[deal] = previousOne;
+                deal++;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchById(final List<Restaurant> previous, final List<Restaurant> next,
+                                     final int[] previousOrdinal, final Restaurant[] previousRestaurant) {
+        if (!hasUniqueIds(previous) || !hasUniqueIds(next)) {
+            return false;
+        }
+        final Map<String, Integer> previousDeals = new HashMap<>();
+        final Map<String, Restaurant> previousRestaurants = new HashMap<>();
+        int ordinal = 0;
+        for (Restaurant restaurant : previous) {
+            previousRestaurants.put(restaurant.getObjectId(), restaurant);
+            for (Deals deal : restaurant.getDeals()) {
+                previousDeals.put(dealKey(restaurant, deal), ordinal++);
+            }
+        }
+        int deal = 0;
+        for (Restaurant restaurant : next) {
+            for (Deals nextDeal : restaurant.getDeals()) {
+                final Integer previousDeal = previousDeals.get(dealKey(restaurant, nextDeal));
+                previousOrdinal[deal] = previousDeal != null ? previousDeal : -1;
+                previousRestaurant[deal] = previousRestaurants.get(restaurant.getObjectId());
+                deal++;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasUniqueIds(final List<Restaurant> restaurants) {
+        final Set<String> restaurantIds = new HashSet<>();
+        for (Restaurant restaurant : restaurants) {
+            if (restaurant.getObjectId() == null || !restaurantIds.add(restaurant.getObjectId())) {
+                return false;
+            }
+            final Set<String> dealIds = new HashSet<>();
+            for (Deals deal : restaurant.getDeals()) {
+                if (deal.getObjectId() == null || !dealIds.add(deal.getObjectId())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String dealKey(final Restaurant restaurant, final Deals deal) {
+        return restaurant.getObjectId() + '\u0000' + deal.getObjectId();
+    }
+
+    // Everything but the deals, which are compared one by one
+    private static boolean sameRestaurantFields(final Restaurant previous, final Restaurant next) {
+        return Objects.equals(previous.getObjectId(), next.getObjectId())
+            && Objects.equals(previous.getName(), next.getName())
+            && Objects.equals(previous.getAddress1(), next.getAddress1())
+            && Objects.equals(previous.getSuburb(), next.getSuburb())
+            && Objects.equals(previous.getOpen(), next.getOpen())
+            && Objects.equals(previous.getClose(), next.getClose())
+            && Objects.equals(previous.getCuisines(), next.getCuisines())
+            && Objects.equals(previous.getImageLink(), next.getImageLink());
+    }
+
+    private static int countDeals(final List<Restaurant> restaurants) {
+        int deals = 0;
+        for (Restaurant restaurant : restaurants) {
+            deals += restaurant.getDeals().size();
+        }
+        return deals;
+    }
+}
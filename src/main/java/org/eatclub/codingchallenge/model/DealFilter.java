@@ -0,0 +1,26 @@
+package org.eatclub.codingchallenge.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DealFilter {
+
+  // Restaurant suburb, case insensitive
+  private String suburb;
+
+  // One of the restaurant cuisines, case insensitive
+  private String cuisine;
+
+  private Boolean dineIn;
+
+  private Boolean lightning;
+
+  // Lowest discount percentage, inclusive
+  private Integer minDiscount;
+
+  public boolean isEmpty() {
+    return suburb == null && cuisine == null && dineIn == null && lightning == null && minDiscount == null;
+  }
+}
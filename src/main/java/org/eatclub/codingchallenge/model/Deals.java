@@ -1,8 +1,10 @@
 package org.eatclub.codingchallenge.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Builder;
 import lombok.Data;
+import org.eatclub.codingchallenge.util.InterningStringDeserializer;
 
 @Data
 @Builder
@@ -15,6 +17,7 @@ public class Deals {
   private long qtyLeft;
 
   @JsonProperty("discount")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String discount;
 
   @JsonProperty("objectId")
@@ -24,14 +27,18 @@ public class Deals {
   private boolean dineIn;
 
   @JsonProperty("close")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String close;
 
   @JsonProperty("open")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String open;
 
   @JsonProperty("start")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String start;
 
   @JsonProperty("end")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String end;
 }
@@ -1,9 +1,11 @@
 package org.eatclub.codingchallenge.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.util.List;
 import lombok.Builder;
 import lombok.Data;
+import org.eatclub.codingchallenge.util.InterningStringDeserializer;
 
 @Data
 @Builder
@@ -22,17 +24,21 @@ public class Restaurant {
   private String name;
 
   @JsonProperty("suburb")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String suburb;
 
   @JsonProperty("close")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String close;
 
   @JsonProperty("objectId")
   private String objectId;
 
   @JsonProperty("open")
+  @JsonDeserialize(using = InterningStringDeserializer.class)
   private String open;
 
   @JsonProperty("cuisines")
+  @JsonDeserialize(contentUsing = InterningStringDeserializer.class)
   private List<String> cuisines;
 }
@@ -0,0 +1,132 @@
+package org.eatclub.codingchallenge.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.eatclub.codingchallenge.index.DealColumns;
+import org.eatclub.codingchallenge.index.DealDensityCurve;
+import org.eatclub.codingchallenge.index.DealFilterIndex;
+import org.eatclub.codingchallenge.index.DealMinuteHistogram;
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
+import org.eatclub.codingchallenge.index.SnapshotDiff;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One upstream restaurant feed together with the structures derived from it. A new snapshot is built every time the
+ * feed is fetched, so anything held here is invalidated together with the feed itself.
+ * <p>
+ * A snapshot is either built from scratch, its structures then being built on first use, or patched from the previous
+ * snapshot with a {@link SnapshotDiff}, in which case every structure is patched up front and the snapshot knows at
+ * which minutes of the day its active deals can differ from the previous one. Either way the diff with the previous
+ * snapshot, when there is one, is kept for whatever else reacts to the change of snapshot.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class RestaurantSnapshot {
+
+    // Seeded from the clock so versions keep increasing across restarts
+    private static final AtomicLong NEXT_VERSION = new AtomicLong(System.currentTimeMillis());
+    private static final long NOT_PATCHED = -1;
+
+    private final RestaurantResponse restaurantResponse;
+    // Identifies the snapshot in anything handed out to clients, e.g. pagination cursors
+    private final long version;
+    // Version of the snapshot this one was patched from, -1 when built from scratch
+    private final long patchedFromVersion;
+    // Deals added, removed or modified by all the patches since the last snapshot built from scratch
+    private final int changedDealsSinceRebuild;
+    @Getter(AccessLevel.NONE)
+    private final BitSet changedMinutes;
+    @Getter(AccessLevel.NONE)
+    private final PatchedStructures patched;
+    // Version of the snapshot the diff is relative to, -1 without a diff
+    @Getter(AccessLevel.NONE)
+    private final long diffFromVersion;
+    @Getter(AccessLevel.NONE)
+    private final SnapshotDiff diff;
+
+    // Built on first use and kept for the lifetime of the snapshot. A feed the index can't be built from only fails
+    // the lookups that need it, as the per request scan did.
+    @Getter(lazy = true)
+    private final DealColumns dealColumns = patched != null
+        ? patched.dealColumns()
+        : DealColumns.build(restaurantResponse.getRestaurants());
+    @Getter(lazy = true)
+    private final DealTimelineIndex dealTimelineIndex = patched != null
+        ? patched.dealTimelineIndex()
+        : DealTimelineIndex.build(getDealColumns());
+    @Getter(lazy = true)
+    private final DealFilterIndex dealFilterIndex = patched != null
+        ? patched.dealFilterIndex()
+        : DealFilterIndex.build(getDealColumns());
+    @Getter(lazy = true)
+    private final DealMinuteHistogram dealMinuteHistogram = patched != null
+        ? patched.dealMinuteHistogram()
+        : DealMinuteHistogram.build(getDealColumns());
+    @Getter(lazy = true)
+    private final DealDensityCurve dealDensityCurve = patched != null
+        ? patched.dealDensityCurve()
+        : DealDensityCurve.build(getDealColumns());
+
+    public static RestaurantSnapshot of(final RestaurantResponse restaurantResponse) {
+        return new RestaurantSnapshot(restaurantResponse, NEXT_VERSION.incrementAndGet(), NOT_PATCHED, 0, null, null,
+            NOT_PATCHED, null);
+    }
+
+    /**
+     * Snapshot of the next feed built from scratch, keeping its diff with the previous snapshot.
+     */
+    public static RestaurantSnapshot of(final RestaurantSnapshot previous,
+                                        final RestaurantResponse restaurantResponse, final SnapshotDiff diff) {
+        return new RestaurantSnapshot(restaurantResponse, NEXT_VERSION.incrementAndGet(), NOT_PATCHED, 0, null, null,
+            previous.getVersion(), diff);
+    }
+
+    /**
+     * Snapshot of the next feed with every structure patched from the ones of the previous snapshot, building any of
+     * those that were not built yet. Throws whatever building the previous structures throws.
+     */
+    public static RestaurantSnapshot patch(final RestaurantSnapshot previous,
+                                           final RestaurantResponse restaurantResponse, final SnapshotDiff diff) {
+        final DealColumns previousColumns = previous.getDealColumns();
+        final DealColumns dealColumns = DealColumns.patch(previousColumns, restaurantResponse.getRestaurants(), diff);
+        final PatchedStructures patched = new PatchedStructures(dealColumns,
+            DealTimelineIndex.patch(previous.getDealTimelineIndex(), dealColumns, diff),
+            DealFilterIndex.patch(previous.getDealFilterIndex(), previousColumns, dealColumns, diff),
+            DealMinuteHistogram.patch(previous.getDealMinuteHistogram(), previousColumns, dealColumns, diff),
+            DealDensityCurve.patch(previous.getDealDensityCurve(), previousColumns, dealColumns, diff));
+        return new RestaurantSnapshot(restaurantResponse, NEXT_VERSION.incrementAndGet(), previous.getVersion(),
+            previous.getChangedDealsSinceRebuild() + diff.getChangedCount(),
+            diff.changedMinutes(previousColumns, dealColumns), patched, previous.getVersion(), diff);
+    }
+
+    /**
+     * Whether this snapshot was patched from the snapshot with the given version.
+     */
+    public boolean isPatchOf(final long previousVersion) {
+        return patchedFromVersion != NOT_PATCHED && patchedFromVersion == previousVersion;
+    }
+
+    /**
+     * The diff of this snapshot's feed with the one of the snapshot with the given version, {@code null} when this
+     * snapshot was not built or patched from that one.
+     */
+    public SnapshotDiff diffFrom(final long previousVersion) {
+        return diff != null && diffFromVersion == previousVersion ? diff : null;
+    }
+
+    /**
+     * Whether the deals active at the minute of the day, and everything about them, are the same as in the snapshot
+     * this one was patched from. Always {@code false} for a snapshot built from scratch.
+     */
+    public boolean isUnchangedFromPreviousAt(final int minuteOfDay) {
+        return changedMinutes != null && !changedMinutes.get(minuteOfDay);
+    }
+
+    private record PatchedStructures(DealColumns dealColumns, DealTimelineIndex dealTimelineIndex,
+                                     DealFilterIndex dealFilterIndex, DealMinuteHistogram dealMinuteHistogram,
+                                     DealDensityCurve dealDensityCurve) {
+    }
+}
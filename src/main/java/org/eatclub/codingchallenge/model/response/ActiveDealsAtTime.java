@@ -0,0 +1,22 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalTime;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ActiveDealsAtTime {
+
+  @JsonProperty("timeOfDay")
+  private LocalTime timeOfDay;
+
+  // Positions in ActiveDealsBatchResponse.deals of the deals active at timeOfDay
+  @JsonProperty("dealIndexes")
+  private int[] dealIndexes;
+
+  @JsonProperty("totalCount")
+  private Integer totalCount;
+}
@@ -0,0 +1,20 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ActiveDealsBatchResponse {
+
+  // Every deal active at any of the times, once, in feed order
+  @JsonProperty("deals")
+  private List<DealsItem> deals;
+
+  // One entry per requested time, in the requested order
+  @JsonProperty("times")
+  private List<ActiveDealsAtTime> times;
+}
@@ -1,5 +1,6 @@
 package org.eatclub.codingchallenge.model.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
@@ -12,4 +13,11 @@ public class ActiveDealsResponse {
 
   @JsonProperty("deals")
   private List<DealsItem> deals;
+
+  @JsonProperty("totalCount")
+  private Integer totalCount;
+
+  @JsonProperty("nextCursor")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String nextCursor;
 }
@@ -0,0 +1,25 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalTime;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DealDensityBucket {
+
+  @JsonProperty("start")
+  private LocalTime start;
+
+  // Most deals active at any whole minute of the bucket
+  @JsonProperty("activeDeals")
+  private Integer activeDeals;
+
+  // Most quantity left across the active deals at any whole minute of the bucket, only when asked for
+  @JsonProperty("qtyLeft")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Long qtyLeft;
+}
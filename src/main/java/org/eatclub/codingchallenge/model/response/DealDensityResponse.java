@@ -0,0 +1,18 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DealDensityResponse {
+
+  @JsonProperty("bucketMinutes")
+  private Integer bucketMinutes;
+
+  @JsonProperty("buckets")
+  private List<DealDensityBucket> buckets;
+}
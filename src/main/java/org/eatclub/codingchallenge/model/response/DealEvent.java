@@ -0,0 +1,35 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalTime;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class DealEvent {
+
+  // deal-added, deal-removed, qty-changed, activated or expired
+  @JsonProperty("type")
+  private String type;
+
+  // Minute of the day the event was generated at
+  @JsonProperty("timeOfDay")
+  private LocalTime timeOfDay;
+
+  @JsonProperty("snapshotVersion")
+  private long snapshotVersion;
+
+  // The deal as it is now, or as it was last seen for deal-removed
+  @JsonProperty("deal")
+  private DealsItem deal;
+
+  // Whether the deal is active at timeOfDay
+  @JsonProperty("active")
+  private boolean active;
+
+  // Only set for qty-changed
+  @JsonProperty("previousQtyLeft")
+  private Long previousQtyLeft;
+}
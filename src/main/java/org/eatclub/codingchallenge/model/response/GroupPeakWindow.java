@@ -0,0 +1,25 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalTime;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class GroupPeakWindow {
+
+  // Trimmed and lower cased, as suburbs and cuisines are matched case insensitively
+  @JsonProperty("group")
+  private String group;
+
+  @JsonProperty("peakTimeStart")
+  private LocalTime peakTimeStart;
+
+  @JsonProperty("peakTimeEnd")
+  private LocalTime peakTimeEnd;
+
+  @JsonProperty("activeDeals")
+  private Integer activeDeals;
+}
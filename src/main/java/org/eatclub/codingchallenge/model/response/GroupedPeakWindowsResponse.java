@@ -0,0 +1,21 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class GroupedPeakWindowsResponse {
+
+  @JsonProperty("groupBy")
+  private String groupBy;
+
+  @JsonProperty("totalGroups")
+  private Integer totalGroups;
+
+  @JsonProperty("groups")
+  private List<GroupPeakWindow> groups;
+}
@@ -0,0 +1,21 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.LocalTime;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PeakWindow {
+
+  @JsonProperty("peakTimeStart")
+  private LocalTime peakTimeStart;
+
+  @JsonProperty("peakTimeEnd")
+  private LocalTime peakTimeEnd;
+
+  @JsonProperty("activeDeals")
+  private Integer activeDeals;
+}
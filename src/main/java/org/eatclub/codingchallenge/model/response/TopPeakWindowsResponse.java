@@ -0,0 +1,15 @@
+package org.eatclub.codingchallenge.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TopPeakWindowsResponse {
+
+  @JsonProperty("windows")
+  private List<PeakWindow> windows;
+}
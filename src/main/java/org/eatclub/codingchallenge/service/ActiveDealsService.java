@@ -1,10 +1,28 @@
 package org.eatclub.codingchallenge.service;
 
+import org.eatclub.codingchallenge.model.DealFilter;
+import org.eatclub.codingchallenge.model.response.ActiveDealsBatchResponse;
 import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
+import org.eatclub.codingchallenge.model.response.DealsItem;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalTime;
+import java.util.List;
 
 public interface ActiveDealsService {
   Mono<ActiveDealsResponse> getActiveDealsAt(LocalTime timeOfDay);
+
+  // Deals matching the filter, at most limit of them (all remaining when null) starting at the cursor (the first deal
+  // when null)
+  Mono<ActiveDealsResponse> getActiveDealsPageAt(LocalTime timeOfDay, DealFilter filter, String cursor, Integer limit);
+
+  // Same deals in the same order, each one mapped only when it is requested
+  Flux<DealsItem> streamActiveDealsAt(LocalTime timeOfDay, DealFilter filter);
+
+  // Deals matching the filter that are active at any instant from `from` to `to`, both included
+  Mono<ActiveDealsResponse> getActiveDealsBetween(LocalTime from, LocalTime to, DealFilter filter);
+
+  // Deals matching the filter at each of the times, every deal mapped once however many times it is active at
+  Mono<ActiveDealsBatchResponse> getActiveDealsAt(List<LocalTime> timesOfDay, DealFilter filter);
 }
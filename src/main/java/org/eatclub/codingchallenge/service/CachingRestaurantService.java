@@ -1,46 +1,579 @@
 package org.eatclub.codingchallenge.service;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eatclub.codingchallenge.index.SnapshotDiff;
 import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.util.RestaurantFeedDecoder;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
+/**
+ * Serves the upstream restaurant feed from memory.
+ * <p>
+ * Only the first load is done on a request. From then on the next snapshot is fetched in the background
+ * {@code refreshAhead} seconds (less up to {@code refreshJitter} seconds) before the current one reaches
+ * {@code cacheTTL}, and requests keep getting the current snapshot until the next one is decoded and indexed.
+ * <p>
+ * Refreshes are conditional on the validators of the current feed. A {@code 304 Not Modified}, or a body with the
+ * same SHA-256 as the current one, keeps the current snapshot, so nothing is re-indexed and no refresh event is
+ * published.
+ * <p>
+ * Fetches are timed by outcome ({@code upstream.restaurants.fetch}), as are the decode and index stages of a changed
+ * feed ({@code upstream.restaurants.decode}, {@code upstream.restaurants.index}). Snapshot lookups are counted as hits
+ * or misses, background refreshes by outcome, and the size of the current snapshot is exposed as gauges.
+ * <p>
+ * A changed feed is diffed against the current one by restaurant and deal {@code objectId}. While the deals added,
+ * removed or modified since the last snapshot built from scratch stay within {@code patchMaxChangeRatio} of the deals,
+ * the new snapshot's indexes are patched from the current ones rather than rebuilt, so indexing time follows the
+ * churn rather than the size of the feed ({@code upstream.restaurants.index} is tagged {@code full} or
+ * {@code patched}, changed deals are counted in {@code upstream.restaurants.deals.changed}).
+ * <p>
+ * Every fetch attempt is bounded by {@code attemptTimeoutMillis} and goes through the {@code upstreamRestaurants}
+ * Resilience4j circuit breaker, failed attempts are retried with jittered exponential backoff as configured under
+ * {@code resilience4j.retry.instances.upstreamRestaurants}. Once a snapshot is loaded upstream failures never reach
+ * requests: the last good snapshot keeps being served and its age, the time since upstream last confirmed it, is
+ * exposed as {@code restaurants.snapshot.age}. Before that, a failed load isn't cached so the next request tries
+ * again, or fails fast while the circuit is open.
+ */
 @RequiredArgsConstructor
 @Slf4j
 @Service
 public class CachingRestaurantService implements RestaurantService {
 
+    private static final Duration CACHE_FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+    private static final long MIN_REFRESH_DELAY_MILLIS = 1000;
+    static final String UPSTREAM_RESILIENCE_NAME = "upstreamRestaurants";
+
     private final WebClient webClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RestaurantFeedDecoder restaurantFeedDecoder;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final RetryRegistry retryRegistry;
     @Value("${upstream.restaurants.url}")
     private String restaurantsUrl;
     @Value("${upstream.restaurants.cacheTTL}")
     private int cacheTTL;
-    private Mono<RestaurantResponse> cachedRestaurantResponse;
+    @Value("${upstream.restaurants.refreshAhead:10}")
+    private int refreshAhead;
+    @Value("${upstream.restaurants.refreshJitter:5}")
+    private int refreshJitter;
+    @Value("${upstream.restaurants.streamingDecode:false}")
+    private boolean streamingDecode;
+    @Value("${upstream.restaurants.patchMaxChangeRatio:0.1}")
+    private double patchMaxChangeRatio;
+    @Value("${upstream.restaurants.maxBytes:67108864}")
+    private int maxBytes;
+    @Value("${upstream.restaurants.attemptTimeoutMillis:10000}")
+    private long attemptTimeoutMillis;
+
+    // Cold, every subscription fetches the feed and decodes and indexes it unless it is unchanged
+    private Mono<UpstreamFeed> upstreamFeed;
+    private Mono<RestaurantSnapshot> initialSnapshot;
+    private volatile UpstreamFeed currentFeed;
+    // Kept so clients paging through the previous snapshot can finish after a refresh
+    private volatile RestaurantSnapshot previousSnapshot;
+    private volatile Disposable scheduledRefresh;
+    private volatile boolean refreshStopped;
+
+    private Counter notModifiedCounter;
+    private Counter contentUnchangedCounter;
+    private Counter savedBytesCounter;
+    private Counter savedCpuCounter;
+    private Counter snapshotHitCounter;
+    private Counter snapshotMissCounter;
 
-    // Cache the initial response mono for reuse until cache expires
     @PostConstruct
     public void initCache() {
-        this.cachedRestaurantResponse = webClient
-            .get()
-            .uri(restaurantsUrl)
-            .retrieve()
-            .onStatus(status -> status.is4xxClientError() || status.is5xxServerError(),
-                response -> Mono.error(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error")))
-            .bodyToMono(RestaurantResponse.class)
-            .cache(Duration.ofSeconds(cacheTTL))
-            .doOnNext(response -> log.debug("Fetched {} restaurants from upstream service", response.getRestaurants().size()));
+        this.notModifiedCounter = Counter.builder("upstream.restaurants.unchanged")
+            .description("Upstream refreshes that kept the current snapshot")
+            .tag("reason", "not_modified")
+            .register(meterRegistry);
+        this.contentUnchangedCounter = Counter.builder("upstream.restaurants.unchanged")
+            .description("Upstream refreshes that kept the current snapshot")
+            .tag("reason", "content_hash")
+            .register(meterRegistry);
+        this.savedBytesCounter = Counter.builder("upstream.restaurants.saved.bytes")
+            .description("Response body bytes not downloaded thanks to 304 responses")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.savedCpuCounter = Counter.builder("upstream.restaurants.saved.cpu")
+            .description("Estimated decode and index time skipped for unchanged upstream feeds")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+        this.snapshotHitCounter = Counter.builder("restaurants.snapshot.requests")
+            .description("Snapshot lookups, misses wait for the first upstream load")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.snapshotMissCounter = Counter.builder("restaurants.snapshot.requests")
+            .description("Snapshot lookups, misses wait for the first upstream load")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        registerSnapshotGauge("restaurants.snapshot.restaurants", "Restaurants in the current snapshot", null,
+            feed -> feed.snapshot().getRestaurantResponse().getRestaurants().size());
+        registerSnapshotGauge("restaurants.snapshot.deals", "Deals in the current snapshot", null,
+            feed -> feed.snapshot().getRestaurantResponse().getRestaurants().stream()
+                .mapToLong(restaurant -> restaurant.getDeals().size())
+                .sum());
+        registerSnapshotGauge("restaurants.snapshot.bytes", "Upstream body size of the current snapshot", "bytes",
+            UpstreamFeed::contentLength);
+        registerSnapshotGauge("restaurants.snapshot.age", "Time since upstream last confirmed the current snapshot",
+            "seconds", feed -> (now() - feed.fetchedAtMillis()) / 1000.0);
+
+        // Retries go through the circuit breaker one attempt at a time, so an open circuit also stops them. Attempts
+        // end with the body read, decoding and indexing a changed feed is neither timed out nor retried.
+        this.upstreamFeed = Mono.defer(this::fetchFeed)
+            .timeout(Duration.ofMillis(attemptTimeoutMillis))
+            .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(UPSTREAM_RESILIENCE_NAME)))
+            .transformDeferred(RetryOperator.of(retryRegistry.retry(UPSTREAM_RESILIENCE_NAME)))
+            // Keep decoding and indexing off the HTTP client event loop
+            .publishOn(Schedulers.parallel())
+            .map(FetchedFeed::build)
+            .doOnDiscard(FetchedFeed.class, FetchedFeed::release);
+
+        // Requests share the first load, a failed first load isn't cached, the circuit breaker guards upstream
+        this.initialSnapshot = upstreamFeed
+            .doOnNext(feed -> {
+                publishFeed(feed);
+                scheduleRefresh();
+            })
+            .map(UpstreamFeed::snapshot)
+            .cache(snapshot -> CACHE_FOREVER, error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    @PreDestroy
+    public void stopRefresh() {
+        this.refreshStopped = true;
+        final Disposable refresh = this.scheduledRefresh;
+        if (refresh != null) {
+            refresh.dispose();
+        }
     }
 
     public Mono<RestaurantResponse> getRestaurants() {
-        return cachedRestaurantResponse;
+        return getSnapshot().map(RestaurantSnapshot::getRestaurantResponse);
+    }
+
+    public Mono<RestaurantSnapshot> getSnapshot() {
+        final UpstreamFeed feed = this.currentFeed;
+        if (feed != null) {
+            snapshotHitCounter.increment();
+            return Mono.just(feed.snapshot());
+        }
+        snapshotMissCounter.increment();
+        return initialSnapshot;
+    }
+
+    public Mono<RestaurantSnapshot> findSnapshot(final long version) {
+        final UpstreamFeed feed = this.currentFeed;
+        if (feed != null && feed.snapshot().getVersion() == version) {
+            return Mono.just(feed.snapshot());
+        }
+        final RestaurantSnapshot previous = this.previousSnapshot;
+        return previous != null && previous.getVersion() == version ? Mono.just(previous) : Mono.empty();
+    }
+
+    /**
+     * The snapshot being served and how long ago upstream last confirmed it, empty until the first load.
+     */
+    public Optional<SnapshotStatus> getSnapshotStatus() {
+        final UpstreamFeed feed = this.currentFeed;
+        if (feed == null) {
+            return Optional.empty();
+        }
+        final Duration age = Duration.ofMillis(Math.max(0, now() - feed.fetchedAtMillis()));
+        return Optional.of(new SnapshotStatus(feed.snapshot().getVersion(), age,
+            age.compareTo(Duration.ofSeconds(cacheTTL)) > 0));
+    }
+
+    private Mono<FetchedFeed> fetchFeed() {
+        final UpstreamFeed current = this.currentFeed;
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        WebClient.RequestHeadersSpec<?> request = webClient.get().uri(restaurantsUrl);
+        if (current != null && current.etag() != null) {
+            request = request.ifNoneMatch(current.etag());
+        }
+        if (current != null && current.lastModified() != null) {
+            request = request.ifModifiedSince(current.lastModified());
+        }
+
+        return request
+            .retrieve()
+            .onStatus(HttpStatusCode::isError, CachingRestaurantService::upstreamError)
+            .toEntityFlux(DataBuffer.class)
+            .flatMap(response -> {
+                if (!response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                    return readFeed(current, response);
+                }
+                final Mono<Void> discardBody = response.getBody().doOnNext(DataBufferUtils::release).then();
+                // Without a current feed no validators were sent, so there is nothing a 304 can refer to
+                return current != null
+                    ? discardBody.then(Mono.fromCallable(() -> FetchedFeed.unchanged(notModified(current,
+                        response.getHeaders()))))
+                    : discardBody.then(Mono.error(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Upstream answered 304 without a cached feed")));
+            })
+            .doOnNext(fetched -> sample.stop(fetchTimer(fetched.isUnchanged() ? "unchanged" : "updated")))
+            .doOnError(error -> sample.stop(fetchTimer("error")))
+            // Attempts that time out are cancelled
+            .doOnCancel(() -> sample.stop(fetchTimer("cancelled")));
+    }
+
+    private Mono<FetchedFeed> readFeed(final UpstreamFeed current, final ResponseEntity<Flux<DataBuffer>> response) {
+        final ContentDigest digest = new ContentDigest();
+        final Flux<DataBuffer> body = response.getBody().doOnNext(digest::update);
+        final HttpHeaders headers = response.getHeaders();
+
+        // The streaming decode only ever holds one restaurant's tokens, so an unchanged body has already been
+        // decoded by the time its hash is known. The buffered decode checks the hash first and skips decoding.
+        if (streamingDecode) {
+            // Restaurants are decoded as their bytes arrive, so this includes reading the body
+            final Timer.Sample decodeSample = Timer.start(meterRegistry);
+            // Decoded restaurants are all kept, so the body is bounded as it streams in like the buffered one
+            final Flux<DataBuffer> limitedBody = body.handle((buffer, sink) -> {
+                if (digest.length() > maxBytes) {
+                    DataBufferUtils.release(buffer);
+                    sink.error(new DataBufferLimitException("Upstream restaurants exceed " + maxBytes + " bytes"));
+                } else {
+                    sink.next(buffer);
+                }
+            });
+            return restaurantFeedDecoder.decode(limitedBody)
+                .collectList()
+                .map(restaurants -> {
+                    decodeSample.stop(decodeTimer("streaming"));
+                    final byte[] contentHash = digest.finish();
+                    return current != null && current.hasContentHash(contentHash)
+                        ? FetchedFeed.unchanged(contentUnchanged(current, headers))
+                        : FetchedFeed.changed(null, () -> buildFeed(current,
+                            RestaurantResponse.builder().restaurants(restaurants).build(), headers, contentHash,
+                            digest.length(), 0));
+                });
+        }
+        return DataBufferUtils.join(body, maxBytes)
+            .map(document -> {
+                final byte[] contentHash = digest.finish();
+                if (current != null && current.hasContentHash(contentHash)) {
+                    DataBufferUtils.release(document);
+                    return FetchedFeed.unchanged(contentUnchanged(current, headers));
+                }
+                return FetchedFeed.changed(document, () -> {
+                    final long startNanos = System.nanoTime();
+                    final RestaurantResponse restaurantResponse = restaurantFeedDecoder.decodeDocument(document);
+                    final long decodeNanos = System.nanoTime() - startNanos;
+                    decodeTimer("buffered").record(decodeNanos, TimeUnit.NANOSECONDS);
+                    return buildFeed(current, restaurantResponse, headers, contentHash, digest.length(), decodeNanos);
+                });
+            });
+    }
+
+    private UpstreamFeed buildFeed(final UpstreamFeed current, final RestaurantResponse restaurantResponse,
+                                   final HttpHeaders headers, final byte[] contentHash, final long contentLength,
+                                   final long decodeNanos) {
+        log.debug("Fetched {} restaurants from upstream service", restaurantResponse.getRestaurants().size());
+        final long startNanos = System.nanoTime();
+        final RestaurantSnapshot snapshot = current != null
+            ? patchOrBuild(current.snapshot(), restaurantResponse)
+            : RestaurantSnapshot.of(restaurantResponse);
+        final boolean patched = current != null && snapshot.isPatchOf(current.snapshot().getVersion());
+        if (!patched) {
+            buildIndexes(snapshot);
+        }
+        final long indexNanos = System.nanoTime() - startNanos;
+        indexTimer(patched ? "patched" : "full").record(indexNanos, TimeUnit.NANOSECONDS);
+        return new UpstreamFeed(snapshot, headers.getETag(), lastModified(headers), contentHash, contentLength,
+            decodeNanos + indexNanos, now());
+    }
+
+    // Keeps the upstream status, only server errors are retried
+    private static Mono<? extends Throwable> upstreamError(final ClientResponse response) {
+        final HttpStatusCode status = response.statusCode();
+        return Mono.error(status.is5xxServerError()
+            ? new HttpServerErrorException(status, "Upstream server error")
+            : new HttpClientErrorException(status, "Upstream client error"));
+    }
+
+    private RestaurantSnapshot patchOrBuild(final RestaurantSnapshot previous,
+                                            final RestaurantResponse restaurantResponse) {
+        final SnapshotDiff diff = SnapshotDiff.between(previous.getRestaurantResponse().getRestaurants(),
+            restaurantResponse.getRestaurants());
+        if (diff == null) {
+            log.debug("Upstream restaurants can't be matched by id with the current snapshot, rebuilding it");
+            return RestaurantSnapshot.of(restaurantResponse);
+        }
+        changedDealsCounter("added").increment(diff.getAddedCount());
+        changedDealsCounter("removed").increment(diff.getRemovedCount());
+        changedDealsCounter("modified").increment(diff.getModifiedCount());
+
+        // Patched trees keep the centers of the last full build, so churn is bounded since then and not per refresh
+        final int changedDeals = previous.getChangedDealsSinceRebuild() + diff.getChangedCount();
+        if (changedDeals > patchMaxChangeRatio * diff.getDealCount()) {
+            log.debug("{} deals changed since the last full build, rebuilding the snapshot", changedDeals);
+            return RestaurantSnapshot.of(previous, restaurantResponse, diff);
+        }
+        try {
+            return RestaurantSnapshot.patch(previous, restaurantResponse, diff);
+        } catch (RuntimeException e) {
+            log.warn("Unable to patch the current snapshot, rebuilding it", e);
+            return RestaurantSnapshot.of(previous, restaurantResponse, diff);
+        }
+    }
+
+    private UpstreamFeed notModified(final UpstreamFeed current, final HttpHeaders headers) {
+        log.debug("Upstream restaurants not modified, keeping the current snapshot");
+        notModifiedCounter.increment();
+        savedBytesCounter.increment(current.contentLength());
+        savedCpuCounter.increment(current.processingNanos() / 1e9);
+        return current.revalidated(headers);
+    }
+
+    private UpstreamFeed contentUnchanged(final UpstreamFeed current, final HttpHeaders headers) {
+        log.debug("Upstream restaurants content unchanged, keeping the current snapshot");
+        contentUnchangedCounter.increment();
+        savedCpuCounter.increment(current.processingNanos() / 1e9);
+        return current.revalidated(headers);
+    }
+
+    private void scheduleRefresh() {
+        if (refreshStopped) {
+            return;
+        }
+        this.scheduledRefresh = Mono.delay(nextRefreshDelay())
+            .then(upstreamFeed)
+            .doOnNext(feed -> {
+                refreshCounter(isUnchanged(this.currentFeed, feed) ? "unchanged" : "updated").increment();
+                publishFeed(feed);
+            })
+            .doOnError(error -> {
+                refreshCounter("failed").increment();
+                log.warn("Background refresh of restaurants failed, keeping the current snapshot {}s old",
+                    getSnapshotStatus().map(status -> status.age().toSeconds()).orElse(0L), error);
+            })
+            .onErrorComplete()
+            .doFinally(signal -> {
+                if (signal != SignalType.CANCEL) {
+                    scheduleRefresh();
+                }
+            })
+            .subscribe();
+    }
+
+    private Duration nextRefreshDelay() {
+        final long jitterMillis = ThreadLocalRandom.current().nextLong(refreshJitter * 1000L + 1);
+        final long delayMillis = (cacheTTL - refreshAhead) * 1000L - jitterMillis;
+        return Duration.ofMillis(Math.max(MIN_REFRESH_DELAY_MILLIS, delayMillis));
+    }
+
+    private void publishFeed(final UpstreamFeed feed) {
+        final UpstreamFeed previous = this.currentFeed;
+        // A revalidated feed keeps its snapshot, listeners have already seen it
+        if (previous != null && previous.snapshot() == feed.snapshot()) {
+            this.currentFeed = feed;
+            return;
+        }
+        if (previous != null) {
+            this.previousSnapshot = previous.snapshot();
+        }
+        this.currentFeed = feed;
+        eventPublisher.publishEvent(new RestaurantSnapshotRefreshedEvent(feed.snapshot()));
     }
 
+    private void buildIndexes(final RestaurantSnapshot snapshot) {
+        try {
+            snapshot.getDealTimelineIndex();
+        } catch (RuntimeException e) {
+            // Lookups that need the index report the failure, other endpoints can still use the snapshot
+            log.warn("Unable to index fetched restaurants", e);
+        }
+    }
+
+    private Timer fetchTimer(final String outcome) {
+        return Timer.builder("upstream.restaurants.fetch")
+            .description("Time of one upstream fetch attempt up to the end of the body, streamed decoding included")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private Timer decodeTimer(final String mode) {
+        return Timer.builder("upstream.restaurants.decode")
+            .description("Time to decode the upstream feed")
+            .tag("mode", mode)
+            .register(meterRegistry);
+    }
+
+    private Timer indexTimer(final String mode) {
+        return Timer.builder("upstream.restaurants.index")
+            .description("Time to build or patch the snapshot and deal indexes of a changed upstream feed")
+            .tag("mode", mode)
+            .register(meterRegistry);
+    }
+
+    private Counter changedDealsCounter(final String change) {
+        return Counter.builder("upstream.restaurants.deals.changed")
+            .description("Deals added, removed or modified by upstream refreshes")
+            .tag("change", change)
+            .register(meterRegistry);
+    }
+
+    private Counter refreshCounter(final String outcome) {
+        return Counter.builder("upstream.restaurants.refreshes")
+            .description("Background refreshes of the upstream feed")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private void registerSnapshotGauge(final String name, final String description, final String baseUnit,
+                                       final ToDoubleFunction<UpstreamFeed> value) {
+        Gauge.builder(name, this, service -> {
+                final UpstreamFeed feed = service.currentFeed;
+                return feed != null ? value.applyAsDouble(feed) : Double.NaN;
+            })
+            .description(description)
+            .baseUnit(baseUnit)
+            .register(meterRegistry);
+    }
+
+    // Scheduler time, so that tests on virtual time see snapshots age
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isUnchanged(final UpstreamFeed current, final UpstreamFeed feed) {
+        return current != null && current.snapshot() == feed.snapshot();
+    }
+
+    private static ZonedDateTime lastModified(final HttpHeaders headers) {
+        final long lastModified = headers.getLastModified();
+        return lastModified < 0 ? null : ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneOffset.UTC);
+    }
+
+    /**
+     * Version of the snapshot being served, time since upstream last confirmed it and whether that is over the TTL.
+     */
+    public record SnapshotStatus(long version, Duration age, boolean stale) {
+    }
+
+    /**
+     * A decoded and indexed upstream response along with what is needed to revalidate it.
+     */
+    /**
+     * What one fetch attempt read from upstream. A changed feed is decoded, when buffered, and indexed by
+     * {@link #build} once the attempt is over, the buffered body is held until then and released if the feed is never
+     * built.
+     */
+    private record FetchedFeed(UpstreamFeed feed, DataBuffer document, Supplier<UpstreamFeed> builder) {
+
+        static FetchedFeed unchanged(final UpstreamFeed feed) {
+            return new FetchedFeed(feed, null, null);
+        }
+
+        static FetchedFeed changed(final DataBuffer document, final Supplier<UpstreamFeed> builder) {
+            return new FetchedFeed(null, document, builder);
+        }
+
+        boolean isUnchanged() {
+            return builder == null;
+        }
+
+        UpstreamFeed build() {
+            return isUnchanged() ? feed : builder.get();
+        }
+
+        void release() {
+            if (document != null) {
+                DataBufferUtils.release(document);
+            }
+        }
+    }
+
+    private record UpstreamFeed(RestaurantSnapshot snapshot, String etag, ZonedDateTime lastModified,
+                                byte[] contentHash, long contentLength, long processingNanos, long fetchedAtMillis) {
+
+        boolean hasContentHash(final byte[] otherContentHash) {
+            return MessageDigest.isEqual(contentHash, otherContentHash);
+        }
+
+        UpstreamFeed revalidated(final HttpHeaders headers) {
+            final String newEtag = headers.getETag();
+            final ZonedDateTime newLastModified = CachingRestaurantService.lastModified(headers);
+            return new UpstreamFeed(snapshot,
+                newEtag != null ? newEtag : etag,
+                newLastModified != null ? newLastModified : lastModified,
+                contentHash, contentLength, processingNanos, now());
+        }
+    }
+
+    private static final class ContentDigest {
+        private final MessageDigest digest;
+        private long length;
+
+        private ContentDigest() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        void update(final DataBuffer buffer) {
+            length += buffer.readableByteCount();
+            // Byte buffer views leave the read position of the data buffer alone for the decoder
+            try (DataBuffer.ByteBufferIterator byteBuffers = buffer.readableByteBuffers()) {
+                while (byteBuffers.hasNext()) {
+                    final ByteBuffer byteBuffer = byteBuffers.next();
+                    digest.update(byteBuffer);
+                }
+            }
+        }
+
+        byte[] finish() {
+            return digest.digest();
+        }
+
+        long length() {
+            return length;
+        }
+    }
 }
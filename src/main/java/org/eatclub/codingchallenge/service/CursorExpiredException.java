@@ -0,0 +1,11 @@
+package org.eatclub.codingchallenge.service;
+
+/**
+ * The snapshot a pagination cursor was issued for is no longer held, the client has to start from the first page.
+ */
+public class CursorExpiredException extends RuntimeException {
+
+    public CursorExpiredException(final long snapshotVersion) {
+        super("Snapshot " + snapshotVersion + " is no longer available");
+    }
+}
@@ -0,0 +1,11 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.response.DealDensityResponse;
+import reactor.core.publisher.Mono;
+
+public interface DealDensityService {
+
+  // Active deals across the day in buckets of bucketMinutes (1 to 1440) starting at midnight, with the total quantity
+  // left when includeQtyLeft is set
+  Mono<DealDensityResponse> getDealDensity(int bucketMinutes, boolean includeQtyLeft);
+}
@@ -0,0 +1,12 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.response.DealEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.Set;
+
+public interface DealEventService {
+
+  // Deal events from now on, only those of the given types (all when empty). Never completes.
+  Flux<DealEvent> subscribe(Set<String> types);
+}
@@ -2,19 +2,28 @@ package org.eatclub.codingchallenge.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.eatclub.codingchallenge.model.Deals;
-import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
+import org.eatclub.codingchallenge.model.DealFilter;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.ActiveDealsAtTime;
+import org.eatclub.codingchallenge.model.response.ActiveDealsBatchResponse;
 import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
 import org.eatclub.codingchallenge.model.response.DealsItem;
+import org.eatclub.codingchallenge.util.ActiveDealsCursor;
 import org.eatclub.codingchallenge.util.ActiveDealsResponseMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.ObjectUtils;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-
-import static org.eatclub.codingchallenge.util.Constants.TIME_FORMATTER;
+import java.util.Locale;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -23,56 +32,168 @@ public class DefaultActiveDealsService implements ActiveDealsService {
 
     private final RestaurantService restaurantService;
     private final ActiveDealsResponseMapper activeDealsResponseMapper;
+    @Value("${active-deals.batch.maxTimes:288}")
+    private int maxBatchTimes;
 
     @Override
     public Mono<ActiveDealsResponse> getActiveDealsAt(LocalTime timeOfDay) {
 
-        return restaurantService.getRestaurants().map(restaurantResponse -> {
-            final List<DealsItem> dealsItemList = restaurantResponse.getRestaurants()
-                .stream()
-                .flatMap(restaurant -> restaurant.getDeals()
-                    .stream()
-                    .filter(deal -> isDealActive(restaurant, deal, timeOfDay))
-                    .map(activeDeal -> this.activeDealsResponseMapper.mapToDealsItem(restaurant, activeDeal)))
-                .toList();
-            return ActiveDealsResponse.builder().deals(dealsItemList).build();
+        return restaurantService.getSnapshot().map(snapshot -> {
+            // The timeline index applies the restaurant open/close, quantity and deal start/end rules, only the
+            // active deals are visited here
+            final DealTimelineIndex dealTimelineIndex = snapshot.getDealTimelineIndex();
+            return this.activeDealsResponseMapper.mapToActiveDealsResponse(
+                dealTimelineIndex, dealTimelineIndex.activeDealsAt(timeOfDay));
+        });
+    }
+
+    @Override
+    public Mono<ActiveDealsResponse> getActiveDealsPageAt(LocalTime timeOfDay, DealFilter filter, String cursor,
+                                                          Integer limit) {
+        if (limit != null && limit < 1) {
+            return Mono.error(new ServerWebInputException("limit must be at least 1"));
+        }
+        final ActiveDealsCursor position;
+        try {
+            position = cursor == null ? null : ActiveDealsCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ServerWebInputException("Invalid cursor"));
+        }
+        if (position != null && position.secondOfDay() != timeOfDay.toSecondOfDay()) {
+            return Mono.error(new ServerWebInputException("Cursor was issued for a different timeOfDay"));
+        }
+        final int filterHash = filterHash(filter);
+        if (position != null && position.filterHash() != filterHash) {
+            return Mono.error(new ServerWebInputException("Cursor was issued for a different filter"));
+        }
+
+        // Later pages are read from the snapshot the first page came from, so a refresh can't shift or repeat deals
+        final Mono<RestaurantSnapshot> snapshot = position == null
+            ? restaurantService.getSnapshot()
+            : restaurantService.findSnapshot(position.snapshotVersion())
+                .switchIfEmpty(Mono.error(() -> new CursorExpiredException(position.snapshotVersion())));
+
+        return snapshot.map(restaurantSnapshot -> {
+            final DealTimelineIndex dealTimelineIndex = restaurantSnapshot.getDealTimelineIndex();
+            final int[] dealOrdinals = activeDealsAt(restaurantSnapshot, timeOfDay, filter);
+            final int from = position == null ? 0 : Math.min(position.offset(), dealOrdinals.length);
+            final int to = limit == null ? dealOrdinals.length : (int) Math.min((long) from + limit, dealOrdinals.length);
+
+            // Only the requested slice is mapped
+            final ActiveDealsResponse response =
+                this.activeDealsResponseMapper.mapToActiveDealsResponse(dealTimelineIndex, dealOrdinals, from, to);
+            if (to < dealOrdinals.length) {
+                response.setNextCursor(
+                    new ActiveDealsCursor(restaurantSnapshot.getVersion(), timeOfDay.toSecondOfDay(), filterHash, to)
+                        .encode());
+            }
+            return response;
+        });
+    }
+
+    @Override
+    public Flux<DealsItem> streamActiveDealsAt(LocalTime timeOfDay, DealFilter filter) {
+
+        return restaurantService.getSnapshot().flatMapMany(snapshot -> {
+            // Only the ordinals are held for the whole response, items are mapped as the client consumes them
+            final DealTimelineIndex dealTimelineIndex = snapshot.getDealTimelineIndex();
+            final int[] dealOrdinals = activeDealsAt(snapshot, timeOfDay, filter);
+            return Flux.range(0, dealOrdinals.length)
+                .map(i -> this.activeDealsResponseMapper.mapToDealsItem(
+                    dealTimelineIndex.getRestaurant(dealOrdinals[i]), dealTimelineIndex.getDeal(dealOrdinals[i])));
         });
     }
 
-    private boolean isDealActive(
-        final Restaurant restaurant, final Deals deal, final LocalTime timeOfDayLocalTime) {
-        final LocalTime restaurantOpen = LocalTime.parse(restaurant.getOpen(), TIME_FORMATTER);
-        final LocalTime restaurantClose = LocalTime.parse(restaurant.getClose(), TIME_FORMATTER);
+    @Override
+    public Mono<ActiveDealsResponse> getActiveDealsBetween(LocalTime from, LocalTime to, DealFilter filter) {
+        if (to.isBefore(from)) {
+            return Mono.error(new ServerWebInputException("to can't be before from"));
+        }
+
+        return restaurantService.getSnapshot().map(snapshot -> {
+            final DealTimelineIndex dealTimelineIndex = snapshot.getDealTimelineIndex();
+            final int[] dealOrdinals = dealTimelineIndex.activeDealsBetween(from, to);
+            return this.activeDealsResponseMapper.mapToActiveDealsResponse(dealTimelineIndex,
+                filter == null || filter.isEmpty()
+                    ? dealOrdinals
+                    : snapshot.getDealFilterIndex().filter(dealOrdinals, filter));
+        });
+    }
 
-        // Deal not active if the restaurant is closed at the requested time, exclude early
-        if (restaurantOpen.isAfter(timeOfDayLocalTime)
-            && restaurantClose.isBefore(timeOfDayLocalTime)) {
-            return false;
+    @Override
+    public Mono<ActiveDealsBatchResponse> getActiveDealsAt(List<LocalTime> timesOfDay, DealFilter filter) {
+        if (timesOfDay.isEmpty()) {
+            return Mono.error(new ServerWebInputException("At least one timeOfDay is required"));
+        }
+        if (timesOfDay.size() > maxBatchTimes) {
+            return Mono.error(new ServerWebInputException("At most " + maxBatchTimes + " times can be requested"));
         }
 
-        // No deals left, exclude early
-        if (deal.getQtyLeft() <= 0) {
-            return false;
+        return restaurantService.getSnapshot().map(snapshot -> {
+            // One lookup and one sweep over the deal boundaries between the times, instead of a lookup per time
+            final DealTimelineIndex dealTimelineIndex = snapshot.getDealTimelineIndex();
+            final int[][] dealOrdinalsByTime = dealTimelineIndex.activeDealsAt(timesOfDay);
+            final BitSet matching = filter == null || filter.isEmpty()
+                ? null
+                : snapshot.getDealFilterIndex().matching(filter);
+
+            final BitSet returned = new BitSet(dealTimelineIndex.getDealCount());
+            for (int i = 0; i < dealOrdinalsByTime.length; i++) {
+                if (matching != null) {
+                    dealOrdinalsByTime[i] = retain(dealOrdinalsByTime[i], matching);
+                }
+                for (int deal : dealOrdinalsByTime[i]) {
+                    returned.set(deal);
+                }
+            }
+
+            // Each deal is mapped and written once, the times refer to it by its position
+            final List<DealsItem> deals = new ArrayList<>(returned.cardinality());
+            final int[] positionOf = new int[dealTimelineIndex.getDealCount()];
+            for (int deal = returned.nextSetBit(0); deal >= 0; deal = returned.nextSetBit(deal + 1)) {
+                positionOf[deal] = deals.size();
+                deals.add(this.activeDealsResponseMapper.mapToDealsItem(
+                    dealTimelineIndex.getRestaurant(deal), dealTimelineIndex.getDeal(deal)));
+            }
+            final List<ActiveDealsAtTime> times = new ArrayList<>(timesOfDay.size());
+            for (int i = 0; i < dealOrdinalsByTime.length; i++) {
+                final int[] dealIndexes = new int[dealOrdinalsByTime[i].length];
+                for (int j = 0; j < dealIndexes.length; j++) {
+                    dealIndexes[j] = positionOf[dealOrdinalsByTime[i][j]];
+                }
+                times.add(ActiveDealsAtTime.builder()
+                    .timeOfDay(timesOfDay.get(i))
+                    .dealIndexes(dealIndexes)
+                    .totalCount(dealIndexes.length)
+                    .build());
+            }
+            return ActiveDealsBatchResponse.builder().deals(deals).times(times).build();
+        });
+    }
+
+    // The filter indexes are only built, and only consulted, once a client filters
+    private static int[] activeDealsAt(final RestaurantSnapshot snapshot, final LocalTime timeOfDay,
+                                       final DealFilter filter) {
+        final int[] dealOrdinals = snapshot.getDealTimelineIndex().activeDealsAt(timeOfDay);
+        return filter == null || filter.isEmpty()
+            ? dealOrdinals
+            : snapshot.getDealFilterIndex().filter(dealOrdinals, filter);
+    }
+
+    private static int[] retain(final int[] dealOrdinals, final BitSet matching) {
+        return Arrays.stream(dealOrdinals).filter(matching::get).toArray();
+    }
+
+    // Same for any spelling the filter index treats as equal
+    private static int filterHash(final DealFilter filter) {
+        if (filter == null || filter.isEmpty()) {
+            return 0;
         }
+        return Objects.hash(normalize(filter.getSuburb()), normalize(filter.getCuisine()), filter.getDineIn(),
+            filter.getLightning(), filter.getMinDiscount());
+    }
 
-        // Actual start time and end times are calculated with following order of priority
-        // deal start -> deal open -> restaurant open
-        // deal end -> deal close -> restaurant close
-        LocalTime actualDealStartTime =
-            !ObjectUtils.isEmpty(deal.getStart())
-                ? LocalTime.parse(deal.getStart(), TIME_FORMATTER)
-                : !ObjectUtils.isEmpty(deal.getOpen())
-                ? LocalTime.parse(deal.getOpen(), TIME_FORMATTER)
-                : restaurantOpen;
-
-        LocalTime actualDealEndTime =
-            !ObjectUtils.isEmpty(deal.getEnd()) ?
-                LocalTime.parse(deal.getEnd(), TIME_FORMATTER)
-                : !ObjectUtils.isEmpty(deal.getClose())
-                ? LocalTime.parse(deal.getClose(), TIME_FORMATTER)
-                : restaurantClose;
-
-        return timeOfDayLocalTime.isAfter(actualDealStartTime)
-            && timeOfDayLocalTime.isBefore(actualDealEndTime);
+    private static String normalize(final String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,71 @@
+package org.eatclub.codingchallenge.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eatclub.codingchallenge.index.DealDensityCurve;
+import org.eatclub.codingchallenge.model.response.DealDensityBucket;
+import org.eatclub.codingchallenge.model.response.DealDensityResponse;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the active deal curve of the current snapshot. The per minute curve is built once per snapshot, when it is
+ * published, and a request only folds it into buckets.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DefaultDealDensityService implements DealDensityService {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final RestaurantService restaurantService;
+
+    @Override
+    public Mono<DealDensityResponse> getDealDensity(final int bucketMinutes, final boolean includeQtyLeft) {
+        if (bucketMinutes < 1 || bucketMinutes > MINUTES_PER_DAY) {
+            return Mono.error(new ServerWebInputException("bucketMinutes must be from 1 to " + MINUTES_PER_DAY));
+        }
+        return restaurantService.getSnapshot()
+            .map(snapshot -> toResponse(snapshot.getDealDensityCurve(), bucketMinutes, includeQtyLeft));
+    }
+
+    @EventListener
+    public void onSnapshotRefreshed(RestaurantSnapshotRefreshedEvent event) {
+        try {
+            event.snapshot().getDealDensityCurve();
+        } catch (RuntimeException e) {
+            // Requests for this snapshot will build it again and report the failure
+            log.warn("Unable to build deal density curve for refreshed snapshot", e);
+        }
+    }
+
+    private static DealDensityResponse toResponse(final DealDensityCurve curve, final int bucketMinutes,
+                                                  final boolean includeQtyLeft) {
+        final List<DealDensityBucket> buckets = new ArrayList<>((MINUTES_PER_DAY + bucketMinutes - 1) / bucketMinutes);
+        // The last bucket is shorter when bucketMinutes doesn't divide the day
+        for (int start = 0; start < MINUTES_PER_DAY; start += bucketMinutes) {
+            int activeDeals = 0;
+            long qtyLeft = 0;
+            for (int minute = start; minute < Math.min(start + bucketMinutes, MINUTES_PER_DAY); minute++) {
+                activeDeals = Math.max(activeDeals, curve.activeDealsAt(minute));
+                qtyLeft = Math.max(qtyLeft, curve.qtyLeftAt(minute));
+            }
+            buckets.add(DealDensityBucket.builder()
+                .start(LocalTime.of(start / 60, start % 60))
+                .activeDeals(activeDeals)
+                .qtyLeft(includeQtyLeft ? qtyLeft : null)
+                .build());
+        }
+        return DealDensityResponse.builder()
+            .bucketMinutes(bucketMinutes)
+            .buckets(buckets)
+            .build();
+    }
+}
@@ -0,0 +1,241 @@
+package org.eatclub.codingchallenge.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eatclub.codingchallenge.index.DealColumns;
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
+import org.eatclub.codingchallenge.index.SnapshotDiff;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.DealEvent;
+import org.eatclub.codingchallenge.util.ActiveDealsResponseMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * Pushes deal changes to every subscriber instead of having clients poll {@code /active-deals}.
+ * <p>
+ * Events are generated once, whatever the number of subscribers: on every published snapshot, from the
+ * {@link SnapshotDiff} with the previous one (deals added, removed, or whose quantity left changed), and at every
+ * minute boundary in {@code deal-events.timeZone}, from the deals active in the minute that starts and the one that
+ * ended (deals activated and expired). They go through a single {@link Sinks.Many} and every subscriber gets its own
+ * buffer of {@code deal-events.bufferSize} events. A subscriber that falls behind loses its oldest events rather than
+ * holding up the others or growing without bound ({@code deal.events.dropped}).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DefaultDealEventService implements DealEventService {
+
+    static final String DEAL_ADDED = "deal-added";
+    static final String DEAL_REMOVED = "deal-removed";
+    static final String QTY_CHANGED = "qty-changed";
+    static final String ACTIVATED = "activated";
+    static final String EXPIRED = "expired";
+    private static final Set<String> TYPES = Set.of(DEAL_ADDED, DEAL_REMOVED, QTY_CHANGED, ACTIVATED, EXPIRED);
+
+    private final ActiveDealsResponseMapper activeDealsResponseMapper;
+    private final MeterRegistry meterRegistry;
+    @Value("${deal-events.bufferSize:256}")
+    private int bufferSize;
+    @Value("${deal-events.timeZone:Australia/Melbourne}")
+    private String timeZone;
+
+    // Subscribers buffer on their own, so the sink never has to hold anything back for a slow one
+    private final Sinks.Many<DealEvent> sink = Sinks.many().multicast().directBestEffort();
+    private Clock clock;
+    private Disposable minuteTicks;
+    private Counter droppedCounter;
+    // Guarded by this, which also keeps emissions serialized
+    private ActiveDeals lastActive;
+
+    @PostConstruct
+    public void start() {
+        this.clock = Clock.system(ZoneId.of(timeZone));
+        registerMeters();
+        startMinuteTicks();
+    }
+
+    void registerMeters() {
+        this.droppedCounter = Counter.builder("deal.events.dropped")
+            .description("Deal events dropped from the buffer of a subscriber that fell behind")
+            .register(meterRegistry);
+        Gauge.builder("deal.events.subscribers", sink, Sinks.Many::currentSubscriberCount)
+            .description("Clients subscribed to deal events")
+            .register(meterRegistry);
+    }
+
+    // Ticks on the wall clock, unit tests drive onMinute themselves instead
+    void startMinuteTicks() {
+        this.minuteTicks = Mono.defer(() -> Mono.delay(untilNextMinute()))
+            .repeat()
+            .subscribe(tick -> onMinute(currentMinute()),
+                error -> log.error("Deal event minute ticks stopped", error));
+    }
+
+    @PreDestroy
+    public void stopMinuteTicks() {
+        if (this.minuteTicks != null) {
+            this.minuteTicks.dispose();
+        }
+        sink.tryEmitComplete();
+    }
+
+    @Override
+    public Flux<DealEvent> subscribe(final Set<String> types) {
+        if (!TYPES.containsAll(types)) {
+            return Flux.error(new ServerWebInputException("types must be among " + TYPES));
+        }
+        return sink.asFlux()
+            .filter(event -> types.isEmpty() || types.contains(event.getType()))
+            .onBackpressureBuffer(bufferSize, dropped -> droppedCounter.increment(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    @EventListener
+    public void onSnapshotRefreshed(RestaurantSnapshotRefreshedEvent event) {
+        try {
+            onSnapshot(event.snapshot(), currentMinute());
+        } catch (RuntimeException e) {
+            // A snapshot that can't be indexed fails the requests that need it, it must not fail the refresh
+            log.warn("Unable to generate deal events for snapshot {}", event.snapshot().getVersion(), e);
+        }
+    }
+
+    /**
+     * Events of the minutes since the last ones on the previous snapshot, then those of the change of snapshot.
+     */
+    synchronized void onSnapshot(final RestaurantSnapshot snapshot, final int minuteOfDay) {
+        final ActiveDeals previous = catchUp(this.lastActive, minuteOfDay);
+        final ActiveDeals current = ActiveDeals.of(snapshot, minuteOfDay);
+        this.lastActive = current;
+        if (previous == null || previous.snapshot() == snapshot) {
+            return;
+        }
+
+        // The refresh already diffed the feeds unless a snapshot was skipped or the feeds couldn't be matched
+        final SnapshotDiff refreshDiff = snapshot.diffFrom(previous.snapshot().getVersion());
+        final SnapshotDiff diff = refreshDiff != null
+            ? refreshDiff
+            : SnapshotDiff.between(previous.snapshot().getRestaurantResponse().getRestaurants(),
+                snapshot.getRestaurantResponse().getRestaurants());
+        if (diff == null) {
+            log.debug("Snapshot {} can't be matched by id with the previous one, no deal events for it",
+                snapshot.getVersion());
+            return;
+        }
+        final DealColumns previousColumns = previous.snapshot().getDealColumns();
+        final DealColumns dealColumns = snapshot.getDealColumns();
+        final BitSet removed = diff.removedDeals();
+        for (int deal = removed.nextSetBit(0); deal >= 0; deal = removed.nextSetBit(deal + 1)) {
+            emit(DEAL_REMOVED, previous, deal, null);
+        }
+        final BitSet changed = diff.changedDeals();
+        for (int deal = changed.nextSetBit(0); deal >= 0; deal = changed.nextSetBit(deal + 1)) {
+            final int previousDeal = diff.previousOrdinal(deal);
+            if (previousDeal < 0) {
+                emit(DEAL_ADDED, current, deal, null);
+            } else if (previousColumns.qtyLeft(previousDeal) != dealColumns.qtyLeft(deal)) {
+                emit(QTY_CHANGED, current, deal, previousColumns.qtyLeft(previousDeal));
+            } else if (previous.isActive(previousDeal) != current.isActive(deal)) {
+                // E.g. new deal times that take in, or leave out, the current minute
+                emit(current.isActive(deal) ? ACTIVATED : EXPIRED, current, deal, null);
+            }
+        }
+    }
+
+    synchronized void onMinute(final int minuteOfDay) {
+        this.lastActive = catchUp(this.lastActive, minuteOfDay);
+    }
+
+    // Activated and expired events from the last minute events were generated for up to the given one
+    private ActiveDeals catchUp(final ActiveDeals last, final int minuteOfDay) {
+        if (last == null || last.minuteOfDay() == minuteOfDay) {
+            return last;
+        }
+        try {
+            final ActiveDeals current = ActiveDeals.of(last.snapshot(), minuteOfDay);
+            final int[] before = last.dealOrdinals();
+            final int[] after = current.dealOrdinals();
+            int i = 0;
+            int j = 0;
+            while (i < before.length || j < after.length) {
+                if (j == after.length || (i < before.length && before[i] < after[j])) {
+                    emit(EXPIRED, current, before[i++], null);
+                } else if (i == before.length || after[j] < before[i]) {
+                    emit(ACTIVATED, current, after[j++], null);
+                } else {
+                    i++;
+                    j++;
+                }
+            }
+            return current;
+        } catch (RuntimeException e) {
+            log.warn("Unable to generate deal events for minute {}", minuteOfDay, e);
+            return last;
+        }
+    }
+
+    private void emit(final String type, final ActiveDeals activeDeals, final int deal, final Long previousQtyLeft) {
+        final DealTimelineIndex index = activeDeals.snapshot().getDealTimelineIndex();
+        final DealEvent event = DealEvent.builder()
+            .type(type)
+            .timeOfDay(LocalTime.of(activeDeals.minuteOfDay() / 60, activeDeals.minuteOfDay() % 60))
+            .snapshotVersion(activeDeals.snapshot().getVersion())
+            .deal(activeDealsResponseMapper.mapToDealsItem(index.getRestaurant(deal), index.getDeal(deal)))
+            .active(activeDeals.isActive(deal))
+            .previousQtyLeft(previousQtyLeft)
+            .build();
+        // Only fails without subscribers, the event is of no use to anyone then
+        sink.tryEmitNext(event);
+        meterRegistry.counter("deal.events.published", "type", type).increment();
+    }
+
+    private int currentMinute() {
+        final LocalTime now = LocalTime.now(clock);
+        return now.getHour() * 60 + now.getMinute();
+    }
+
+    private Duration untilNextMinute() {
+        final ZonedDateTime now = ZonedDateTime.now(clock);
+        return Duration.between(now, now.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1));
+    }
+
+    /**
+     * Deals of a snapshot active within a minute, i.e. after its start (deal boundaries are exclusive) and before the
+     * next minute starts.
+     */
+    private record ActiveDeals(RestaurantSnapshot snapshot, int minuteOfDay, int[] dealOrdinals) {
+
+        static ActiveDeals of(final RestaurantSnapshot snapshot, final int minuteOfDay) {
+            final LocalTime withinMinute = LocalTime.of(minuteOfDay / 60, minuteOfDay % 60, 30);
+            return new ActiveDeals(snapshot, minuteOfDay,
+                snapshot.getDealTimelineIndex().activeDealsAt(withinMinute));
+        }
+
+        boolean isActive(final int deal) {
+            // In ascending order, as the index returns them
+            return Arrays.binarySearch(dealOrdinals, deal) >= 0;
+        }
+    }
+}
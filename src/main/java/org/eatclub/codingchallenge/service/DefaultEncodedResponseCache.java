@@ -0,0 +1,331 @@
+package org.eatclub.codingchallenge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional GET support and a bounded LRU cache of encoded JSON bodies, keyed by snapshot version and normalized
+ * query.
+ * <p>
+ * Responses only change when a new snapshot is published, so the snapshot version and the query are all an ETag needs
+ * and a revalidation is answered without computing anything. The cache is cleared on every refresh and holds at most
+ * {@code response-cache.maxEntries} bodies and {@code response-cache.maxBytes} bytes, least recently used first out.
+ * Only bodies made of the deals active at a minute of the day the refresh didn't touch are kept, under the new
+ * version, when the new snapshot was patched from the one they were encoded for.
+ * <p>
+ * A cached body of at least {@code response-cache.gzipMinBytes} bytes is gzipped the first time a client accepting
+ * gzip asks for it, on a bounded elastic thread rather than the event loop, and the compressed bytes are kept next to
+ * it. Requests arriving while it is compressed wait for the same compression, so each body is compressed at most once
+ * per snapshot. The two variants have their own ETag and every response varies on {@code Accept-Encoding}.
+ */
+@Service
+@RequiredArgsConstructor
+public class DefaultEncodedResponseCache implements EncodedResponseCache {
+
+    private static final String GZIP = "gzip";
+    private static final int ANY_MINUTE = -1;
+
+    private final RestaurantService restaurantService;
+    private final ObjectMapper objectMapper;
+    @Value("${response-cache.maxEntries:4096}")
+    private int maxEntries;
+    @Value("${response-cache.maxBytes:33554432}")
+    private long maxBytes;
+    @Value("${response-cache.gzipEnabled:true}")
+    private boolean gzipEnabled;
+    @Value("${response-cache.gzipMinBytes:1024}")
+    private int gzipMinBytes;
+
+    // Access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    @EventListener
+    public void onSnapshotRefreshed(RestaurantSnapshotRefreshedEvent event) {
+        carryOver(event.snapshot());
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> respond(String query, HttpHeaders requestHeaders,
+                                                Supplier<Mono<?>> response) {
+        return respond(query, ANY_MINUTE, requestHeaders, response);
+    }
+
+    @Override
+    public Mono<ResponseEntity<Object>> respond(String query, int minuteOfDay, HttpHeaders requestHeaders,
+                                                Supplier<Mono<?>> response) {
+        final boolean acceptsGzip = gzipEnabled && acceptsGzip(requestHeaders.get(HttpHeaders.ACCEPT_ENCODING));
+
+        return restaurantService.getSnapshot().flatMap(snapshot -> {
+            final Key key = new Key(snapshot.getVersion(), query);
+            final String matched = matchingETag(ifNoneMatch(requestHeaders), key);
+            if (matched != null) {
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(matched)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build());
+            }
+
+            final Entry cached = get(key);
+            if (cached != null) {
+                return serve(key, cached, acceptsGzip);
+            }
+            return response.get().map(this::encode).flatMap(encoded -> restaurantService.getSnapshot().flatMap(current -> {
+                // A refresh while the body was built may have produced it from the new snapshot, which this key and
+                // ETag don't describe, so it is written untagged and not kept
+                if (current != snapshot) {
+                    return Mono.just(ok(encoded, null, null));
+                }
+                final Entry entry = put(key, encoded, minuteOfDay);
+                return entry != null
+                    ? serve(key, entry, acceptsGzip)
+                    : Mono.just(ok(encoded, eTag(key, null), null));
+            }));
+        });
+    }
+
+    synchronized Entry get(final Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches the body, or returns {@code null} when it is larger than the whole cache.
+     */
+    synchronized Entry put(final Key key, final byte[] encoded, final int minuteOfDay) {
+        if (encoded.length > maxBytes || maxEntries < 1) {
+            return null;
+        }
+        final Entry entry = new Entry(encoded, minuteOfDay);
+        final Entry replaced = entries.put(key, entry);
+        totalBytes += entry.bytes() - (replaced != null ? replaced.bytes() : 0);
+        evict();
+        return entry;
+    }
+
+    /**
+     * Drops every body that may not describe the snapshot, keeping those already cached for it and, when it was
+     * patched, those of an unchanged minute of the snapshot it was patched from, in least recently used order.
+     */
+    synchronized void carryOver(final RestaurantSnapshot snapshot) {
+        final List<Map.Entry<Key, Entry>> kept = new ArrayList<>();
+        for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+            final Key key = cached.getKey();
+            final Entry entry = cached.getValue();
+            if (key.snapshotVersion() == snapshot.getVersion()) {
+                kept.add(cached);
+            } else if (entry.minuteOfDay != ANY_MINUTE && snapshot.isPatchOf(key.snapshotVersion())
+                && snapshot.isUnchangedFromPreviousAt(entry.minuteOfDay)) {
+                kept.add(Map.entry(new Key(snapshot.getVersion(), key.query()), entry));
+            }
+        }
+        clear();
+        for (Map.Entry<Key, Entry> cached : kept) {
+            entries.put(cached.getKey(), cached.getValue());
+            totalBytes += cached.getValue().bytes();
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private Mono<ResponseEntity<Object>> serve(final Key key, final Entry entry, final boolean acceptsGzip) {
+        if (!acceptsGzip || entry.identity.length < gzipMinBytes) {
+            return Mono.just(ok(entry.identity, eTag(key, null), null));
+        }
+        final byte[] gzipped = entry.gzip;
+        if (gzipped != null) {
+            return Mono.just(okGzipped(key, entry, gzipped));
+        }
+        // A client that goes away mustn't cancel the compression other requests are waiting for
+        return Mono.fromFuture(gzipping(key, entry), true).map(compressed -> okGzipped(key, entry, compressed));
+    }
+
+    private static ResponseEntity<Object> okGzipped(final Key key, final Entry entry, final byte[] gzipped) {
+        // Small or already dense bodies can come out larger
+        return gzipped.length < entry.identity.length
+            ? ok(gzipped, eTag(key, GZIP), GZIP)
+            : ok(entry.identity, eTag(key, null), null);
+    }
+
+    // Started once per entry, off the event loop
+    private synchronized CompletableFuture<byte[]> gzipping(final Key key, final Entry entry) {
+        if (entry.gzipping == null) {
+            entry.gzipping = Mono.fromCallable(() -> gzip(entry.identity))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(gzipped -> attachGzip(key, entry, gzipped))
+                .toFuture();
+        }
+        return entry.gzipping;
+    }
+
+    private synchronized void attachGzip(final Key key, final Entry entry, final byte[] gzipped) {
+        // An entry evicted or replaced meanwhile isn't counted anymore, the bytes are only used for this response
+        if (entry.gzip != null || entries.get(key) != entry) {
+            return;
+        }
+        entry.gzip = gzipped;
+        totalBytes += gzipped.length;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || totalBytes > maxBytes) {
+            totalBytes -= eldest.next().getValue().bytes();
+            eldest.remove();
+        }
+    }
+
+    private byte[] encode(final Object response) {
+        if (response instanceof byte[] encoded) {
+            return encoded;
+        }
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode response", e);
+        }
+    }
+
+    // Default level, compressed on demand while a client waits, the best ratio costs several times the CPU for a few
+    // percent less bytes
+    static byte[] gzip(final byte[] identity) {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, identity.length / 8));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(identity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static ResponseEntity<Object> ok(final byte[] body, final String eTag, final String contentEncoding) {
+        final ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (eTag != null) {
+            builder.eTag(eTag);
+        }
+        if (contentEncoding != null) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+        }
+        return builder.body(body);
+    }
+
+    private static String eTag(final Key key, final String contentEncoding) {
+        return "\"" + Long.toHexString(key.snapshotVersion()) + "-" + Integer.toHexString(key.query().hashCode())
+            + (contentEncoding != null ? "-" + contentEncoding : "") + "\"";
+    }
+
+    private static List<String> ifNoneMatch(final HttpHeaders requestHeaders) {
+        try {
+            return requestHeaders.getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            // A malformed header can't match, the full response is the right answer
+            return List.of();
+        }
+    }
+
+    // Weak comparison, as RFC 9110 asks for If-None-Match. Either variant is still current, whatever this request
+    // negotiates.
+    private static String matchingETag(final List<String> ifNoneMatch, final Key key) {
+        for (String candidate : ifNoneMatch) {
+            final String eTag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+            if ("*".equals(eTag) || eTag.equals(eTag(key, null))) {
+                return eTag(key, null);
+            }
+            if (eTag.equals(eTag(key, GZIP))) {
+                return eTag;
+            }
+        }
+        return null;
+    }
+
+    // gzip with a non zero q value, or a non zero * without gzip listed
+    static boolean acceptsGzip(final List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        Boolean any = null;
+        for (String value : acceptEncoding) {
+            for (String coding : value.split(",")) {
+                final String[] parts = coding.split(";");
+                final String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                final boolean accepted = quality(parts) > 0;
+                if (GZIP.equals(name) || "x-gzip".equals(name)) {
+                    gzip = accepted;
+                } else if ("*".equals(name)) {
+                    any = accepted;
+                }
+            }
+        }
+        return gzip != null ? gzip : Boolean.TRUE.equals(any);
+    }
+
+    private static double quality(final String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            final String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    record Key(long snapshotVersion, String query) {
+    }
+
+    static final class Entry {
+        private final byte[] identity;
+        // Minute of the day the body describes the active deals of, or ANY_MINUTE
+        private final int minuteOfDay;
+        private volatile byte[] gzip;
+        // Guarded by the cache
+        private CompletableFuture<byte[]> gzipping;
+
+        private Entry(byte[] identity, int minuteOfDay) {
+            this.identity = identity;
+            this.minuteOfDay = minuteOfDay;
+        }
+
+        private long bytes() {
+            final byte[] gzipped = gzip;
+            return identity.length + (gzipped != null ? gzipped.length : 0);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.eatclub.codingchallenge.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eatclub.codingchallenge.index.DealColumns;
+import org.eatclub.codingchallenge.index.DealFilterIndex;
+import org.eatclub.codingchallenge.index.DealMinuteHistogram;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.GroupPeakWindow;
+import org.eatclub.codingchallenge.model.response.GroupedPeakWindowsResponse;
+import org.eatclub.codingchallenge.model.response.PeakWindow;
+import org.eatclub.codingchallenge.model.response.TopPeakWindowsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Top peak windows and the peak window of every suburb and cuisine of the current snapshot.
+ * <p>
+ * Everything is computed once per snapshot, when it is published or else on the first request for it, on a fork-join
+ * pool of {@code peak-analytics.parallelism} threads: the snapshot is partitioned by suburb and by cuisine using the
+ * bitsets of {@link DealFilterIndex} and every partition gets its own minute histogram and sweep, in parallel. Requests
+ * never compute on the event loop, they wait for that result and then only copy out the windows they return.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DefaultPeakAnalyticsService implements PeakAnalyticsService {
+
+    private static final String SUBURB = "suburb";
+    private static final String CUISINE = "cuisine";
+    private static final Comparator<GroupPeakWindow> MOST_DEALS_FIRST = Comparator
+        .comparing(GroupPeakWindow::getActiveDeals, Comparator.nullsLast(Comparator.reverseOrder()))
+        .thenComparing(GroupPeakWindow::getGroup);
+
+    private final RestaurantService restaurantService;
+    @Value("${peak-analytics.parallelism:2}")
+    private int parallelism;
+
+    private ForkJoinPool pool;
+    // Analytics of the latest snapshot, replaced whenever the restaurant service publishes a new snapshot
+    private MemoizedPeakAnalytics memoizedPeakAnalytics;
+
+    @PostConstruct
+    public void initPool() {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    @PreDestroy
+    public void shutdownPool() {
+        this.pool.shutdownNow();
+    }
+
+    @Override
+    public Mono<TopPeakWindowsResponse> getTopPeakWindows(final int k) {
+        if (k < 1) {
+            return Mono.error(new ServerWebInputException("k must be at least 1"));
+        }
+        return restaurantService.getSnapshot()
+            .flatMap(this::sharedAnalytics)
+            .map(analytics -> TopPeakWindowsResponse.builder()
+                .windows(List.copyOf(analytics.topWindows().subList(0, Math.min(k, analytics.topWindows().size()))))
+                .build());
+    }
+
+    @Override
+    public Mono<GroupedPeakWindowsResponse> getGroupedPeakWindows(final String groupBy, final Integer limit) {
+        final String grouping = groupBy == null ? null : groupBy.trim().toLowerCase(Locale.ROOT);
+        if (!SUBURB.equals(grouping) && !CUISINE.equals(grouping)) {
+            return Mono.error(new ServerWebInputException("groupBy must be suburb or cuisine"));
+        }
+        if (limit != null && limit < 1) {
+            return Mono.error(new ServerWebInputException("limit must be at least 1"));
+        }
+        return restaurantService.getSnapshot()
+            .flatMap(this::sharedAnalytics)
+            .map(analytics -> {
+                final List<GroupPeakWindow> groups = SUBURB.equals(grouping)
+                    ? analytics.bySuburb()
+                    : analytics.byCuisine();
+                final int size = limit == null ? groups.size() : Math.min(limit, groups.size());
+                return GroupedPeakWindowsResponse.builder()
+                    .groupBy(grouping)
+                    .totalGroups(groups.size())
+                    .groups(List.copyOf(groups.subList(0, size)))
+                    .build();
+            });
+    }
+
+    @EventListener
+    public void onSnapshotRefreshed(RestaurantSnapshotRefreshedEvent event) {
+        // Only starts the computation, failures are reported to the requests waiting for it
+        peakAnalytics(event.snapshot());
+    }
+
+    // The future is shared by every request for the snapshot, a client going away mustn't cancel it for the others
+    private Mono<PeakAnalytics> sharedAnalytics(final RestaurantSnapshot snapshot) {
+        return Mono.fromFuture(peakAnalytics(snapshot), true);
+    }
+
+    private synchronized CompletableFuture<PeakAnalytics> peakAnalytics(final RestaurantSnapshot snapshot) {
+        final MemoizedPeakAnalytics memoized = this.memoizedPeakAnalytics;
+        if (memoized != null && memoized.snapshot() == snapshot) {
+            return memoized.analytics();
+        }
+        final CompletableFuture<PeakAnalytics> analytics = CompletableFuture.supplyAsync(() -> compute(snapshot), pool);
+        analytics.whenComplete((result, error) -> {
+            if (error != null) {
+                log.warn("Unable to compute peak analytics for snapshot {}", snapshot.getVersion(), error);
+            }
+        });
+        // A request still holding an older snapshot mustn't replace the analytics of a newer one
+        if (memoized == null || snapshot.getVersion() > memoized.snapshot().getVersion()) {
+            this.memoizedPeakAnalytics = new MemoizedPeakAnalytics(snapshot, analytics);
+        }
+        return analytics;
+    }
+
+    private static PeakAnalytics compute(final RestaurantSnapshot snapshot) {
+        final DealColumns dealColumns = snapshot.getDealColumns();
+        final List<PeakWindow> topWindows = snapshot.getDealMinuteHistogram().localPeakRanges().stream()
+            .map(peak -> PeakWindow.builder()
+                .peakTimeStart(toLocalTime(peak.startMinute()))
+                .peakTimeEnd(toLocalTime(peak.endMinute()))
+                .activeDeals(peak.activeDeals())
+                .build())
+            .toList();
+        final DealFilterIndex dealFilterIndex = snapshot.getDealFilterIndex();
+        return new PeakAnalytics(topWindows,
+            groupPeaks(dealColumns, dealFilterIndex.getSuburbGroups()),
+            groupPeaks(dealColumns, dealFilterIndex.getCuisineGroups()));
+    }
+
+    // Runs on the pool, so the parallel stream splits across the pool's workers rather than the common pool
+    private static List<GroupPeakWindow> groupPeaks(final DealColumns dealColumns, final Map<String, BitSet> groups) {
+        return groups.entrySet().parallelStream()
+            .map(group -> groupPeak(group.getKey(), DealMinuteHistogram.build(dealColumns, group.getValue())))
+            .sorted(MOST_DEALS_FIRST)
+            .toList();
+    }
+
+    private static GroupPeakWindow groupPeak(final String group, final DealMinuteHistogram histogram) {
+        // Same window as /peak-time-window would return for the group, none when it has no closed peak
+        final DealMinuteHistogram.PeakRange firstPeak = histogram.firstPeakRange();
+        if (firstPeak == null) {
+            return GroupPeakWindow.builder().group(group).build();
+        }
+        return GroupPeakWindow.builder()
+            .group(group)
+            .peakTimeStart(toLocalTime(firstPeak.startMinute()))
+            .peakTimeEnd(toLocalTime(firstPeak.endMinute()))
+            .activeDeals(firstPeak.activeDeals())
+            .build();
+    }
+
+    private static LocalTime toLocalTime(final int minuteOfDay) {
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    private record PeakAnalytics(List<PeakWindow> topWindows, List<GroupPeakWindow> bySuburb,
+                                 List<GroupPeakWindow> byCuisine) {
+    }
+
+    private record MemoizedPeakAnalytics(RestaurantSnapshot snapshot, CompletableFuture<PeakAnalytics> analytics) {
+    }
+}
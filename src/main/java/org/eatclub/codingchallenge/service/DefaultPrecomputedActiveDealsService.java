@@ -0,0 +1,171 @@
+package org.eatclub.codingchallenge.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.util.ActiveDealsResponseMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * Optionally encodes the active deals response for every minute of the day whenever a new snapshot is published.
+ * <p>
+ * The request time is bound with minute resolution, so a snapshot only ever has 1440 distinct answers. Consecutive
+ * minutes with the same active deals share a single encoded body. When the encoded bodies of a snapshot would exceed
+ * {@code active-deals.precompute.maxBytes}, nothing is kept and requests are answered on demand instead.
+ * <p>
+ * A snapshot patched from the one the current responses were encoded for reuses them, only the minutes at which a
+ * changed deal is active are encoded again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DefaultPrecomputedActiveDealsService implements PrecomputedActiveDealsService {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final RestaurantService restaurantService;
+    private final ActiveDealsResponseMapper activeDealsResponseMapper;
+    private final ObjectMapper objectMapper;
+    @Value("${active-deals.precompute.enabled:false}")
+    private boolean enabled;
+    @Value("${active-deals.precompute.maxBytes:33554432}")
+    private long maxBytes;
+
+    private volatile RestaurantSnapshot latestSnapshot;
+    private volatile PrecomputedResponses precomputedResponses;
+
+    @EventListener
+    public void onSnapshotRefreshed(RestaurantSnapshotRefreshedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        this.latestSnapshot = event.snapshot();
+        // Encoding 1440 responses is too heavy for the thread that published the snapshot
+        precompute(event.snapshot())
+            .subscribeOn(Schedulers.boundedElastic())
+            .subscribe(null, error -> log.error("Failed to precompute active deals responses", error));
+    }
+
+    @Override
+    public Mono<byte[]> findEncodedActiveDealsAt(LocalTime timeOfDay) {
+        if (!enabled || timeOfDay.getSecond() != 0 || timeOfDay.getNano() != 0) {
+            return Mono.empty();
+        }
+        return restaurantService.getSnapshot().mapNotNull(snapshot -> {
+            // Only answer for the snapshot the responses were built from, anything else is computed on demand
+            final PrecomputedResponses current = this.precomputedResponses;
+            return current != null && current.snapshot() == snapshot
+                ? current.responses()[timeOfDay.getHour() * 60 + timeOfDay.getMinute()]
+                : null;
+        });
+    }
+
+    Mono<Void> precompute(final RestaurantSnapshot snapshot) {
+        return Mono.fromRunnable(() -> {
+            final long startNanos = System.nanoTime();
+            final PrecomputedResponses previous = this.precomputedResponses;
+            final PrecomputedResponses responses = previous != null
+                && snapshot.isPatchOf(previous.snapshot().getVersion())
+                ? encodeChangedMinutes(snapshot, previous)
+                : encodeAllMinutes(snapshot);
+            // A slower run for an older snapshot must not replace the responses of a newer one
+            if (snapshot == this.latestSnapshot) {
+                this.precomputedResponses = responses;
+            }
+            if (responses == null) {
+                return;
+            }
+            log.info("Precomputed active deals responses for {} minutes: {} distinct bodies ({} encoded), {} bytes, "
+                    + "took {} ms", MINUTES_PER_DAY, responses.distinctBodies(), responses.encodedBodies(),
+                responses.totalBytes(), (System.nanoTime() - startNanos) / 1_000_000);
+        });
+    }
+
+    private PrecomputedResponses encodeAllMinutes(final RestaurantSnapshot snapshot) {
+        final DealTimelineIndex dealTimelineIndex = snapshot.getDealTimelineIndex();
+        final byte[][] responses = new byte[MINUTES_PER_DAY][];
+        int[] previousDeals = null;
+        int distinctBodies = 0;
+        long totalBytes = 0;
+
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            final int[] activeDeals = dealTimelineIndex.activeDealsAt(LocalTime.of(minute / 60, minute % 60));
+            if (Arrays.equals(activeDeals, previousDeals)) {
+                responses[minute] = responses[minute - 1];
+                continue;
+            }
+
+            final byte[] encoded = encode(dealTimelineIndex, activeDeals);
+            totalBytes += encoded.length;
+            if (totalBytes > maxBytes) {
+                log.info("Active deals responses exceed {} bytes, falling back to on demand computation", maxBytes);
+                return null;
+            }
+            responses[minute] = encoded;
+            previousDeals = activeDeals;
+            distinctBodies++;
+        }
+        return new PrecomputedResponses(snapshot, responses, distinctBodies, totalBytes, distinctBodies);
+    }
+
+    private PrecomputedResponses encodeChangedMinutes(final RestaurantSnapshot snapshot,
+                                                      final PrecomputedResponses previous) {
+        final DealTimelineIndex dealTimelineIndex = snapshot.getDealTimelineIndex();
+        final byte[][] responses = previous.responses().clone();
+        int[] previousDeals = null;
+        int encodedBodies = 0;
+
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (snapshot.isUnchangedFromPreviousAt(minute)) {
+                previousDeals = null;
+                continue;
+            }
+            final int[] activeDeals = dealTimelineIndex.activeDealsAt(LocalTime.of(minute / 60, minute % 60));
+            if (Arrays.equals(activeDeals, previousDeals)) {
+                responses[minute] = responses[minute - 1];
+                continue;
+            }
+            responses[minute] = encode(dealTimelineIndex, activeDeals);
+            previousDeals = activeDeals;
+            encodedBodies++;
+        }
+
+        // Consecutive minutes share their body, so a new body starts wherever the reference changes
+        int distinctBodies = 0;
+        long totalBytes = 0;
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (minute == 0 || responses[minute] != responses[minute - 1]) {
+                distinctBodies++;
+                totalBytes += responses[minute].length;
+            }
+        }
+        if (totalBytes > maxBytes) {
+            log.info("Active deals responses exceed {} bytes, falling back to on demand computation", maxBytes);
+            return null;
+        }
+        return new PrecomputedResponses(snapshot, responses, distinctBodies, totalBytes, encodedBodies);
+    }
+
+    private byte[] encode(final DealTimelineIndex dealTimelineIndex, final int[] activeDeals) {
+        try {
+            return objectMapper.writeValueAsBytes(
+                activeDealsResponseMapper.mapToActiveDealsResponse(dealTimelineIndex, activeDeals));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode active deals response", e);
+        }
+    }
+
+    private record PrecomputedResponses(RestaurantSnapshot snapshot, byte[][] responses,
+                                        int distinctBodies, long totalBytes, int encodedBodies) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.eatclub.codingchallenge.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+public interface EncodedResponseCache {
+
+    /**
+     * JSON response to a normalized query against the current snapshot, tagged with an ETag derived from the snapshot
+     * version and the query. When the request's If-None-Match holds that ETag the response is a 304 and
+     * {@code response} is never subscribed to. Otherwise the encoded body is taken from the cache, or produced by
+     * {@code response} (a {@code byte[]} is written as is, anything else is encoded) and cached until the snapshot is
+     * refreshed. The body is gzipped when the request's Accept-Encoding allows it.
+     */
+    Mono<ResponseEntity<Object>> respond(String query, HttpHeaders requestHeaders, Supplier<Mono<?>> response);
+
+    /**
+     * Same as {@link #respond(String, HttpHeaders, Supplier)} for a response made only of the deals active at one
+     * minute of the day. Its cached body is kept across a refresh that patched the snapshot without changing any deal
+     * active at that minute.
+     */
+    Mono<ResponseEntity<Object>> respond(String query, int minuteOfDay, HttpHeaders requestHeaders,
+                                         Supplier<Mono<?>> response);
+}
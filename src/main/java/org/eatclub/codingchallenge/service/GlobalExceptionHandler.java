@@ -1,5 +1,6 @@
 package org.eatclub.codingchallenge.service;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -8,6 +9,8 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.server.ServerWebInputException;
 
+import java.util.concurrent.TimeoutException;
+
 @ControllerAdvice
 @Slf4j
 public class GlobalExceptionHandler {
@@ -26,6 +29,20 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>("Invalid parameter", HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(CursorExpiredException.class)
+    public ResponseEntity<String> handleCursorExpiredException(CursorExpiredException exception) {
+        log.info("Cursor expired: {}", exception.getMessage());
+
+        return new ResponseEntity<>("Cursor expired", HttpStatus.GONE);
+    }
+
+    @ExceptionHandler({CallNotPermittedException.class, TimeoutException.class})
+    public ResponseEntity<String> handleUpstreamUnavailableException(Exception exception) {
+        log.warn("Upstream unavailable: {}", exception.getMessage());
+
+        return new ResponseEntity<>("Service unavailable", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleAllOtherExceptions(Exception exception) {
         log.error("Exception occurred", exception);
@@ -0,0 +1,15 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.response.GroupedPeakWindowsResponse;
+import org.eatclub.codingchallenge.model.response.TopPeakWindowsResponse;
+import reactor.core.publisher.Mono;
+
+public interface PeakAnalyticsService {
+
+  // The k local peaks with the most deals, earliest first among equal counts
+  Mono<TopPeakWindowsResponse> getTopPeakWindows(int k);
+
+  // First peak window of every suburb or cuisine (groupBy), groups with the most deals at their peak first, at most
+  // limit of them (all when null)
+  Mono<GroupedPeakWindowsResponse> getGroupedPeakWindows(String groupBy, Integer limit);
+}
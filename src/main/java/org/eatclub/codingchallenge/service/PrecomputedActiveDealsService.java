@@ -0,0 +1,14 @@
+package org.eatclub.codingchallenge.service;
+
+import reactor.core.publisher.Mono;
+
+import java.time.LocalTime;
+
+public interface PrecomputedActiveDealsService {
+
+    /**
+     * Already encoded JSON body of the active deals response for the current snapshot, or empty when it has not
+     * been precomputed and the response needs to be built on demand.
+     */
+    Mono<byte[]> findEncodedActiveDealsAt(LocalTime timeOfDay);
+}
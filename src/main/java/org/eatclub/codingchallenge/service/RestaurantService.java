@@ -1,8 +1,14 @@
 package org.eatclub.codingchallenge.service;
 
 import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
 import reactor.core.publisher.Mono;
 
 public interface RestaurantService {
     Mono<RestaurantResponse> getRestaurants();
+
+    Mono<RestaurantSnapshot> getSnapshot();
+
+    // The current or the previous snapshot with the given version, empty once it has been replaced twice
+    Mono<RestaurantSnapshot> findSnapshot(long version);
 }
@@ -0,0 +1,9 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+
+/**
+ * Published by {@link CachingRestaurantService} every time a new upstream snapshot has been fetched and indexed.
+ */
+public record RestaurantSnapshotRefreshedEvent(RestaurantSnapshot snapshot) {
+}
@@ -0,0 +1,31 @@
+package org.eatclub.codingchallenge.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reports the snapshot being served under {@code upstreamRestaurants} in {@code /actuator/health}.
+ * <p>
+ * A stale snapshot is still served, so it is reported {@code UP} with its age rather than {@code DOWN}, the state of
+ * upstream itself is reported by the {@code circuitBreakers} indicator.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamRestaurantsHealthIndicator implements ReactiveHealthIndicator {
+
+    private final CachingRestaurantService restaurantService;
+
+    @Override
+    public Mono<Health> health() {
+        return Mono.fromSupplier(() -> restaurantService.getSnapshotStatus()
+            .map(status -> Health.up()
+                .withDetail("snapshotVersion", status.version())
+                .withDetail("ageSeconds", status.age().toSeconds())
+                .withDetail("stale", status.stale()))
+            .orElseGet(() -> Health.unknown().withDetail("reason", "No snapshot loaded yet"))
+            .build());
+    }
+}
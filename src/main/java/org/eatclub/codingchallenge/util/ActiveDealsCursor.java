@@ -0,0 +1,39 @@
+package org.eatclub.codingchallenge.util;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position in the active deals of one snapshot at one time of day and filter, handed to clients as an opaque URL safe
+ * string. The filter is only held as a hash, enough to reject a cursor reused with another filter.
+ */
+public record ActiveDealsCursor(long snapshotVersion, int secondOfDay, int filterHash, int offset) {
+
+    private static final int ENCODED_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+
+    public String encode() {
+        final ByteBuffer bytes = ByteBuffer.allocate(ENCODED_BYTES)
+            .putLong(snapshotVersion)
+            .putInt(secondOfDay)
+            .putInt(filterHash)
+            .putInt(offset);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException when the value wasn't produced by {@link #encode()}
+     */
+    public static ActiveDealsCursor decode(final String cursor) {
+        final byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Unexpected cursor length " + bytes.length);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final ActiveDealsCursor decoded = new ActiveDealsCursor(buffer.getLong(), buffer.getInt(), buffer.getInt(),
+            buffer.getInt());
+        if (decoded.offset() < 0 || decoded.secondOfDay() < 0) {
+            throw new IllegalArgumentException("Invalid cursor position");
+        }
+        return decoded;
+    }
+}
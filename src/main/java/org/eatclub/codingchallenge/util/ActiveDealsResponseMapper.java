@@ -1,9 +1,17 @@
 package org.eatclub.codingchallenge.util;
 
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
 import org.eatclub.codingchallenge.model.Deals;
 import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
 import org.eatclub.codingchallenge.model.response.DealsItem;
 
 public interface ActiveDealsResponseMapper {
     DealsItem mapToDealsItem(final Restaurant restaurant, final Deals deal);
+
+    ActiveDealsResponse mapToActiveDealsResponse(final DealTimelineIndex dealTimelineIndex, final int[] dealOrdinals);
+
+    // Maps only the ordinals in [from, to), the total count still covers all of them
+    ActiveDealsResponse mapToActiveDealsResponse(final DealTimelineIndex dealTimelineIndex, final int[] dealOrdinals,
+                                                 final int from, final int to);
 }
@@ -1,8 +1,20 @@
 package org.eatclub.codingchallenge.util;
 
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
 import java.util.Locale;
 
 public class Constants {
-    public final static DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("h:mma").localizedBy(Locale.US);
+    // Upstream sends lower case am/pm markers (e.g. "3:00pm"), the US locale text is "AM"/"PM"
+    public final static DateTimeFormatter TIME_FORMATTER = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .appendPattern("h:mma")
+        .toFormatter(Locale.US);
+    // Request times of day, with an optional am/pm marker in any case, whatever the locale of the server
+    public final static DateTimeFormatter TIME_OF_DAY_FORMATTER = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .appendPattern("h:mm[a]")
+        .toFormatter(Locale.US)
+        .withResolverStyle(ResolverStyle.STRICT);
 }
@@ -1,10 +1,15 @@
 package org.eatclub.codingchallenge.util;
 
+import org.eatclub.codingchallenge.index.DealTimelineIndex;
 import org.eatclub.codingchallenge.model.Deals;
 import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
 import org.eatclub.codingchallenge.model.response.DealsItem;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.List;
+
 @Component
 public class DefaultActiveDealsResponseMapper implements ActiveDealsResponseMapper {
 
@@ -23,4 +28,20 @@ public class DefaultActiveDealsResponseMapper implements ActiveDealsResponseMapp
             .qtyLeft(deal.getQtyLeft())
             .build();
     }
+
+    public ActiveDealsResponse mapToActiveDealsResponse(final DealTimelineIndex dealTimelineIndex,
+                                                        final int[] dealOrdinals) {
+        return mapToActiveDealsResponse(dealTimelineIndex, dealOrdinals, 0, dealOrdinals.length);
+    }
+
+    public ActiveDealsResponse mapToActiveDealsResponse(final DealTimelineIndex dealTimelineIndex,
+                                                        final int[] dealOrdinals, final int from, final int to) {
+        final List<DealsItem> dealsItemList = Arrays.stream(dealOrdinals, from, to)
+            .mapToObj(deal -> mapToDealsItem(dealTimelineIndex.getRestaurant(deal), dealTimelineIndex.getDeal(deal)))
+            .toList();
+        return ActiveDealsResponse.builder()
+            .deals(dealsItemList)
+            .totalCount(dealOrdinals.length)
+            .build();
+    }
 }
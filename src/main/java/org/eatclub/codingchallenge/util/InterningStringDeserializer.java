@@ -0,0 +1,52 @@
+package org.eatclub.codingchallenge.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * String deserializer for upstream values that repeat across restaurants and deals (suburbs, cuisines, times,
+ * discounts).
+ * <p>
+ * When the reader carries a {@link StringInterner} attribute every equal value is replaced by the first instance seen,
+ * so a snapshot holds one copy of each. The interner only lives as long as one decode, nothing is shared between
+ * snapshots. Without the attribute values are returned as is.
+ */
+public class InterningStringDeserializer extends StdScalarDeserializer<String> {
+
+    public InterningStringDeserializer() {
+        super(String.class);
+    }
+
+    @Override
+    public String deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+        final String value = StringDeserializer.instance.deserialize(parser, context);
+        return context.getAttribute(StringInterner.class) instanceof StringInterner interner
+            ? interner.intern(value)
+            : value;
+    }
+
+    /**
+     * Canonical instances of the strings decoded so far, keyed by its own class as a reader attribute.
+     */
+    public static final class StringInterner {
+        private final Map<String, String> values = new HashMap<>();
+
+        public String intern(final String value) {
+            if (value == null) {
+                return null;
+            }
+            final String existing = values.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+
+        public int size() {
+            return values.size();
+        }
+    }
+}
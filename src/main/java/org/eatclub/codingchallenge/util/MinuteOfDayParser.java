@@ -0,0 +1,78 @@
+package org.eatclub.codingchallenge.util;
+
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
+
+/**
+ * Parses upstream {@code h:mma} times straight into a minute of day without allocating.
+ * <p>
+ * Accepts exactly what {@code LocalTime.parse(text, Constants.TIME_FORMATTER)} accepts: a clock hour of up to 19 ASCII
+ * digits with a value from 0 to 12 (0 reads as 12), a colon, a two digit minute from 00 to 59 and an am/pm marker in
+ * any case, with nothing before or after. Anything else is rejected with a {@link DateTimeParseException}.
+ */
+public final class MinuteOfDayParser {
+
+    // Widest number DateTimeFormatter reads for a single letter pattern
+    private static final int MAX_HOUR_DIGITS = 19;
+    private static final int MAX_CLOCK_HOUR = 12;
+
+    private MinuteOfDayParser() {
+    }
+
+    public static int parse(final CharSequence text) {
+        Objects.requireNonNull(text, "text");
+        final int length = text.length();
+
+        int position = 0;
+        int hour = 0;
+        while (position < length && position < MAX_HOUR_DIGITS && isDigit(text.charAt(position))) {
+            // Saturate, any value past 12 is out of range however many digits follow
+            hour = Math.min(hour * 10 + (text.charAt(position) - '0'), MAX_CLOCK_HOUR + 1);
+            position++;
+        }
+        if (position == 0) {
+            throw error(text, position);
+        }
+        if (position == length || text.charAt(position) != ':') {
+            throw error(text, position);
+        }
+        position++;
+
+        if (length - position < 2 || !isDigit(text.charAt(position)) || !isDigit(text.charAt(position + 1))) {
+            throw error(text, position);
+        }
+        final int minute = (text.charAt(position) - '0') * 10 + (text.charAt(position + 1) - '0');
+        position += 2;
+
+        if (length - position < 2) {
+            throw error(text, position);
+        }
+        final char marker = Character.toLowerCase(text.charAt(position));
+        if ((marker != 'a' && marker != 'p') || Character.toLowerCase(text.charAt(position + 1)) != 'm') {
+            throw error(text, position);
+        }
+        if (length != position + 2) {
+            throw new DateTimeParseException(
+                "Text '" + text + "' could not be parsed, unparsed text found at index " + (position + 2),
+                text, position + 2);
+        }
+
+        if (hour > MAX_CLOCK_HOUR) {
+            throw new DateTimeParseException("Text '" + text + "' could not be parsed: Invalid value for "
+                + "ClockHourOfAmPm (valid values 1 - 12): " + hour, text, 0);
+        }
+        if (minute > 59) {
+            throw new DateTimeParseException("Text '" + text + "' could not be parsed: Invalid value for "
+                + "MinuteOfHour (valid values 0 - 59): " + minute, text, 0);
+        }
+        return ((hour % MAX_CLOCK_HOUR) + (marker == 'p' ? MAX_CLOCK_HOUR : 0)) * 60 + minute;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static DateTimeParseException error(final CharSequence text, final int index) {
+        return new DateTimeParseException("Text '" + text + "' could not be parsed at index " + index, text, index);
+    }
+}
@@ -0,0 +1,164 @@
+package org.eatclub.codingchallenge.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.RequiredArgsConstructor;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.util.InterningStringDeserializer.StringInterner;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the upstream {@code {"restaurants": [...]}} document, either incrementally or from a buffered body.
+ * <p>
+ * When decoding incrementally, body chunks are pushed through Jackson's non-blocking parser as they arrive and
+ * released straight away. Only the tokens of the restaurant currently being read are buffered, and each restaurant is
+ * emitted as soon as its closing brace has been seen, so neither the raw body nor its full token stream is ever held
+ * in memory.
+ * <p>
+ * Every decoded document gets its own {@link StringInterner}, so values repeated across the restaurants and deals of
+ * one snapshot share a single instance.
+ */
+@Component
+@RequiredArgsConstructor
+public class RestaurantFeedDecoder {
+
+    private static final String RESTAURANTS_FIELD = "restaurants";
+
+    private final ObjectMapper objectMapper;
+
+    public Flux<Restaurant> decode(final Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            final Tokenizer tokenizer = new Tokenizer();
+            return body
+                .concatMapIterable(tokenizer::feed)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(tokenizer.endOfInput())))
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * Decodes a fully buffered document and releases the buffer.
+     */
+    public RestaurantResponse decodeDocument(final DataBuffer document) {
+        try (InputStream input = document.asInputStream(true)) {
+            return objectMapper.readerFor(RestaurantResponse.class)
+                .withAttribute(StringInterner.class, new StringInterner())
+                .readValue(input);
+        } catch (IOException e) {
+            throw new DecodingException("Unable to decode restaurants", e);
+        }
+    }
+
+    private final class Tokenizer {
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final ObjectReader restaurantReader = objectMapper.readerFor(Restaurant.class)
+            .withAttribute(StringInterner.class, new StringInterner());
+        // nesting depth of the document outside the restaurant being buffered
+        private int depth;
+        private boolean inRestaurants;
+        private boolean restaurantsFieldNext;
+        private TokenBuffer restaurantTokens;
+        private int restaurantDepth;
+
+        private Tokenizer() {
+            try {
+                this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new DecodingException("Unable to create restaurants parser", e);
+            }
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        List<Restaurant> feed(final DataBuffer buffer) {
+            final byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            DataBufferUtils.release(buffer);
+            try {
+                feeder.feedInput(bytes, 0, bytes.length);
+                return readAvailable();
+            } catch (IOException e) {
+                throw new DecodingException("Unable to decode restaurants", e);
+            }
+        }
+
+        List<Restaurant> endOfInput() {
+            feeder.endOfInput();
+            try {
+                final List<Restaurant> restaurants = readAvailable();
+                if (depth != 0 || restaurantTokens != null) {
+                    throw new DecodingException("Restaurants document ended unexpectedly");
+                }
+                return restaurants;
+            } catch (IOException e) {
+                throw new DecodingException("Unable to decode restaurants", e);
+            }
+        }
+
+        private List<Restaurant> readAvailable() throws IOException {
+            final List<Restaurant> restaurants = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (restaurantTokens != null) {
+                    bufferRestaurantToken(token, restaurants);
+                } else if (inRestaurants && depth == 2 && token == JsonToken.START_OBJECT) {
+                    restaurantTokens = new TokenBuffer(parser);
+                    restaurantDepth = 0;
+                    bufferRestaurantToken(token, restaurants);
+                } else {
+                    navigate(token);
+                }
+            }
+            return restaurants;
+        }
+
+        private void bufferRestaurantToken(final JsonToken token, final List<Restaurant> restaurants)
+            throws IOException {
+            restaurantTokens.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                restaurantDepth++;
+            } else if (token.isStructEnd()) {
+                restaurantDepth--;
+            }
+            if (restaurantDepth == 0) {
+                try (JsonParser restaurantParser = restaurantTokens.asParser(objectMapper)) {
+                    restaurants.add(restaurantReader.readValue(restaurantParser));
+                }
+                restaurantTokens = null;
+            }
+        }
+
+        private void navigate(final JsonToken token) throws IOException {
+            if (token == JsonToken.FIELD_NAME) {
+                restaurantsFieldNext = depth == 1 && RESTAURANTS_FIELD.equals(parser.currentName());
+                return;
+            }
+            if (token.isStructStart()) {
+                depth++;
+                if (depth == 2) {
+                    inRestaurants = restaurantsFieldNext && token == JsonToken.START_ARRAY;
+                }
+            } else if (token.isStructEnd()) {
+                if (depth == 2) {
+                    inRestaurants = false;
+                }
+                depth--;
+            }
+            restaurantsFieldNext = false;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.eatclub.codingchallenge.util;
+
+import org.springframework.format.Formatter;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Binds {@code timeOfDay}, {@code from}, {@code to} and {@code timesOfDay} request parameters, e.g. {@code 4:00pm}.
+ * <p>
+ * Parses with {@link Constants#TIME_OF_DAY_FORMATTER} whatever the locale of the server or the request, so am/pm
+ * markers are read in any case, and falls back to ISO times such as {@code 16:00}, as {@code @DateTimeFormat} did.
+ */
+public class TimeOfDayFormatter implements Formatter<LocalTime> {
+
+    @Override
+    public LocalTime parse(final String text, final Locale locale) {
+        try {
+            return LocalTime.parse(text, Constants.TIME_OF_DAY_FORMATTER);
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalTime.parse(text);
+            } catch (DateTimeParseException ignored) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public String print(final LocalTime time, final Locale locale) {
+        return Constants.TIME_OF_DAY_FORMATTER.format(time);
+    }
+}
@@ -1,13 +1,51 @@
 package org.eatclub.codingchallenge;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest
 class CodingChallengeApplicationTests {
 
+    @Autowired
+    private RetryRegistry retryRegistry;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void shouldOnlyRetryUpstreamServerErrorsIoErrorsAndTimeoutsButCountClientErrors() {
+        // Given
+        RetryConfig retryConfig = retryRegistry.retry("upstreamRestaurants").getRetryConfig();
+        CircuitBreakerConfig circuitBreakerConfig =
+            circuitBreakerRegistry.circuitBreaker("upstreamRestaurants").getCircuitBreakerConfig();
+        HttpClientErrorException notFound = new HttpClientErrorException(HttpStatus.NOT_FOUND);
+
+        // When / Then
+        assertThat(retryConfig.getExceptionPredicate().test(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)))
+            .isTrue();
+        assertThat(retryConfig.getExceptionPredicate().test(new IOException("Connection reset"))).isTrue();
+        assertThat(retryConfig.getExceptionPredicate().test(new TimeoutException())).isTrue();
+        assertThat(retryConfig.getExceptionPredicate().test(notFound)).isFalse();
+        // Not retried, but still counted so failing first loads open the circuit
+        assertThat(circuitBreakerConfig.getIgnoreExceptionPredicate().test(notFound)).isFalse();
+        assertThat(circuitBreakerConfig.getRecordExceptionPredicate().test(notFound)).isTrue();
+    }
+
 }
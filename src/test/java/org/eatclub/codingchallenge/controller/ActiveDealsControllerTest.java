@@ -1,27 +1,50 @@
 package org.eatclub.codingchallenge.controller;
 
+import org.eatclub.codingchallenge.model.DealFilter;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.ActiveDealsAtTime;
+import org.eatclub.codingchallenge.model.response.ActiveDealsBatchResponse;
 import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
 import org.eatclub.codingchallenge.model.response.DealsItem;
 import org.eatclub.codingchallenge.service.ActiveDealsService;
+import org.eatclub.codingchallenge.service.CursorExpiredException;
+import org.eatclub.codingchallenge.service.DefaultEncodedResponseCache;
+import org.eatclub.codingchallenge.service.PrecomputedActiveDealsService;
+import org.eatclub.codingchallenge.service.RestaurantService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalTime;
 import java.util.Collections;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = ActiveDealsController.class)
+@Import(DefaultEncodedResponseCache.class)
 @ActiveProfiles("test")
 class ActiveDealsControllerTest {
+    private static final DealFilter NO_FILTER = DealFilter.builder().build();
 
     @Autowired
     private WebTestClient webTestClient;
@@ -29,6 +52,21 @@ class ActiveDealsControllerTest {
     @MockitoBean
     private ActiveDealsService activeDealsService;
 
+    @MockitoBean
+    private PrecomputedActiveDealsService precomputedActiveDealsService;
+
+    @MockitoBean
+    private RestaurantService restaurantService;
+
+    @BeforeEach
+    void setUp() {
+        // A new snapshot per test, so no test is answered from the responses cached by another
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(
+            RestaurantResponse.builder().restaurants(Collections.emptyList()).build())));
+        when(precomputedActiveDealsService.findEncodedActiveDealsAt(any(LocalTime.class)))
+            .thenReturn(Mono.empty());
+    }
+
     @Test
     void shouldReturnActiveDealsSuccessfully() {
         // Given
@@ -163,4 +201,324 @@ class ActiveDealsControllerTest {
             .exchange()
             .expectStatus().isOk();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldWritePrecomputedResponseWithoutCallingService() {
+        // Given
+        byte[] encoded = "{\"deals\":[{\"dealObjectId\":\"deal456\"}]}".getBytes(StandardCharsets.UTF_8);
+        when(precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0)))
+            .thenReturn(Mono.just(encoded));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.deals[0].dealObjectId").isEqualTo("deal456");
+
+        // Then
+        verify(activeDealsService, never()).getActiveDealsAt(any(LocalTime.class));
+    }
+
+    @Test
+    void shouldStreamActiveDealsAsNdjson() {
+        // Given
+        when(activeDealsService.streamActiveDealsAt(LocalTime.of(16, 0), NO_FILTER))
+            .thenReturn(Flux.just(
+                DealsItem.builder().dealObjectId("deal1").build(),
+                DealsItem.builder().dealObjectId("deal2").build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(DealsItem.class)
+            .getResponseBody()
+            .as(StepVerifier::create)
+            .assertNext(item -> assertThat(item.getDealObjectId()).isEqualTo("deal1"))
+            .assertNext(item -> assertThat(item.getDealObjectId()).isEqualTo("deal2"))
+            .verifyComplete();
+
+        // Then
+        verify(activeDealsService, never()).getActiveDealsAt(any(LocalTime.class));
+    }
+
+    @Test
+    void shouldStreamActiveDealsAsServerSentEvents() {
+        // Given
+        when(activeDealsService.streamActiveDealsAt(LocalTime.of(16, 0), NO_FILTER))
+            .thenReturn(Flux.just(DealsItem.builder().dealObjectId("deal1").build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .expectBody(String.class)
+            .value(body -> assertThat(body).contains("data:{\"restaurantObjectId\":null")
+                .contains("\"dealObjectId\":\"deal1\""));
+    }
+
+    @Test
+    void shouldReturnJsonDocumentByDefault() {
+        // Given
+        when(activeDealsService.getActiveDealsAt(any(LocalTime.class)))
+            .thenReturn(Mono.just(ActiveDealsResponse.builder().deals(Collections.emptyList()).build()));
+
+        // Then
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON);
+
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm")
+            .accept(MediaType.ALL)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON);
+
+        verify(activeDealsService, never()).streamActiveDealsAt(any(LocalTime.class), any(DealFilter.class));
+    }
+
+    @Test
+    void shouldReturnPageWhenLimitOrCursorIsGiven() {
+        // Given
+        when(activeDealsService.getActiveDealsPageAt(LocalTime.of(16, 0), NO_FILTER, "abc", 10))
+            .thenReturn(Mono.just(ActiveDealsResponse.builder()
+                .deals(List.of(DealsItem.builder().dealObjectId("deal1").build()))
+                .totalCount(11)
+                .nextCursor("def")
+                .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm&limit=10&cursor=abc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.deals[0].dealObjectId").isEqualTo("deal1")
+            .jsonPath("$.totalCount").isEqualTo(11)
+            .jsonPath("$.nextCursor").isEqualTo("def");
+
+        // Then
+        verify(precomputedActiveDealsService, never()).findEncodedActiveDealsAt(any(LocalTime.class));
+        verify(activeDealsService, never()).getActiveDealsAt(any(LocalTime.class));
+    }
+
+    @Test
+    void shouldReturnGoneWhenCursorExpired() {
+        // Given
+        when(activeDealsService.getActiveDealsPageAt(LocalTime.of(16, 0), NO_FILTER, "abc", null))
+            .thenReturn(Mono.error(new CursorExpiredException(1L)));
+
+        // Then
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm&cursor=abc")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    void shouldPassFiltersToServiceInsteadOfPrecomputedResponse() {
+        // Given
+        DealFilter filter = DealFilter.builder()
+            .suburb("Richmond")
+            .cuisine("Thai")
+            .dineIn(true)
+            .lightning(false)
+            .minDiscount(25)
+            .build();
+        when(activeDealsService.getActiveDealsPageAt(LocalTime.of(16, 0), filter, null, null))
+            .thenReturn(Mono.just(ActiveDealsResponse.builder()
+                .deals(List.of(DealsItem.builder().dealObjectId("deal1").build()))
+                .totalCount(1)
+                .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm&suburb=Richmond&cuisine=Thai&dineIn=true&lightning=false&minDiscount=25")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.deals[0].dealObjectId").isEqualTo("deal1")
+            .jsonPath("$.totalCount").isEqualTo(1);
+
+        // Then
+        verify(precomputedActiveDealsService, never()).findEncodedActiveDealsAt(any(LocalTime.class));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenFilterIsInvalid() {
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm&minDiscount=lots")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldAnswerRevalidationWithNotModifiedWithoutCallingService() {
+        // Given
+        when(activeDealsService.getActiveDealsAt(LocalTime.of(16, 0)))
+            .thenReturn(Mono.just(ActiveDealsResponse.builder().deals(Collections.emptyList()).build()));
+        String eTag = webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=4:00pm")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals?timeOfDay=04:00pm")
+            .ifNoneMatch(eTag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, eTag)
+            .expectBody().isEmpty();
+
+        // Then
+        assertThat(eTag).isNotBlank();
+        verify(activeDealsService, times(1)).getActiveDealsAt(any(LocalTime.class));
+    }
+
+    @Test
+    void shouldServeRepeatedQueryFromCache() {
+        // Given
+        when(activeDealsService.getActiveDealsAt(LocalTime.of(16, 0)))
+            .thenReturn(Mono.just(ActiveDealsResponse.builder()
+                .deals(List.of(DealsItem.builder().dealObjectId("deal1").build()))
+                .build()));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            webTestClient
+                .get()
+                .uri("/active-deals?timeOfDay=4:00pm")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.deals[0].dealObjectId").isEqualTo("deal1");
+        }
+
+        // Then
+        verify(activeDealsService, times(1)).getActiveDealsAt(any(LocalTime.class));
+        verify(precomputedActiveDealsService, times(1)).findEncodedActiveDealsAt(any(LocalTime.class));
+    }
+
+    @Test
+    void shouldReturnDealsActiveInWindow() {
+        // Given
+        DealFilter filter = DealFilter.builder().cuisine("Thai").build();
+        when(activeDealsService.getActiveDealsBetween(LocalTime.of(18, 0), LocalTime.of(20, 0), filter))
+            .thenReturn(Mono.just(ActiveDealsResponse.builder()
+                .deals(List.of(DealsItem.builder().dealObjectId("deal1").build()))
+                .totalCount(1)
+                .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals/window?from=6:00pm&to=8:00pm&cuisine=Thai")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.deals[0].dealObjectId").isEqualTo("deal1")
+            .jsonPath("$.totalCount").isEqualTo(1);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenWindowIsIncomplete() {
+        for (String query : List.of("?from=6:00pm", "?to=8:00pm", "?from=6:00pm&to=soon")) {
+            webTestClient
+                .get()
+                .uri("/active-deals/window" + query)
+                .exchange()
+                .expectStatus().isBadRequest();
+        }
+        verify(activeDealsService, never()).getActiveDealsBetween(any(), any(), any());
+    }
+
+    @Test
+    void shouldAnswerListOfTimesInOneBatch() {
+        // Given
+        DealFilter filter = DealFilter.builder().suburb("Richmond").build();
+        when(activeDealsService.getActiveDealsAt(List.of(LocalTime.of(17, 0), LocalTime.of(17, 30)), filter))
+            .thenReturn(Mono.just(ActiveDealsBatchResponse.builder()
+                .deals(List.of(DealsItem.builder().dealObjectId("deal1").build()))
+                .times(List.of(
+                    ActiveDealsAtTime.builder().timeOfDay(LocalTime.of(17, 0)).dealIndexes(new int[] {0})
+                        .totalCount(1).build(),
+                    ActiveDealsAtTime.builder().timeOfDay(LocalTime.of(17, 30)).dealIndexes(new int[0])
+                        .totalCount(0).build()))
+                .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals/batch?timesOfDay=5:00pm,5:30pm&suburb=Richmond")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.deals[0].dealObjectId").isEqualTo("deal1")
+            .jsonPath("$.times[0].timeOfDay").isEqualTo("17:00:00")
+            .jsonPath("$.times[0].dealIndexes[0]").isEqualTo(0)
+            .jsonPath("$.times[1].dealIndexes.length()").isEqualTo(0)
+            .jsonPath("$.times[1].totalCount").isEqualTo(0);
+    }
+
+    @Test
+    void shouldExpandTimeRangeIntoBatch() {
+        // Given
+        when(activeDealsService.getActiveDealsAt(anyList(), any(DealFilter.class)))
+            .thenReturn(Mono.just(ActiveDealsBatchResponse.builder().deals(List.of()).times(List.of()).build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/active-deals/batch?from=5:00pm&to=10:00pm&stepMinutes=60")
+            .exchange()
+            .expectStatus().isOk();
+
+        // Then
+        verify(activeDealsService).getActiveDealsAt(List.of(LocalTime.of(17, 0), LocalTime.of(18, 0),
+            LocalTime.of(19, 0), LocalTime.of(20, 0), LocalTime.of(21, 0), LocalTime.of(22, 0)), NO_FILTER);
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenBatchTimesAreInvalid() {
+        for (String query : List.of("", "?timesOfDay=5:00pm&from=5:00pm&to=6:00pm", "?from=5:00pm",
+            "?from=6:00pm&to=5:00pm", "?from=5:00pm&to=6:00pm&stepMinutes=0", "?timesOfDay=5:00pm,later")) {
+            webTestClient
+                .get()
+                .uri("/active-deals/batch" + query)
+                .exchange()
+                .expectStatus().isBadRequest();
+        }
+        verify(activeDealsService, never()).getActiveDealsAt(anyList(), any());
+    }
+}
@@ -0,0 +1,121 @@
+package org.eatclub.codingchallenge.controller;
+
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.DealDensityBucket;
+import org.eatclub.codingchallenge.model.response.DealDensityResponse;
+import org.eatclub.codingchallenge.service.DealDensityService;
+import org.eatclub.codingchallenge.service.DefaultEncodedResponseCache;
+import org.eatclub.codingchallenge.service.RestaurantService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(controllers = DealDensityController.class)
+@Import(DefaultEncodedResponseCache.class)
+@ActiveProfiles("test")
+class DealDensityControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private DealDensityService dealDensityService;
+
+    @MockitoBean
+    private RestaurantService restaurantService;
+
+    @BeforeEach
+    void setUp() {
+        // A new snapshot per test, so no test is answered from the responses cached by another
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(
+            RestaurantResponse.builder().restaurants(Collections.emptyList()).build())));
+    }
+
+    @Test
+    void shouldReturnDealDensityBuckets() {
+        // Given
+        when(dealDensityService.getDealDensity(720, true)).thenReturn(Mono.just(DealDensityResponse.builder()
+            .bucketMinutes(720)
+            .buckets(List.of(
+                DealDensityBucket.builder().start(LocalTime.MIDNIGHT).activeDeals(0).qtyLeft(0L).build(),
+                DealDensityBucket.builder().start(LocalTime.NOON).activeDeals(2).qtyLeft(8L).build()))
+            .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/deal-density?bucketMinutes=720&qtyLeft=true")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.bucketMinutes").isEqualTo(720)
+            .jsonPath("$.buckets[1].start").isEqualTo("12:00:00")
+            .jsonPath("$.buckets[1].activeDeals").isEqualTo(2)
+            .jsonPath("$.buckets[1].qtyLeft").isEqualTo(8);
+    }
+
+    @Test
+    void shouldDefaultToMinuteBucketsWithoutQtyLeft() {
+        // Given
+        when(dealDensityService.getDealDensity(1, false)).thenReturn(Mono.just(DealDensityResponse.builder()
+            .bucketMinutes(1)
+            .buckets(List.of(DealDensityBucket.builder().start(LocalTime.MIDNIGHT).activeDeals(1).build()))
+            .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/deal-density")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.buckets[0].activeDeals").isEqualTo(1)
+            .jsonPath("$.buckets[0].qtyLeft").doesNotExist();
+    }
+
+    @Test
+    void shouldReturnBadRequestForInvalidBucketMinutes() {
+        // Given
+        when(dealDensityService.getDealDensity(anyInt(), anyBoolean()))
+            .thenReturn(Mono.error(new ServerWebInputException("bucketMinutes must be from 1 to 1440")));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/deal-density?bucketMinutes=0")
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(String.class)
+            .isEqualTo("Invalid parameter");
+    }
+
+    @Test
+    void shouldReturnBadRequestForNonNumericBucketMinutes() {
+        webTestClient
+            .get()
+            .uri("/deal-density?bucketMinutes=hourly")
+            .exchange()
+            .expectStatus().isBadRequest();
+        verifyNoInteractions(dealDensityService);
+    }
+}
@@ -0,0 +1,96 @@
+package org.eatclub.codingchallenge.controller;
+
+import org.eatclub.codingchallenge.model.response.DealEvent;
+import org.eatclub.codingchallenge.model.response.DealsItem;
+import org.eatclub.codingchallenge.service.DealEventService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@WebFluxTest(controllers = DealEventsController.class)
+@ActiveProfiles("test")
+class DealEventsControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private DealEventService dealEventService;
+
+    @Test
+    void shouldStreamDealEventsNamedByType() {
+        // Given
+        when(dealEventService.subscribe(Set.of("activated", "qty-changed"))).thenReturn(Flux.just(DealEvent.builder()
+            .type("activated")
+            .timeOfDay(LocalTime.of(15, 0))
+            .snapshotVersion(7)
+            .deal(DealsItem.builder().dealObjectId("deal1").qtyLeft(5).build())
+            .active(true)
+            .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/deal-events?types=Activated,qty-changed")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .expectBody(String.class)
+            .value(body -> assertThat(body).contains("event:activated")
+                .contains("\"timeOfDay\":\"15:00:00\"")
+                .contains("\"dealObjectId\":\"deal1\""));
+    }
+
+    @Test
+    void shouldSendHeartbeatCommentsBetweenEvents() {
+        // Given
+        final DealEventsController controller = new DealEventsController(dealEventService);
+        setField(controller, "heartbeatSeconds", 15L);
+        when(dealEventService.subscribe(Set.of())).thenReturn(Flux.never());
+
+        // When / Then
+        StepVerifier.withVirtualTime(() -> controller.streamDealEvents(null))
+            .expectSubscription()
+            .expectNoEvent(Duration.ofSeconds(15))
+            .assertNext(event -> {
+                assertThat(event.comment()).isEqualTo("heartbeat");
+                assertThat(event.data()).isNull();
+            })
+            .thenAwait(Duration.ofSeconds(15))
+            .assertNext(event -> assertThat(event.comment()).isEqualTo("heartbeat"))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldReturnBadRequestForUnknownEventType() {
+        // Given
+        when(dealEventService.subscribe(any()))
+            .thenReturn(Flux.error(new ServerWebInputException("types must be among the event types")));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/deal-events?types=sold-out")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+}
@@ -1,10 +1,22 @@
 package org.eatclub.codingchallenge.controller;
 
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.GroupPeakWindow;
+import org.eatclub.codingchallenge.model.response.GroupedPeakWindowsResponse;
 import org.eatclub.codingchallenge.model.response.PeakDealTimeRangeResponse;
+import org.eatclub.codingchallenge.model.response.PeakWindow;
+import org.eatclub.codingchallenge.model.response.TopPeakWindowsResponse;
+import org.eatclub.codingchallenge.service.DefaultEncodedResponseCache;
+import org.eatclub.codingchallenge.service.PeakAnalyticsService;
 import org.eatclub.codingchallenge.service.PeakDealTimeRangeService;
+import org.eatclub.codingchallenge.service.RestaurantService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -12,10 +24,18 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = PeakDealTimeController.class)
+@Import(DefaultEncodedResponseCache.class)
 @ActiveProfiles("test")
 class PeakDealTimeControllerTest {
 
@@ -25,6 +45,19 @@ class PeakDealTimeControllerTest {
     @MockitoBean
     private PeakDealTimeRangeService peakDealTimeRangeService;
 
+    @MockitoBean
+    private PeakAnalyticsService peakAnalyticsService;
+
+    @MockitoBean
+    private RestaurantService restaurantService;
+
+    @BeforeEach
+    void setUp() {
+        // A new snapshot per test, so no test is answered from the responses cached by another
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(
+            RestaurantResponse.builder().restaurants(Collections.emptyList()).build())));
+    }
+
     @Test
     void shouldReturnPeakTimeWindowSuccessfully() {
         // Given
@@ -65,4 +98,109 @@ class PeakDealTimeControllerTest {
             .expectBody(String.class)
             .isEqualTo("Internal Server error");
     }
+
+    @Test
+    void shouldAnswerRevalidationWithNotModifiedUntilSnapshotChanges() {
+        // Given
+        when(peakDealTimeRangeService.getPeakDealTimeRange())
+            .thenReturn(Mono.just(PeakDealTimeRangeResponse.builder()
+                .peakTimeStart(LocalTime.of(12, 0))
+                .peakTimeEnd(LocalTime.of(15, 0))
+                .build()));
+        String eTag = webTestClient
+            .get()
+            .uri("/peak-time-window")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+
+        // When
+        webTestClient
+            .get()
+            .uri("/peak-time-window")
+            .header(HttpHeaders.IF_NONE_MATCH, "W/" + eTag)
+            .exchange()
+            .expectStatus().isNotModified();
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(
+            RestaurantResponse.builder().restaurants(Collections.emptyList()).build())));
+
+        // Then
+        webTestClient
+            .get()
+            .uri("/peak-time-window")
+            .ifNoneMatch(eTag)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().value(HttpHeaders.ETAG, value -> assertThat(value).isNotEqualTo(eTag))
+            .expectBody()
+            .jsonPath("$.peakTimeStart").isEqualTo("12:00:00");
+        verify(peakDealTimeRangeService, times(2)).getPeakDealTimeRange();
+    }
+
+    @Test
+    void shouldReturnTopPeakTimeWindows() {
+        // Given
+        when(peakAnalyticsService.getTopPeakWindows(2)).thenReturn(Mono.just(TopPeakWindowsResponse.builder()
+            .windows(List.of(
+                PeakWindow.builder().peakTimeStart(LocalTime.of(12, 0)).peakTimeEnd(LocalTime.of(14, 0))
+                    .activeDeals(3).build(),
+                PeakWindow.builder().peakTimeStart(LocalTime.of(18, 0)).peakTimeEnd(LocalTime.of(19, 0))
+                    .activeDeals(2).build()))
+            .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/peak-time-window/top?k=2")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.windows.length()").isEqualTo(2)
+            .jsonPath("$.windows[0].peakTimeStart").isEqualTo("12:00:00")
+            .jsonPath("$.windows[0].activeDeals").isEqualTo(3)
+            .jsonPath("$.windows[1].peakTimeEnd").isEqualTo("19:00:00");
+    }
+
+    @Test
+    void shouldReturnGroupedPeakTimeWindows() {
+        // Given
+        when(peakAnalyticsService.getGroupedPeakWindows("Suburb", 1))
+            .thenReturn(Mono.just(GroupedPeakWindowsResponse.builder()
+                .groupBy("suburb")
+                .totalGroups(2)
+                .groups(List.of(GroupPeakWindow.builder()
+                    .group("carlton")
+                    .peakTimeStart(LocalTime.of(18, 0))
+                    .peakTimeEnd(LocalTime.of(19, 0))
+                    .activeDeals(2)
+                    .build()))
+                .build()));
+
+        // When
+        webTestClient
+            .get()
+            .uri("/peak-time-window/groups?groupBy=Suburb&limit=1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.groupBy").isEqualTo("suburb")
+            .jsonPath("$.totalGroups").isEqualTo(2)
+            .jsonPath("$.groups[0].group").isEqualTo("carlton")
+            .jsonPath("$.groups[0].peakTimeStart").isEqualTo("18:00:00");
+    }
+
+    @Test
+    void shouldRejectGroupedPeakTimeWindowsWithoutGroupBy() {
+        // When
+        webTestClient
+            .get()
+            .uri("/peak-time-window/groups")
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        // Then
+        verify(peakAnalyticsService, never()).getGroupedPeakWindows(any(), any());
+    }
 }
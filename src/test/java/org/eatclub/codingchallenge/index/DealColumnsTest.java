@@ -0,0 +1,87 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.junit.jupiter.api.Test;
+
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DealColumnsTest {
+
+    @Test
+    void shouldResolveDealTimesWithFallbackOrder() {
+        // Given
+        final Restaurant restaurant = createRestaurant("r1", "9:00am", "10:00pm",
+            Deals.builder().start("10:00am").open("11:00am").end("2:00pm").close("1:00pm").build(),
+            Deals.builder().open("11:00am").close("1:00pm").build(),
+            Deals.builder().start("").open("").end("").close("").build());
+
+        // When
+        final DealColumns columns = DealColumns.build(List.of(restaurant));
+
+        // Then
+        assertThat(columns.getDealCount()).isEqualTo(3);
+        assertThat(columns.startMinute(0)).isEqualTo(10 * 60);
+        assertThat(columns.endMinute(0)).isEqualTo(14 * 60);
+        assertThat(columns.startMinute(1)).isEqualTo(11 * 60);
+        assertThat(columns.endMinute(1)).isEqualTo(13 * 60);
+        assertThat(columns.startMinute(2)).isEqualTo(9 * 60);
+        assertThat(columns.endMinute(2)).isEqualTo(22 * 60);
+    }
+
+    @Test
+    void shouldHoldDealAttributesAsPrimitives() {
+        // Given
+        final Restaurant first = createRestaurant("r1", "9:00am", "10:00pm",
+            Deals.builder().discount("30").qtyLeft(4).dineIn(true).build());
+        final Restaurant withoutDeals = createRestaurant("r2", "9:00am", "10:00pm");
+        final Restaurant second = createRestaurant("r3", "9:00am", "10:00pm",
+            Deals.builder().discount("n/a").qtyLeft(0).lightning(true).build());
+
+        // When
+        final DealColumns columns = DealColumns.build(List.of(first, withoutDeals, second));
+
+        // Then
+        assertThat(columns.getRestaurantCount()).isEqualTo(2);
+        assertThat(columns.getRestaurant(columns.restaurantOf(1)).getObjectId()).isEqualTo("r3");
+        assertThat(columns.discount(0)).isEqualTo(30);
+        assertThat(columns.discount(1)).isZero();
+        assertThat(columns.qtyLeft(0)).isEqualTo(4);
+        assertThat(columns.qtyLeft(1)).isZero();
+        assertThat(columns.hasFlag(0, DealColumns.DINE_IN)).isTrue();
+        assertThat(columns.hasFlag(0, DealColumns.LIGHTNING)).isFalse();
+        assertThat(columns.hasFlag(1, DealColumns.DINE_IN)).isFalse();
+        assertThat(columns.hasFlag(1, DealColumns.LIGHTNING)).isTrue();
+    }
+
+    @Test
+    void shouldOnlyReportInvalidTimesWhenRead() {
+        // Given
+        final Restaurant restaurant = createRestaurant("r1", "09:00", "10:00pm",
+            Deals.builder().start("10:00am").end("2:00pm").build(),
+            Deals.builder().end("2:00pm").build());
+
+        // When
+        final DealColumns columns = DealColumns.build(List.of(restaurant));
+
+        // Then
+        assertThat(columns.startMinute(0)).isEqualTo(10 * 60);
+        assertThatThrownBy(() -> columns.startMinute(1)).isInstanceOf(DateTimeParseException.class);
+        assertThatThrownBy(() -> columns.restaurantOpenMinute(0)).isInstanceOf(DateTimeParseException.class);
+        assertThat(columns.restaurantCloseMinute(0)).isEqualTo(22 * 60);
+    }
+
+    private static Restaurant createRestaurant(String objectId, String open, String close, Deals... deals) {
+        return Restaurant.builder()
+            .objectId(objectId)
+            .open(open)
+            .close(close)
+            .deals(deals.length == 0 ? Collections.emptyList() : List.of(deals))
+            .build();
+    }
+}
@@ -0,0 +1,91 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DealDensityCurveTest {
+
+    @Test
+    void shouldCountDealsActiveStrictlyBetweenStartAndEnd() {
+        // Given
+        final Restaurant restaurant = Restaurant.builder()
+            .open("9:00am")
+            .close("10:00pm")
+            .deals(List.of(
+                Deals.builder().start("10:00am").end("2:00pm").qtyLeft(3).build(),
+                Deals.builder().start("12:00pm").end("4:00pm").qtyLeft(5).build(),
+                Deals.builder().start("11:00am").end("1:00pm").qtyLeft(0).build()))
+            .build();
+
+        // When
+        final DealDensityCurve curve = DealDensityCurve.build(DealColumns.build(List.of(restaurant)));
+
+        // Then
+        assertThat(curve.activeDealsAt(10 * 60)).isZero();
+        assertThat(curve.activeDealsAt(10 * 60 + 1)).isEqualTo(1);
+        assertThat(curve.qtyLeftAt(10 * 60 + 1)).isEqualTo(3);
+        assertThat(curve.activeDealsAt(13 * 60)).isEqualTo(2);
+        assertThat(curve.qtyLeftAt(13 * 60)).isEqualTo(8);
+        assertThat(curve.activeDealsAt(14 * 60)).isEqualTo(1);
+        assertThat(curve.qtyLeftAt(14 * 60)).isEqualTo(5);
+        assertThat(curve.activeDealsAt(16 * 60)).isZero();
+    }
+
+    @Test
+    void shouldMatchTimelineIndexAtEveryMinuteForRandomRestaurants() {
+        // Given
+        final Random random = new Random(20240615L);
+        final List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            restaurants.add(randomRestaurant(random));
+        }
+        final DealColumns columns = DealColumns.build(restaurants);
+
+        // When
+        final DealDensityCurve curve = DealDensityCurve.build(columns);
+
+        // Then
+        final DealTimelineIndex index = DealTimelineIndex.build(columns);
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            final int[] activeDeals = index.activeDealsAt(LocalTime.of(minute / 60, minute % 60));
+            assertThat(curve.activeDealsAt(minute)).as("active deals at minute %d", minute)
+                .isEqualTo(activeDeals.length);
+            assertThat(curve.qtyLeftAt(minute)).as("qty left at minute %d", minute)
+                .isEqualTo(Arrays.stream(activeDeals).mapToLong(columns::qtyLeft).sum());
+        }
+    }
+
+    private static Restaurant randomRestaurant(final Random random) {
+        final List<Deals> deals = new ArrayList<>();
+        final int dealCount = random.nextInt(4);
+        for (int i = 0; i < dealCount; i++) {
+            deals.add(Deals.builder()
+                .start(random.nextInt(3) == 0 ? randomTime(random) : null)
+                .end(random.nextInt(3) == 0 ? randomTime(random) : null)
+                .open(random.nextBoolean() ? randomTime(random) : "")
+                .close(random.nextBoolean() ? randomTime(random) : "")
+                .qtyLeft(random.nextInt(4))
+                .build());
+        }
+        return Restaurant.builder()
+            .open(randomTime(random))
+            .close(randomTime(random))
+            .deals(deals)
+            .build();
+    }
+
+    private static String randomTime(final Random random) {
+        final int hour = 1 + random.nextInt(12);
+        final int minute = random.nextInt(4) * 15;
+        return String.format("%d:%02d%s", hour, minute, random.nextBoolean() ? "am" : "pm");
+    }
+}
@@ -0,0 +1,96 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.DealFilter;
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DealFilterIndexTest {
+
+    private static final int[] ALL_DEALS = {0, 1, 2, 3, 4};
+
+    private DealFilterIndex dealFilterIndex;
+
+    @BeforeEach
+    void setUp() {
+        final Restaurant richmond = createRestaurant("Richmond", List.of("Thai", "Asian"),
+            Deals.builder().discount("20").dineIn(true).build(),
+            Deals.builder().discount("40").lightning(true).build());
+        final Restaurant withoutDeals = createRestaurant("Carlton", List.of("Italian"));
+        final Restaurant carlton = createRestaurant("Carlton", List.of("Italian"),
+            Deals.builder().discount("30").dineIn(true).lightning(true).build(),
+            Deals.builder().discount("10").build());
+        final Restaurant unknown = createRestaurant(null, null,
+            Deals.builder().discount("n/a").dineIn(true).build());
+
+        dealFilterIndex = DealFilterIndex.build(DealColumns.build(List.of(richmond, withoutDeals, carlton, unknown)));
+    }
+
+    @Test
+    void shouldFilterOnRestaurantAttributesIgnoringCase() {
+        assertThat(filter(DealFilter.builder().suburb("carlton").build())).containsExactly(2, 3);
+        assertThat(filter(DealFilter.builder().suburb(" RICHMOND ").build())).containsExactly(0, 1);
+        assertThat(filter(DealFilter.builder().cuisine("asian").build())).containsExactly(0, 1);
+        assertThat(filter(DealFilter.builder().cuisine("Mexican").build())).isEmpty();
+    }
+
+    @Test
+    void shouldFilterOnDealFlags() {
+        assertThat(filter(DealFilter.builder().dineIn(true).build())).containsExactly(0, 2, 4);
+        assertThat(filter(DealFilter.builder().dineIn(false).build())).containsExactly(1, 3);
+        assertThat(filter(DealFilter.builder().lightning(true).build())).containsExactly(1, 2);
+        assertThat(filter(DealFilter.builder().lightning(false).dineIn(false).build())).containsExactly(3);
+    }
+
+    @Test
+    void shouldFilterOnMinimumDiscount() {
+        assertThat(filter(DealFilter.builder().minDiscount(30).build())).containsExactly(1, 2);
+        assertThat(filter(DealFilter.builder().minDiscount(0).build())).containsExactly(ALL_DEALS);
+        assertThat(filter(DealFilter.builder().minDiscount(41).build())).isEmpty();
+    }
+
+    @Test
+    void shouldIntersectCriteriaWithGivenDealsInTheirOrder() {
+        // Given
+        final DealFilter filter = DealFilter.builder().dineIn(true).minDiscount(20).build();
+
+        // When
+        final int[] result = dealFilterIndex.filter(new int[]{2, 3, 4}, filter);
+
+        // Then
+        assertThat(result).containsExactly(2);
+        assertThat(dealFilterIndex.filter(ALL_DEALS, DealFilter.builder().build())).isSameAs(ALL_DEALS);
+    }
+
+    @Test
+    void shouldMatchTheDealsFilteredFromAllDeals() {
+        final List<DealFilter> filters = List.of(
+            DealFilter.builder().suburb("carlton").minDiscount(20).build(),
+            DealFilter.builder().cuisine("thai").lightning(false).build(),
+            DealFilter.builder().dineIn(true).minDiscount(1).build(),
+            DealFilter.builder().suburb("Fitzroy").build());
+        for (DealFilter filter : filters) {
+            assertThat(dealFilterIndex.matching(filter).stream().toArray()).containsExactly(filter(filter));
+        }
+    }
+
+    private int[] filter(final DealFilter filter) {
+        return dealFilterIndex.filter(ALL_DEALS, filter);
+    }
+
+    private static Restaurant createRestaurant(String suburb, List<String> cuisines, Deals... deals) {
+        return Restaurant.builder()
+            .suburb(suburb)
+            .cuisines(cuisines)
+            .open("9:00am")
+            .close("10:00pm")
+            .deals(deals.length == 0 ? Collections.emptyList() : List.of(deals))
+            .build();
+    }
+}
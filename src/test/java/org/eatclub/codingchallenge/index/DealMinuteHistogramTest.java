@@ -0,0 +1,190 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.service.SortingPeakDealTimeRange;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DealMinuteHistogramTest {
+
+    @Test
+    void shouldCountStartsAndEndsPerMinute() {
+        // Given
+        final DealColumns columns = DealColumns.build(List.of(createRestaurant("9:00am", "10:00pm",
+            createDeal("10:00am", "2:00pm"),
+            createDeal("10:00am", "11:00am"),
+            createDeal(null, null))));
+
+        // When
+        final DealMinuteHistogram histogram = DealMinuteHistogram.build(columns);
+
+        // Then
+        assertThat(histogram.startsAt(10 * 60)).isEqualTo(2);
+        assertThat(histogram.startsAt(9 * 60)).isEqualTo(1);
+        assertThat(histogram.endsAt(11 * 60)).isEqualTo(1);
+        assertThat(histogram.endsAt(14 * 60)).isEqualTo(1);
+        assertThat(histogram.endsAt(22 * 60)).isEqualTo(1);
+        assertThat(histogram.startsAt(11 * 60)).isZero();
+    }
+
+    @Test
+    void shouldCountDealsStartingBeforeDealsEndingInTheSameMinute() {
+        // Given - one deal ends the minute the other starts, so both are active at 12:00pm
+        final DealColumns columns = DealColumns.build(List.of(createRestaurant("9:00am", "10:00pm",
+            createDeal("10:00am", "12:00pm"),
+            createDeal("12:00pm", "2:00pm"))));
+
+        // When
+        final DealMinuteHistogram.PeakRange peak = DealMinuteHistogram.build(columns).firstPeakRange();
+
+        // Then
+        assertThat(peak).isEqualTo(new DealMinuteHistogram.PeakRange(12 * 60, 12 * 60, 2));
+    }
+
+    @Test
+    void shouldKeepFirstRangeOfEqualPeaks() {
+        // Given
+        final DealColumns columns = DealColumns.build(List.of(createRestaurant("9:00am", "10:00pm",
+            createDeal("10:00am", "11:00am"),
+            createDeal("10:30am", "11:30am"),
+            createDeal("3:00pm", "4:00pm"),
+            createDeal("3:30pm", "4:30pm"))));
+
+        // When
+        final DealMinuteHistogram.PeakRange peak = DealMinuteHistogram.build(columns).firstPeakRange();
+
+        // Then
+        assertThat(peak).isEqualTo(new DealMinuteHistogram.PeakRange(10 * 60 + 30, 11 * 60, 2));
+    }
+
+    @Test
+    void shouldListLocalPeaksWithMostDealsFirst() {
+        // Given
+        final DealColumns columns = DealColumns.build(List.of(createRestaurant("9:00am", "10:00pm",
+            createDeal("10:00am", "11:00am"),
+            createDeal("3:00pm", "5:00pm"),
+            createDeal("3:30pm", "4:00pm"),
+            createDeal("6:00pm", "7:00pm"))));
+
+        // When
+        final List<DealMinuteHistogram.PeakRange> peaks = DealMinuteHistogram.build(columns).localPeakRanges();
+
+        // Then
+        assertThat(peaks).containsExactly(
+            new DealMinuteHistogram.PeakRange(15 * 60 + 30, 16 * 60, 2),
+            new DealMinuteHistogram.PeakRange(10 * 60, 11 * 60, 1),
+            new DealMinuteHistogram.PeakRange(18 * 60, 19 * 60, 1));
+    }
+
+    @Test
+    void shouldOnlyCountGivenDeals() {
+        // Given
+        final DealColumns columns = DealColumns.build(List.of(createRestaurant("9:00am", "10:00pm",
+            createDeal("10:00am", "2:00pm"),
+            createDeal("12:00pm", "4:00pm"),
+            createDeal("1:00pm", "3:00pm"))));
+        final BitSet deals = new BitSet();
+        deals.set(0);
+        deals.set(2);
+
+        // When
+        final DealMinuteHistogram histogram = DealMinuteHistogram.build(columns, deals);
+
+        // Then
+        assertThat(histogram.startsAt(12 * 60)).isZero();
+        assertThat(histogram.firstPeakRange()).isEqualTo(new DealMinuteHistogram.PeakRange(13 * 60, 14 * 60, 2));
+    }
+
+    @Test
+    void shouldHaveNoPeakWithoutDeals() {
+        // Given
+        final DealColumns columns = DealColumns.build(List.of(createRestaurant("9:00am", "10:00pm")));
+
+        // When
+        final DealMinuteHistogram.PeakRange peak = DealMinuteHistogram.build(columns).firstPeakRange();
+
+        // Then
+        assertThat(peak).isNull();
+    }
+
+    @Test
+    void shouldFindSamePeakAsSortedEventSweepOnRandomFeeds() {
+        // Given
+        final Random random = new Random(20240615L);
+
+        for (int i = 0; i < 5_000; i++) {
+            final DealColumns columns = DealColumns.build(randomRestaurants(random));
+
+            // When
+            final LocalTime[] expected = SortingPeakDealTimeRange.findOverlappingDealEventAtMax(
+                SortingPeakDealTimeRange.events(columns));
+            final DealMinuteHistogram histogram = DealMinuteHistogram.build(columns);
+            final DealMinuteHistogram.PeakRange actual = histogram.firstPeakRange();
+
+            // Then
+            if (expected == null) {
+                assertThat(actual).as("feed %d", i).isNull();
+            } else {
+                assertThat(actual.startMinute()).as("feed %d", i).isEqualTo(minuteOfDay(expected[0]));
+                assertThat(actual.endMinute()).as("feed %d", i).isEqualTo(minuteOfDay(expected[1]));
+                assertThat(histogram.localPeakRanges()).as("feed %d", i).first().isEqualTo(actual);
+            }
+        }
+    }
+
+    private static List<Restaurant> randomRestaurants(final Random random) {
+        // A handful of candidate minutes makes ties, shared boundaries and deals past midnight common
+        final int[] minutes = new int[1 + random.nextInt(12)];
+        for (int m = 0; m < minutes.length; m++) {
+            minutes[m] = random.nextInt(DealMinuteHistogram.MINUTES_PER_DAY);
+        }
+        final List<Restaurant> restaurants = new ArrayList<>();
+        final int restaurantCount = random.nextInt(6);
+        for (int r = 0; r < restaurantCount; r++) {
+            final Deals[] deals = new Deals[random.nextInt(8)];
+            for (int d = 0; d < deals.length; d++) {
+                // Some deals fall back to the restaurant hours
+                deals[d] = random.nextInt(5) == 0
+                    ? createDeal(null, null)
+                    : createDeal(time(minutes[random.nextInt(minutes.length)]),
+                        time(minutes[random.nextInt(minutes.length)]));
+            }
+            restaurants.add(createRestaurant(time(minutes[random.nextInt(minutes.length)]),
+                time(minutes[random.nextInt(minutes.length)]), deals));
+        }
+        return restaurants;
+    }
+
+    private static String time(final int minuteOfDay) {
+        final int hour = minuteOfDay / 60;
+        return String.format("%d:%02d%s", hour % 12 == 0 ? 12 : hour % 12, minuteOfDay % 60, hour < 12 ? "am" : "pm");
+    }
+
+    private static int minuteOfDay(final LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static Restaurant createRestaurant(String open, String close, Deals... deals) {
+        return Restaurant.builder()
+            .open(open)
+            .close(close)
+            .deals(List.of(deals))
+            .build();
+    }
+
+    private static Deals createDeal(String start, String end) {
+        return Deals.builder()
+            .start(start)
+            .end(end)
+            .qtyLeft(1)
+            .build();
+    }
+}
@@ -0,0 +1,306 @@
+package org.eatclub.codingchallenge.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.eatclub.codingchallenge.util.Constants.TIME_FORMATTER;
+
+class DealTimelineIndexTest {
+
+    @Test
+    void shouldMatchScanForSampleDataAtEveryMinute() throws IOException {
+        // Given
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final RestaurantResponse restaurantResponse;
+        try (InputStream sampleData = getClass().getResourceAsStream("/sample-data.json")) {
+            restaurantResponse = objectMapper.readValue(sampleData, RestaurantResponse.class);
+        }
+
+        // When
+        final DealTimelineIndex index = DealTimelineIndex.build(restaurantResponse.getRestaurants());
+
+        // Then
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            final LocalTime timeOfDay = LocalTime.of(minute / 60, minute % 60);
+            assertThat(resolve(index, index.activeDealsAt(timeOfDay)))
+                .as("active deals at %s", timeOfDay)
+                .isEqualTo(scan(restaurantResponse.getRestaurants(), timeOfDay));
+        }
+    }
+
+    @Test
+    void shouldMatchScanForRandomRestaurants() {
+        // Given
+        final Random random = new Random(20240601L);
+        final List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            restaurants.add(randomRestaurant(random));
+        }
+
+        // When
+        final DealTimelineIndex index = DealTimelineIndex.build(restaurants);
+
+        // Then
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            final LocalTime timeOfDay = LocalTime.of(minute / 60, minute % 60);
+            assertThat(resolve(index, index.activeDealsAt(timeOfDay)))
+                .as("active deals at %s", timeOfDay)
+                .isEqualTo(scan(restaurants, timeOfDay));
+
+            final LocalTime withinMinute = timeOfDay.plusSeconds(30);
+            assertThat(resolve(index, index.activeDealsAt(withinMinute)))
+                .as("active deals at %s", withinMinute)
+                .isEqualTo(scan(restaurants, withinMinute));
+        }
+    }
+
+    @Test
+    void shouldAnswerBatchOfTimesLikeOneLookupPerTime() {
+        // Given
+        final Random random = new Random(20240602L);
+        final List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            restaurants.add(randomRestaurant(random));
+        }
+        final DealTimelineIndex index = DealTimelineIndex.build(restaurants);
+        final List<LocalTime> everyMinute = new ArrayList<>();
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            everyMinute.add(LocalTime.of(minute / 60, minute % 60));
+            everyMinute.add(LocalTime.of(minute / 60, minute % 60, 30));
+        }
+
+        for (int batch = 0; batch < 200; batch++) {
+            // Unsorted, with repeats and with whole and in between minutes
+            final List<LocalTime> timesOfDay = new ArrayList<>();
+            for (int i = random.nextInt(40); i >= 0; i--) {
+                timesOfDay.add(everyMinute.get(random.nextInt(everyMinute.size())));
+            }
+
+            // When
+            final int[][] activeDeals = index.activeDealsAt(timesOfDay);
+
+            // Then
+            assertThat(activeDeals.length).isEqualTo(timesOfDay.size());
+            for (int i = 0; i < timesOfDay.size(); i++) {
+                assertThat(activeDeals[i])
+                    .as("active deals at %s", timesOfDay.get(i))
+                    .isEqualTo(index.activeDealsAt(timesOfDay.get(i)));
+            }
+        }
+        final int[][] activeDeals = index.activeDealsAt(everyMinute);
+        for (int i = 0; i < everyMinute.size(); i++) {
+            assertThat(activeDeals[i])
+                .as("active deals at %s", everyMinute.get(i))
+                .isEqualTo(index.activeDealsAt(everyMinute.get(i)));
+        }
+    }
+
+    @Test
+    void shouldReturnDealsActiveAtAnyInstantOfWindow() {
+        // Given
+        final Random random = new Random(20240603L);
+        final List<Restaurant> restaurants = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            restaurants.add(randomRestaurant(random));
+        }
+        final DealTimelineIndex index = DealTimelineIndex.build(restaurants);
+
+        for (int window = 0; window < 300; window++) {
+            final int fromMinute = random.nextInt(24 * 60);
+            final int toMinute = Math.min(24 * 60 - 1, fromMinute + random.nextInt(window % 2 == 0 ? 60 : 24 * 60));
+            final LocalTime from = LocalTime.of(fromMinute / 60, fromMinute % 60);
+            final LocalTime to = LocalTime.of(toMinute / 60, toMinute % 60);
+
+            // When
+            final int[] activeDeals = index.activeDealsBetween(from, to);
+
+            // Then - the union of every whole minute and every instant in between
+            final List<LocalTime> instants = new ArrayList<>();
+            for (int minute = fromMinute; minute <= toMinute; minute++) {
+                instants.add(LocalTime.of(minute / 60, minute % 60));
+                if (minute < toMinute) {
+                    instants.add(LocalTime.of(minute / 60, minute % 60, 30));
+                }
+            }
+            final int[] expected = instants.stream()
+                .flatMapToInt(instant -> Arrays.stream(index.activeDealsAt(instant)))
+                .sorted()
+                .distinct()
+                .toArray();
+            assertThat(activeDeals).as("active deals from %s to %s", from, to).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void shouldTreatWindowOfOneInstantAsThatInstant() {
+        // Given
+        final Deals endsAtSix = Deals.builder().start("5:00pm").end("6:00pm").qtyLeft(1).build();
+        final Deals lunch = Deals.builder().start("12:00pm").end("3:00pm").qtyLeft(1).build();
+        final Deals evening = Deals.builder().start("6:00pm").end("9:00pm").qtyLeft(1).build();
+        final Restaurant restaurant = Restaurant.builder()
+            .open("11:00am")
+            .close("11:00pm")
+            .deals(List.of(endsAtSix, lunch, evening))
+            .build();
+        final DealTimelineIndex index = DealTimelineIndex.build(List.of(restaurant));
+
+        // Then - deals are active strictly between their start and end
+        assertThat(index.activeDealsBetween(LocalTime.of(18, 0), LocalTime.of(18, 0))).isEmpty();
+        assertThat(resolve(index, index.activeDealsBetween(LocalTime.of(14, 0), LocalTime.of(18, 0))))
+            .containsExactly(endsAtSix, lunch);
+        assertThat(resolve(index, index.activeDealsBetween(LocalTime.of(17, 59), LocalTime.of(18, 1))))
+            .containsExactly(endsAtSix, evening);
+    }
+
+    @Test
+    void shouldReturnDealOnceWhenBothPartsAroundOvernightClosureOverlapWindow() {
+        // Given
+        final Deals deal = Deals.builder().start("1:00am").end("11:00pm").qtyLeft(1).build();
+        final Restaurant restaurant = Restaurant.builder()
+            .open("6:00pm")
+            .close("2:00am")
+            .deals(List.of(deal))
+            .build();
+        final DealTimelineIndex index = DealTimelineIndex.build(List.of(restaurant));
+
+        // Then
+        assertThat(index.activeDealsBetween(LocalTime.of(1, 30), LocalTime.of(19, 0))).containsExactly(0);
+        assertThat(index.activeDealsBetween(LocalTime.of(3, 0), LocalTime.of(17, 0))).isEmpty();
+    }
+
+    @Test
+    void shouldExcludeDealsWhileOvernightRestaurantIsClosed() {
+        // Given
+        final Deals deal = Deals.builder().start("1:00am").end("11:00pm").qtyLeft(1).build();
+        final Restaurant restaurant = Restaurant.builder()
+            .open("6:00pm")
+            .close("2:00am")
+            .deals(List.of(deal))
+            .build();
+
+        // When
+        final DealTimelineIndex index = DealTimelineIndex.build(List.of(restaurant));
+
+        // Then
+        assertThat(index.activeDealsAt(LocalTime.of(1, 30))).containsExactly(0);
+        assertThat(index.activeDealsAt(LocalTime.of(2, 0))).containsExactly(0);
+        assertThat(index.activeDealsAt(LocalTime.of(2, 1))).isEmpty();
+        assertThat(index.activeDealsAt(LocalTime.of(18, 0))).containsExactly(0);
+        assertThat(index.activeDealsAt(LocalTime.of(22, 0))).containsExactly(0);
+    }
+
+    @Test
+    void shouldTreatDealBoundariesAsExclusive() {
+        // Given
+        final Deals deal = Deals.builder().start("2:00pm").end("5:00pm").qtyLeft(1).build();
+        final Restaurant restaurant = Restaurant.builder()
+            .open("1:00pm")
+            .close("11:00pm")
+            .deals(List.of(deal))
+            .build();
+
+        // When
+        final DealTimelineIndex index = DealTimelineIndex.build(List.of(restaurant));
+
+        // Then
+        assertThat(index.activeDealsAt(LocalTime.of(14, 0))).isEmpty();
+        assertThat(index.activeDealsAt(LocalTime.of(14, 0, 1))).containsExactly(0);
+        assertThat(index.activeDealsAt(LocalTime.of(16, 59, 59))).containsExactly(0);
+        assertThat(index.activeDealsAt(LocalTime.of(17, 0))).isEmpty();
+    }
+
+    @Test
+    void shouldHandleEmptyRestaurantList() {
+        final DealTimelineIndex index = DealTimelineIndex.build(Collections.emptyList());
+
+        assertThat(index.getDealCount()).isZero();
+        assertThat(index.activeDealsAt(LocalTime.NOON)).isEmpty();
+    }
+
+    private static List<Deals> resolve(final DealTimelineIndex index, final int[] dealOrdinals) {
+        return Arrays.stream(dealOrdinals).mapToObj(index::getDeal).toList();
+    }
+
+    // Reference implementation: the per-request scan DefaultActiveDealsService used before the index existed
+    private static List<Deals> scan(final List<Restaurant> restaurants, final LocalTime timeOfDay) {
+        return restaurants.stream()
+            .flatMap(restaurant -> restaurant.getDeals()
+                .stream()
+                .filter(deal -> isDealActive(restaurant, deal, timeOfDay)))
+            .toList();
+    }
+
+    private static boolean isDealActive(
+        final Restaurant restaurant, final Deals deal, final LocalTime timeOfDayLocalTime) {
+        final LocalTime restaurantOpen = LocalTime.parse(restaurant.getOpen(), TIME_FORMATTER);
+        final LocalTime restaurantClose = LocalTime.parse(restaurant.getClose(), TIME_FORMATTER);
+
+        if (restaurantOpen.isAfter(timeOfDayLocalTime)
+            && restaurantClose.isBefore(timeOfDayLocalTime)) {
+            return false;
+        }
+
+        if (deal.getQtyLeft() <= 0) {
+            return false;
+        }
+
+        LocalTime actualDealStartTime =
+            !ObjectUtils.isEmpty(deal.getStart())
+                ? LocalTime.parse(deal.getStart(), TIME_FORMATTER)
+                : !ObjectUtils.isEmpty(deal.getOpen())
+                ? LocalTime.parse(deal.getOpen(), TIME_FORMATTER)
+                : restaurantOpen;
+
+        LocalTime actualDealEndTime =
+            !ObjectUtils.isEmpty(deal.getEnd()) ?
+                LocalTime.parse(deal.getEnd(), TIME_FORMATTER)
+                : !ObjectUtils.isEmpty(deal.getClose())
+                ? LocalTime.parse(deal.getClose(), TIME_FORMATTER)
+                : restaurantClose;
+
+        return timeOfDayLocalTime.isAfter(actualDealStartTime)
+            && timeOfDayLocalTime.isBefore(actualDealEndTime);
+    }
+
+    private static Restaurant randomRestaurant(final Random random) {
+        final List<Deals> deals = new ArrayList<>();
+        final int dealCount = random.nextInt(4);
+        for (int i = 0; i < dealCount; i++) {
+            deals.add(Deals.builder()
+                .objectId("deal-" + random.nextInt())
+                .start(random.nextInt(3) == 0 ? randomTime(random) : null)
+                .end(random.nextInt(3) == 0 ? randomTime(random) : null)
+                .open(random.nextBoolean() ? randomTime(random) : "")
+                .close(random.nextBoolean() ? randomTime(random) : "")
+                .qtyLeft(random.nextInt(4))
+                .build());
+        }
+        return Restaurant.builder()
+            .objectId("restaurant-" + random.nextInt())
+            .open(randomTime(random))
+            .close(randomTime(random))
+            .deals(deals)
+            .build();
+    }
+
+    private static String randomTime(final Random random) {
+        final int hour = 1 + random.nextInt(12);
+        final int minute = random.nextInt(4) * 15;
+        return String.format("%d:%02d%s", hour, minute, random.nextBoolean() ? "am" : "pm");
+    }
+}
@@ -0,0 +1,303 @@
+package org.eatclub.codingchallenge.index;
+
+import org.eatclub.codingchallenge.model.DealFilter;
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.util.SyntheticRestaurantResponseGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotDiffTest {
+
+    private static final String[] TIMES = {"11:00am", "12:00pm", "3:00pm", "5:30pm", "7:00pm", "9:00pm", "11:30pm"};
+    private static final List<DealFilter> FILTERS = List.of(
+        DealFilter.builder().suburb("Richmond").build(),
+        DealFilter.builder().cuisine("Thai").build(),
+        DealFilter.builder().dineIn(true).lightning(false).build(),
+        DealFilter.builder().minDiscount(30).build());
+
+    @Test
+    void shouldMatchDealsByPositionAndReportModifiedOnes() {
+        // Given
+        final List<Restaurant> previous = List.of(
+            createRestaurant("r1", "Richmond", createDeal("d1", "3:00pm", "6:00pm", 5)),
+            createRestaurant("r2", "Carlton", createDeal("d2", "3:00pm", "6:00pm", 5),
+                createDeal("d3", "3:00pm", "6:00pm", 5)));
+        final List<Restaurant> next = List.of(
+            createRestaurant("r1", "Richmond", createDeal("d1", "3:00pm", "6:00pm", 4)),
+            createRestaurant("r2", "Carlton", createDeal("d2", "3:00pm", "6:00pm", 5),
+                createDeal("d3", "3:00pm", "6:00pm", 5)));
+
+        // When
+        final SnapshotDiff diff = SnapshotDiff.between(previous, next);
+
+        // Then
+        assertThat(diff.isSameLayout()).isTrue();
+        assertThat(diff.getModifiedCount()).isEqualTo(1);
+        assertThat(diff.isModified(0)).isTrue();
+        assertThat(diff.isModified(1)).isFalse();
+        assertThat(diff.getChangedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldMatchDealsByIdWhenDealsWereAddedAndRemoved() {
+        // Given
+        final List<Restaurant> previous = List.of(
+            createRestaurant("r1", "Richmond", createDeal("d1", "3:00pm", "6:00pm", 5),
+                createDeal("d2", "3:00pm", "6:00pm", 5)),
+            createRestaurant("r2", "Carlton", createDeal("d3", "3:00pm", "6:00pm", 5)));
+        final List<Restaurant> next = List.of(
+            createRestaurant("r1", "Richmond", createDeal("d2", "3:00pm", "6:00pm", 5)),
+            createRestaurant("r2", "Fitzroy", createDeal("d3", "3:00pm", "6:00pm", 5),
+                createDeal("d4", "3:00pm", "6:00pm", 5)));
+
+        // When
+        final SnapshotDiff diff = SnapshotDiff.between(previous, next);
+
+        // Then - the suburb of r2 changed, so its deals changed too
+        assertThat(diff.isSameLayout()).isFalse();
+        assertThat(diff.previousOrdinal(0)).isEqualTo(1);
+        assertThat(diff.previousOrdinal(1)).isEqualTo(2);
+        assertThat(diff.isAdded(2)).isTrue();
+        assertThat(diff.removedDeals().stream().toArray()).containsExactly(0);
+        assertThat(diff.changedDeals().stream().toArray()).containsExactly(1, 2);
+        assertThat(diff.nextOrdinals()).containsExactly(-1, 0, 1);
+        assertThat(diff.getAddedCount()).isEqualTo(1);
+        assertThat(diff.getRemovedCount()).isEqualTo(1);
+        assertThat(diff.getModifiedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldHaveNoDiffWhenDealsAreReorderedOrIdsAreMissing() {
+        // Given
+        final Restaurant first = createRestaurant("r1", "Richmond", createDeal("d1", "3:00pm", "6:00pm", 5));
+        final Restaurant second = createRestaurant("r2", "Carlton", createDeal("d2", "3:00pm", "6:00pm", 5));
+        final Restaurant withoutId = createRestaurant(null, "Carlton", createDeal("d3", "3:00pm", "6:00pm", 5));
+
+        // When / Then
+        assertThat(SnapshotDiff.between(List.of(first, second), List.of(second, first))).isNull();
+        assertThat(SnapshotDiff.between(List.of(first), List.of(first, withoutId))).isNull();
+        assertThat(SnapshotDiff.between(List.of(first, second), List.of(first, second))).isNotNull();
+    }
+
+    @Test
+    void shouldOnlyReportMinutesCoveredByChangedDeals() {
+        // Given
+        final List<Restaurant> previous = List.of(createRestaurant("r1", "Richmond",
+            createDeal("d1", "3:00pm", "4:00pm", 5), createDeal("d2", "6:00pm", "7:00pm", 5)));
+        final List<Restaurant> next = List.of(createRestaurant("r1", "Richmond",
+            createDeal("d1", "3:30pm", "4:00pm", 5), createDeal("d2", "6:00pm", "7:00pm", 5)));
+        final SnapshotDiff diff = SnapshotDiff.between(previous, next);
+
+        // When
+        final BitSet changedMinutes = diff.changedMinutes(DealColumns.build(previous), DealColumns.build(next));
+
+        // Then - the active ranges exclude both boundaries
+        assertThat(changedMinutes.nextSetBit(0)).isEqualTo(15 * 60 + 1);
+        assertThat(changedMinutes.previousSetBit(24 * 60)).isEqualTo(15 * 60 + 59);
+        assertThat(changedMinutes.get(18 * 60 + 30)).isFalse();
+    }
+
+    @Test
+    void shouldPatchSnapshotLikeFullBuildOverRandomRefreshes() {
+        // Given
+        final Random random = new Random(20240701L);
+        RestaurantSnapshot patched = RestaurantSnapshot.of(SyntheticRestaurantResponseGenerator.generate(2000, 7L));
+
+        for (int refresh = 0; refresh < 6; refresh++) {
+            // Every other refresh only modifies deals in place, so both ways of matching deals are covered
+            final List<Restaurant> previous = patched.getRestaurantResponse().getRestaurants();
+            final List<Restaurant> next = churn(random, previous, refresh % 2 == 0);
+            final SnapshotDiff diff = SnapshotDiff.between(previous, next);
+            assertThat(diff).isNotNull();
+
+            // When
+            final RestaurantSnapshot before = patched;
+            patched = RestaurantSnapshot.patch(before, RestaurantResponse.builder().restaurants(next).build(), diff);
+            final RestaurantSnapshot rebuilt = RestaurantSnapshot.of(patched.getRestaurantResponse());
+
+            // Then
+            assertThat(patched.isPatchOf(before.getVersion())).isTrue();
+            assertThat(patched.getChangedDealsSinceRebuild())
+                .isEqualTo(before.getChangedDealsSinceRebuild() + diff.getChangedCount());
+            assertSameColumns(patched.getDealColumns(), rebuilt.getDealColumns());
+            assertSameIndexes(patched, rebuilt);
+            assertUnchangedMinutesHaveSameDeals(before, patched);
+        }
+    }
+
+    private static void assertSameColumns(final DealColumns patched, final DealColumns rebuilt) {
+        assertThat(patched.getDealCount()).isEqualTo(rebuilt.getDealCount());
+        assertThat(patched.getRestaurantCount()).isEqualTo(rebuilt.getRestaurantCount());
+        for (int deal = 0; deal < rebuilt.getDealCount(); deal++) {
+            final int restaurant = rebuilt.restaurantOf(deal);
+            assertThat(patched.restaurantOf(deal)).isEqualTo(restaurant);
+            assertThat(patched.getDeal(deal)).isSameAs(rebuilt.getDeal(deal));
+            assertThat(patched.startMinute(deal)).isEqualTo(rebuilt.startMinute(deal));
+            assertThat(patched.endMinute(deal)).isEqualTo(rebuilt.endMinute(deal));
+            assertThat(patched.discount(deal)).isEqualTo(rebuilt.discount(deal));
+            assertThat(patched.qtyLeft(deal)).isEqualTo(rebuilt.qtyLeft(deal));
+            assertThat(patched.hasFlag(deal, DealColumns.DINE_IN)).isEqualTo(rebuilt.hasFlag(deal, DealColumns.DINE_IN));
+            assertThat(patched.hasFlag(deal, DealColumns.LIGHTNING))
+                .isEqualTo(rebuilt.hasFlag(deal, DealColumns.LIGHTNING));
+            assertThat(patched.restaurantOpenMinute(restaurant)).isEqualTo(rebuilt.restaurantOpenMinute(restaurant));
+            assertThat(patched.restaurantCloseMinute(restaurant)).isEqualTo(rebuilt.restaurantCloseMinute(restaurant));
+        }
+    }
+
+    private static void assertSameIndexes(final RestaurantSnapshot patched, final RestaurantSnapshot rebuilt) {
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            final LocalTime timeOfDay = LocalTime.of(minute / 60, minute % 60);
+            assertThat(patched.getDealTimelineIndex().activeDealsAt(timeOfDay))
+                .as("active deals at %s", timeOfDay)
+                .isEqualTo(rebuilt.getDealTimelineIndex().activeDealsAt(timeOfDay));
+            assertThat(patched.getDealTimelineIndex().activeDealsAt(timeOfDay.plusSeconds(30)))
+                .isEqualTo(rebuilt.getDealTimelineIndex().activeDealsAt(timeOfDay.plusSeconds(30)));
+            assertThat(patched.getDealMinuteHistogram().startsAt(minute))
+                .isEqualTo(rebuilt.getDealMinuteHistogram().startsAt(minute));
+            assertThat(patched.getDealMinuteHistogram().endsAt(minute))
+                .isEqualTo(rebuilt.getDealMinuteHistogram().endsAt(minute));
+            assertThat(patched.getDealDensityCurve().activeDealsAt(minute))
+                .as("density at %s", timeOfDay)
+                .isEqualTo(rebuilt.getDealDensityCurve().activeDealsAt(minute));
+            assertThat(patched.getDealDensityCurve().qtyLeftAt(minute))
+                .isEqualTo(rebuilt.getDealDensityCurve().qtyLeftAt(minute));
+        }
+        assertThat(patched.getDealTimelineIndex().activeDealsBetween(LocalTime.of(17, 0), LocalTime.of(19, 30)))
+            .isEqualTo(rebuilt.getDealTimelineIndex().activeDealsBetween(LocalTime.of(17, 0), LocalTime.of(19, 30)));
+        for (DealFilter filter : FILTERS) {
+            assertThat(patched.getDealFilterIndex().matching(filter))
+                .isEqualTo(rebuilt.getDealFilterIndex().matching(filter));
+        }
+        assertThat(patched.getDealFilterIndex().getSuburbGroups())
+            .isEqualTo(rebuilt.getDealFilterIndex().getSuburbGroups());
+        assertThat(patched.getDealFilterIndex().getCuisineGroups())
+            .isEqualTo(rebuilt.getDealFilterIndex().getCuisineGroups());
+    }
+
+    private static void assertUnchangedMinutesHaveSameDeals(final RestaurantSnapshot before,
+                                                            final RestaurantSnapshot patched) {
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            if (!patched.isUnchangedFromPreviousAt(minute)) {
+                continue;
+            }
+            final LocalTime timeOfDay = LocalTime.of(minute / 60, minute % 60);
+            assertThat(resolve(patched.getDealTimelineIndex(), timeOfDay))
+                .as("deals at unchanged minute %s", timeOfDay)
+                .isEqualTo(resolve(before.getDealTimelineIndex(), timeOfDay));
+        }
+    }
+
+    private static List<Object> resolve(final DealTimelineIndex index, final LocalTime timeOfDay) {
+        final List<Object> resolved = new ArrayList<>();
+        for (int deal : index.activeDealsAt(timeOfDay)) {
+            // Everything a response shows of the restaurant, its other deals may have changed
+            final Restaurant restaurant = index.getRestaurant(deal);
+            resolved.add(index.getDeal(deal));
+            resolved.add(Arrays.asList(restaurant.getObjectId(), restaurant.getName(), restaurant.getAddress1(),
+                restaurant.getSuburb(), restaurant.getOpen(), restaurant.getClose(), restaurant.getCuisines(),
+                restaurant.getImageLink()));
+        }
+        return resolved;
+    }
+
+    // Copies the feed with a few percent of deals modified, and unless in place, some deals and restaurants added
+    // or removed
+    private static List<Restaurant> churn(final Random random, final List<Restaurant> previous,
+                                          final boolean inPlace) {
+        final List<Restaurant> next = new ArrayList<>();
+        for (Restaurant restaurant : previous) {
+            if (!inPlace && random.nextInt(100) == 0) {
+                continue;
+            }
+            final List<Deals> deals = new ArrayList<>();
+            for (Deals deal : restaurant.getDeals()) {
+                final int change = random.nextInt(100);
+                if (change < 2 && !inPlace) {
+                    continue;
+                }
+                deals.add(change < 5 ? modify(random, deal) : deal);
+                if (change == 99 && !inPlace) {
+                    deals.add(randomDeal(random, "n" + random.nextLong()));
+                }
+            }
+            if (deals.isEmpty()) {
+                deals.add(randomDeal(random, "n" + random.nextLong()));
+            }
+            final boolean moved = random.nextInt(200) == 0;
+            next.add(Restaurant.builder()
+                .objectId(restaurant.getObjectId())
+                .name(restaurant.getName())
+                .address1(restaurant.getAddress1())
+                .suburb(moved ? "Fitzroy" : restaurant.getSuburb())
+                .cuisines(restaurant.getCuisines())
+                .imageLink(restaurant.getImageLink())
+                .open(restaurant.getOpen())
+                .close(moved ? "11:00pm" : restaurant.getClose())
+                .deals(deals)
+                .build());
+            if (!inPlace && random.nextInt(100) == 0) {
+                next.add(createRestaurant("n" + random.nextLong(), "Carlton",
+                    randomDeal(random, "n" + random.nextLong()), randomDeal(random, "n" + random.nextLong())));
+            }
+        }
+        return next;
+    }
+
+    private static Deals modify(final Random random, final Deals deal) {
+        final Deals.DealsBuilder modified = Deals.builder()
+            .objectId(deal.getObjectId())
+            .discount(deal.getDiscount())
+            .dineIn(deal.isDineIn())
+            .lightning(deal.isLightning())
+            .qtyLeft(deal.getQtyLeft())
+            .open(deal.getOpen())
+            .close(deal.getClose())
+            .start(deal.getStart())
+            .end(deal.getEnd());
+        switch (random.nextInt(5)) {
+            case 0 -> modified.qtyLeft(random.nextInt(3));
+            case 1 -> modified.dineIn(!deal.isDineIn()).lightning(random.nextBoolean());
+            case 2 -> modified.discount(random.nextInt(8) * 5 + "");
+            case 3 -> modified.start(TIMES[random.nextInt(3)]).end(TIMES[3 + random.nextInt(4)]);
+            default -> modified.open(null).close(null).start(null).end(null);
+        }
+        return modified.build();
+    }
+
+    private static Deals randomDeal(final Random random, final String objectId) {
+        return createDeal(objectId, TIMES[random.nextInt(3)], TIMES[3 + random.nextInt(4)], random.nextInt(6));
+    }
+
+    private static Restaurant createRestaurant(String objectId, String suburb, Deals... deals) {
+        return Restaurant.builder()
+            .objectId(objectId)
+            .suburb(suburb)
+            .cuisines(List.of("Thai"))
+            .open("9:00am")
+            .close("11:59pm")
+            .deals(new ArrayList<>(Arrays.asList(deals)))
+            .build();
+    }
+
+    private static Deals createDeal(String objectId, String start, String end, long qtyLeft) {
+        return Deals.builder()
+            .objectId(objectId)
+            .start(start)
+            .end(end)
+            .discount("20")
+            .dineIn(true)
+            .qtyLeft(qtyLeft)
+            .build();
+    }
+}
@@ -1,25 +1,61 @@
 package org.eatclub.codingchallenge.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.eatclub.codingchallenge.model.Deals;
 import org.eatclub.codingchallenge.model.Restaurant;
 import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.util.RestaurantFeedDecoder;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -27,7 +63,10 @@ import static org.springframework.test.util.ReflectionTestUtils.setField;
 
 @ExtendWith(MockitoExtension.class)
 class CachingRestaurantServiceTest {
-    
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Mock
     private WebClient webClient;
     @Mock
@@ -36,15 +75,14 @@ class CachingRestaurantServiceTest {
     private WebClient.RequestHeadersSpec requestHeadersSpec;
     @Mock
     private WebClient.ResponseSpec responseSpec;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     private RestaurantService restaurantService;
 
     @BeforeEach
     void setUp() {
-        restaurantService = new CachingRestaurantService(webClient);
-
-        // Set private fields using reflection
-        setField(restaurantService, "restaurantsUrl", "http://localhost:8080/restaurants");
-        setField(restaurantService, "cacheTTL", 60);
+        // A single attempt per fetch unless a test is about retries
+        createService(CircuitBreakerRegistry.ofDefaults(), RetryRegistry.of(RetryConfig.custom().maxAttempts(1).build()));
 
         // Setup WebClient mock chain
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
@@ -52,6 +90,30 @@ class CachingRestaurantServiceTest {
         when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
     }
 
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(restaurantService, "stopRefresh");
+        VirtualTimeScheduler.reset();
+    }
+
+    private void createService(CircuitBreakerRegistry circuitBreakerRegistry, RetryRegistry retryRegistry) {
+        createService(circuitBreakerRegistry, retryRegistry, new RestaurantFeedDecoder(objectMapper));
+    }
+
+    private void createService(CircuitBreakerRegistry circuitBreakerRegistry, RetryRegistry retryRegistry,
+                               RestaurantFeedDecoder restaurantFeedDecoder) {
+        restaurantService = new CachingRestaurantService(webClient, eventPublisher, restaurantFeedDecoder,
+            meterRegistry, circuitBreakerRegistry, retryRegistry);
+
+        // Set private fields using reflection
+        setField(restaurantService, "restaurantsUrl", "http://localhost:8080/restaurants");
+        setField(restaurantService, "cacheTTL", 60);
+        setField(restaurantService, "refreshAhead", 10);
+        setField(restaurantService, "refreshJitter", 5);
+        setField(restaurantService, "attemptTimeoutMillis", 10_000L);
+        setField(restaurantService, "maxBytes", 1 << 20);
+    }
+
 
 
     @Test
@@ -66,8 +128,8 @@ class CachingRestaurantServiceTest {
 
         when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
             .thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(RestaurantResponse.class))
-            .thenReturn(Mono.just(restaurantResponse));
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.just(okResponse(restaurantResponse, new HttpHeaders())));
 
         // Simulate @PostConstruct
         ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
@@ -86,6 +148,73 @@ class CachingRestaurantServiceTest {
             .verifyComplete();
 
         verify(webClient, times(1)).get();
+        verify(eventPublisher, times(1)).publishEvent(ArgumentMatchers.any(RestaurantSnapshotRefreshedEvent.class));
+    }
+
+    @Test
+    void shouldDecodeUpstreamRestaurantsIncrementallyWhenStreamingDecodeEnabled() {
+        // Given
+        setField(restaurantService, "streamingDecode", true);
+        String body = "{\"restaurants\":[{\"objectId\":\"r1\",\"open\":\"3:00pm\",\"close\":\"9:00pm\","
+            + "\"deals\":[{\"objectId\":\"d1\",\"qtyLeft\":\"5\"}]},{\"objectId\":\"r2\",\"deals\":[]}]}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.just(ResponseEntity.ok().body(Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, 0, 40)),
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, 40, bytes.length))))));
+
+        // Simulate @PostConstruct
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // Then
+        StepVerifier.create(restaurantService.getRestaurants())
+            .assertNext(response -> {
+                assertThat(response.getRestaurants()).extracting(Restaurant::getObjectId).containsExactly("r1", "r2");
+                assertThat(response.getRestaurants().getFirst().getDeals().getFirst().getQtyLeft()).isEqualTo(5L);
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectUpstreamBodiesOverMaxBytes() {
+        // Given
+        RestaurantResponse restaurantResponse = createResponse(10);
+        setField(restaurantService, "maxBytes", (int) bodyLength(restaurantResponse) - 1);
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() -> okResponse(restaurantResponse, new HttpHeaders())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // When / Then - buffered, then streamed
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectError(DataBufferLimitException.class)
+            .verify();
+        setField(restaurantService, "streamingDecode", true);
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectError(DataBufferLimitException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldFailFirstLoadAnsweredWithNotModified() {
+        // Given
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).body(Flux.<DataBuffer>empty())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // When / Then
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectError(HttpServerErrorException.class)
+            .verify();
     }
 
     @Test
@@ -94,7 +223,7 @@ class CachingRestaurantServiceTest {
         // Mock 5xx error response
         when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
             .thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(RestaurantResponse.class))
+        when(responseSpec.toEntityFlux(DataBuffer.class))
             .thenReturn(Mono.error(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error")));
 
         // Simulate @PostConstruct
@@ -117,7 +246,7 @@ class CachingRestaurantServiceTest {
         // Mock 5xx error response
         when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
             .thenReturn(responseSpec);
-        when(responseSpec.bodyToMono(RestaurantResponse.class))
+        when(responseSpec.toEntityFlux(DataBuffer.class))
             .thenReturn(Mono.error(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error")));
 
         // Simulate @PostConstruct
@@ -135,6 +264,526 @@ class CachingRestaurantServiceTest {
     }
 
 
+    @Test
+    void shouldRefreshSnapshotInBackgroundBeforeTtl() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+        RestaurantResponse initialResponse = createResponse(1);
+        RestaurantResponse refreshedResponse = createResponse(2);
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() ->
+                okResponse(fetches.getAndIncrement() == 0 ? initialResponse : refreshedResponse, new HttpHeaders())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectNext(initialResponse)
+            .verifyComplete();
+
+        // When - TTL is 60s, refresh starts between 45s and 50s
+        scheduler.advanceTimeBy(Duration.ofSeconds(44));
+        assertThat(fetches).hasValue(1);
+        scheduler.advanceTimeBy(Duration.ofSeconds(6));
+
+        // Then
+        assertThat(fetches).hasValue(2);
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectNext(refreshedResponse)
+            .verifyComplete();
+        verify(eventPublisher, times(2)).publishEvent(ArgumentMatchers.any(RestaurantSnapshotRefreshedEvent.class));
+    }
+
+    @Test
+    void shouldServeCurrentSnapshotWhileRefreshIsInProgress() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+        RestaurantResponse initialResponse = createResponse(1);
+        Sinks.One<ResponseEntity<Flux<DataBuffer>>> pendingRefresh = Sinks.one();
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.defer(() -> fetches.getAndIncrement() == 0
+                ? Mono.just(okResponse(initialResponse, new HttpHeaders()))
+                : pendingRefresh.asMono()));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        restaurantService.getRestaurants().block();
+
+        // When - refresh starts between 45s and 50s, well within its attempt timeout
+        scheduler.advanceTimeBy(Duration.ofSeconds(50));
+
+        // Then - the refresh has started but requests don't wait for it
+        assertThat(fetches).hasValue(2);
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectNext(initialResponse)
+            .verifyComplete();
+
+        RestaurantResponse refreshedResponse = createResponse(3);
+        pendingRefresh.tryEmitValue(okResponse(refreshedResponse, new HttpHeaders()));
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectNext(refreshedResponse)
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldFindCurrentAndPreviousSnapshotByVersion() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() ->
+                okResponse(createResponse(fetches.incrementAndGet()), new HttpHeaders())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        RestaurantSnapshot first = restaurantService.getSnapshot().block();
+
+        // When - two refreshes
+        scheduler.advanceTimeBy(Duration.ofSeconds(50));
+        RestaurantSnapshot second = restaurantService.getSnapshot().block();
+        scheduler.advanceTimeBy(Duration.ofSeconds(50));
+        RestaurantSnapshot third = restaurantService.getSnapshot().block();
+
+        // Then - only the snapshot replaced last is kept around
+        assertThat(fetches).hasValue(3);
+        assertThat(third.getVersion()).isGreaterThan(second.getVersion()).isGreaterThan(first.getVersion());
+        StepVerifier.create(restaurantService.findSnapshot(third.getVersion()))
+            .expectNext(third)
+            .verifyComplete();
+        StepVerifier.create(restaurantService.findSnapshot(second.getVersion()))
+            .expectNext(second)
+            .verifyComplete();
+        StepVerifier.create(restaurantService.findSnapshot(first.getVersion()))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldKeepServingPreviousSnapshotWhenRefreshFails() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+        RestaurantResponse initialResponse = createResponse(1);
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.defer(() -> fetches.getAndIncrement() == 0
+                ? Mono.just(okResponse(initialResponse, new HttpHeaders()))
+                : Mono.error(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error"))));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        restaurantService.getRestaurants().block();
+
+        // When - two failed refreshes, well past the TTL of the first snapshot
+        scheduler.advanceTimeBy(Duration.ofSeconds(120));
+
+        // Then
+        assertThat(fetches).hasValue(3);
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectNext(initialResponse)
+            .verifyComplete();
+        assertThat(meterRegistry.get("upstream.restaurants.refreshes").tag("outcome", "failed").counter().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get("upstream.restaurants.fetch").tag("outcome", "error").timer().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get("restaurants.snapshot.age").gauge().value()).isEqualTo(120);
+        assertThat(((CachingRestaurantService) restaurantService).getSnapshotStatus())
+            .hasValueSatisfying(status -> {
+                assertThat(status.age()).isEqualTo(Duration.ofSeconds(120));
+                assertThat(status.stale()).isTrue();
+            });
+    }
+
+    @Test
+    void shouldRetryFailedFetchesWithBackoff() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        createService(CircuitBreakerRegistry.ofDefaults(), RetryRegistry.of(RetryConfig.custom()
+            .maxAttempts(3)
+            .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(500, 2, 0.5))
+            .build()));
+        AtomicInteger fetches = new AtomicInteger();
+        RestaurantResponse restaurantResponse = createResponse(1);
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.defer(() -> fetches.getAndIncrement() < 2
+                ? Mono.error(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error"))
+                : Mono.just(okResponse(restaurantResponse, new HttpHeaders()))));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // When / Then - waits of 250ms to 750ms then 500ms to 1.5s
+        StepVerifier.create(restaurantService.getRestaurants())
+            .then(() -> scheduler.advanceTimeBy(Duration.ofMillis(200)))
+            .then(() -> assertThat(fetches).hasValue(1))
+            .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(3)))
+            .expectNext(restaurantResponse)
+            .verifyComplete();
+        assertThat(fetches).hasValue(3);
+        assertThat(meterRegistry.get("upstream.restaurants.fetch").tag("outcome", "error").timer().count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    void shouldAbandonFetchAttemptsThatTimeOut() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        createService(CircuitBreakerRegistry.ofDefaults(),
+            RetryRegistry.of(RetryConfig.custom().maxAttempts(2).waitDuration(Duration.ofMillis(500)).build()));
+        AtomicInteger fetches = new AtomicInteger();
+        RestaurantResponse restaurantResponse = createResponse(1);
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.defer(() -> fetches.getAndIncrement() == 0
+                ? Mono.never()
+                : Mono.just(okResponse(restaurantResponse, new HttpHeaders()))));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // When / Then
+        StepVerifier.create(restaurantService.getRestaurants())
+            .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(11)))
+            .expectNext(restaurantResponse)
+            .verifyComplete();
+        assertThat(fetches).hasValue(2);
+        assertThat(meterRegistry.get("upstream.restaurants.fetch").tag("outcome", "cancelled").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotTimeOutOrRetrySlowDecodingAndIndexing() {
+        // Given - decoding takes longer than a whole fetch attempt may
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        AtomicInteger attemptsEndedBeforeDecode = new AtomicInteger();
+        RestaurantFeedDecoder slowDecoder = spy(new RestaurantFeedDecoder(objectMapper));
+        doAnswer(invocation -> {
+            attemptsEndedBeforeDecode.set(circuitBreakerRegistry.circuitBreaker("upstreamRestaurants")
+                .getMetrics().getNumberOfSuccessfulCalls());
+            Thread.sleep(300);
+            return invocation.callRealMethod();
+        }).when(slowDecoder).decodeDocument(ArgumentMatchers.any());
+        createService(circuitBreakerRegistry,
+            RetryRegistry.of(RetryConfig.custom().maxAttempts(3).waitDuration(Duration.ofMillis(10)).build()),
+            slowDecoder);
+        setField(restaurantService, "attemptTimeoutMillis", 100L);
+        AtomicInteger fetches = new AtomicInteger();
+        RestaurantResponse restaurantResponse = createResponse(1);
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() -> {
+                fetches.incrementAndGet();
+                return okResponse(restaurantResponse, new HttpHeaders());
+            }));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // When / Then
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectNext(restaurantResponse)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+        assertThat(fetches).hasValue(1);
+        // The attempt ended with the body read, decoding ran after it
+        assertThat(attemptsEndedBeforeDecode).hasValue(1);
+        assertThat(meterRegistry.get("upstream.restaurants.fetch").tag("outcome", "updated").timer().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void shouldStopCallingUpstreamWhileCircuitIsOpen() {
+        // Given
+        createService(CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build()),
+            RetryRegistry.of(RetryConfig.custom().maxAttempts(1).build()));
+        AtomicInteger fetches = new AtomicInteger();
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.defer(() -> {
+                fetches.incrementAndGet();
+                return Mono.error(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error"));
+            }));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // When - failed first loads aren't cached, every request tries again until the circuit opens
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectError(HttpServerErrorException.class)
+            .verify();
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectError(HttpServerErrorException.class)
+            .verify();
+
+        // Then
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectError(CallNotPermittedException.class)
+            .verify();
+        assertThat(fetches).hasValue(2);
+        assertThat(((CachingRestaurantService) restaurantService).getSnapshotStatus()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldKeepUpstreamStatusOfErrorResponses() {
+        // Given
+        ArgumentCaptor<Predicate<HttpStatusCode>> isError = ArgumentCaptor.forClass(Predicate.class);
+        ArgumentCaptor<Function<ClientResponse, Mono<? extends Throwable>>> toError =
+            ArgumentCaptor.forClass(Function.class);
+        ClientResponse notFound = mock(ClientResponse.class);
+        when(notFound.statusCode()).thenReturn(HttpStatus.NOT_FOUND);
+
+        when(responseSpec.onStatus(isError.capture(), toError.capture()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.defer(() -> toError.getValue().apply(notFound).flatMap(Mono::error)));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+
+        // When / Then - only server errors are retried, the exception class tells them apart
+        StepVerifier.create(restaurantService.getRestaurants())
+            .expectErrorMatches(throwable -> throwable instanceof HttpClientErrorException
+                && ((HttpClientErrorException) throwable).getStatusCode().equals(HttpStatus.NOT_FOUND))
+            .verify();
+        assertThat(isError.getValue().test(HttpStatus.NOT_FOUND)).isTrue();
+        assertThat(isError.getValue().test(HttpStatus.NOT_MODIFIED)).isFalse();
+
+        ClientResponse badGateway = mock(ClientResponse.class);
+        when(badGateway.statusCode()).thenReturn(HttpStatus.BAD_GATEWAY);
+        StepVerifier.create(toError.getValue().apply(badGateway))
+            .expectErrorMatches(throwable -> throwable instanceof HttpServerErrorException
+                && ((HttpServerErrorException) throwable).getStatusCode().equals(HttpStatus.BAD_GATEWAY))
+            .verify();
+    }
+
+    @Test
+    void shouldRecordFetchStagesCacheLookupsAndSnapshotSize() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() ->
+                okResponse(createResponse(fetches.getAndIncrement() == 0 ? 2 : 3), new HttpHeaders())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        assertThat(meterRegistry.get("restaurants.snapshot.deals").gauge().value()).isNaN();
+
+        // When - a miss for the first load, a hit after it, then one background refresh
+        restaurantService.getSnapshot().block();
+        restaurantService.getSnapshot().block();
+        scheduler.advanceTimeBy(Duration.ofSeconds(50));
+
+        // Then
+        assertThat(fetches).hasValue(2);
+        assertThat(meterRegistry.get("restaurants.snapshot.requests").tag("result", "miss").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("restaurants.snapshot.requests").tag("result", "hit").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("upstream.restaurants.fetch").tag("outcome", "updated").timer().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get("upstream.restaurants.decode").tag("mode", "buffered").timer().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get("upstream.restaurants.index").tag("mode", "full").timer().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get("upstream.restaurants.refreshes").tag("outcome", "updated").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("restaurants.snapshot.restaurants").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("restaurants.snapshot.deals").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("restaurants.snapshot.bytes").gauge().value())
+            .isEqualTo(bodyLength(createResponse(3)));
+    }
+
+    @Test
+    void shouldPatchCurrentSnapshotWhenFewDealsChanged() {
+        // Given
+        setField(restaurantService, "patchMaxChangeRatio", 0.1);
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        // One of ten deals changes on every refresh, the second refresh brings the changes past a tenth of the deals
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() -> okResponse(createIdentifiedResponse(fetches.getAndIncrement()),
+                new HttpHeaders())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        RestaurantSnapshot initial = restaurantService.getSnapshot().block();
+
+        // When
+        scheduler.advanceTimeBy(Duration.ofSeconds(50));
+        RestaurantSnapshot patched = restaurantService.getSnapshot().block();
+        scheduler.advanceTimeBy(Duration.ofSeconds(50));
+        RestaurantSnapshot rebuilt = restaurantService.getSnapshot().block();
+
+        // Then
+        assertThat(fetches).hasValue(3);
+        assertThat(patched.isPatchOf(initial.getVersion())).isTrue();
+        assertThat(patched.getDealColumns().qtyLeft(0)).isEqualTo(1);
+        assertThat(patched.getDealTimelineIndex().getDealCount()).isEqualTo(10);
+        assertThat(rebuilt.isPatchOf(patched.getVersion())).isFalse();
+        assertThat(rebuilt.getChangedDealsSinceRebuild()).isZero();
+        assertThat(meterRegistry.get("upstream.restaurants.index").tag("mode", "patched").timer().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("upstream.restaurants.index").tag("mode", "full").timer().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get("upstream.restaurants.deals.changed").tag("change", "modified").counter().count())
+            .isEqualTo(2);
+        verify(eventPublisher, times(3)).publishEvent(ArgumentMatchers.any(RestaurantSnapshotRefreshedEvent.class));
+    }
+
+    @Test
+    void shouldSendValidatorsAndKeepCurrentSnapshotWhenUpstreamIsNotModified() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+        HttpHeaders validators = new HttpHeaders();
+        validators.setETag("\"v1\"");
+        validators.setLastModified(1_700_000_000_000L);
+        ResponseEntity<Flux<DataBuffer>> initialResponse = okResponse(createResponse(2), validators);
+
+        when(requestHeadersSpec.ifNoneMatch("\"v1\"")).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.ifModifiedSince(ArgumentMatchers.any())).thenReturn(requestHeadersSpec);
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() -> fetches.getAndIncrement() == 0
+                ? initialResponse
+                : ResponseEntity.status(HttpStatus.NOT_MODIFIED).body(Flux.<DataBuffer>empty())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        RestaurantSnapshot initialSnapshot = restaurantService.getSnapshot().block();
+
+        // When
+        scheduler.advanceTimeBy(Duration.ofSeconds(60));
+
+        // Then
+        assertThat(fetches).hasValue(2);
+        verify(requestHeadersSpec).ifNoneMatch("\"v1\"");
+        verify(requestHeadersSpec).ifModifiedSince(ArgumentMatchers.any());
+        assertThat(restaurantService.getSnapshot().block()).isSameAs(initialSnapshot);
+        verify(eventPublisher, times(1)).publishEvent(ArgumentMatchers.any(RestaurantSnapshotRefreshedEvent.class));
+        assertThat(meterRegistry.get("upstream.restaurants.unchanged").tag("reason", "not_modified").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("upstream.restaurants.saved.bytes").counter().count())
+            .isEqualTo(bodyLength(createResponse(2)));
+        assertThat(meterRegistry.get("upstream.restaurants.refreshes").tag("outcome", "unchanged").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepCurrentSnapshotWhenUpstreamContentIsUnchanged() {
+        // Given
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        AtomicInteger fetches = new AtomicInteger();
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() -> {
+                fetches.incrementAndGet();
+                return okResponse(createResponse(2), new HttpHeaders());
+            }));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        RestaurantSnapshot initialSnapshot = restaurantService.getSnapshot().block();
+
+        // When
+        scheduler.advanceTimeBy(Duration.ofSeconds(60));
+
+        // Then
+        assertThat(fetches).hasValue(2);
+        verify(requestHeadersSpec, never()).ifNoneMatch(ArgumentMatchers.anyString());
+        assertThat(restaurantService.getSnapshot().block()).isSameAs(initialSnapshot);
+        verify(eventPublisher, times(1)).publishEvent(ArgumentMatchers.any(RestaurantSnapshotRefreshedEvent.class));
+        assertThat(meterRegistry.get("upstream.restaurants.unchanged").tag("reason", "content_hash").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("upstream.restaurants.saved.bytes").counter().count()).isZero();
+    }
+
+    @Test
+    void shouldKeepCurrentSnapshotWhenStreamedContentIsUnchanged() {
+        // Given
+        setField(restaurantService, "streamingDecode", true);
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+
+        when(responseSpec.onStatus(ArgumentMatchers.any(), ArgumentMatchers.any()))
+            .thenReturn(responseSpec);
+        when(responseSpec.toEntityFlux(DataBuffer.class))
+            .thenReturn(Mono.fromCallable(() -> okResponse(createResponse(2), new HttpHeaders())));
+
+        ReflectionTestUtils.invokeMethod(restaurantService, "initCache");
+        RestaurantSnapshot initialSnapshot = restaurantService.getSnapshot().block();
+
+        // When
+        scheduler.advanceTimeBy(Duration.ofSeconds(60));
+
+        // Then
+        assertThat(restaurantService.getSnapshot().block()).isSameAs(initialSnapshot);
+        verify(eventPublisher, times(1)).publishEvent(ArgumentMatchers.any(RestaurantSnapshotRefreshedEvent.class));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> okResponse(RestaurantResponse restaurantResponse, HttpHeaders headers) {
+        byte[] body = encode(restaurantResponse);
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body.clone()))));
+    }
+
+    private long bodyLength(RestaurantResponse restaurantResponse) {
+        return encode(restaurantResponse).length;
+    }
+
+    private byte[] encode(RestaurantResponse restaurantResponse) {
+        try {
+            return objectMapper.writeValueAsBytes(restaurantResponse);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private RestaurantResponse createResponse(int restaurantCount) {
+        return RestaurantResponse.builder()
+            .restaurants(IntStream.range(0, restaurantCount)
+                .mapToObj(i -> createRestaurant("3:00pm", "9:00pm", createDeal("3:00pm", "9:00pm", 5L)))
+                .toList())
+            .build();
+    }
+
+    // Ten restaurants with one deal each, deal i has i + 1 left once the feed is past version i
+    private RestaurantResponse createIdentifiedResponse(int version) {
+        return RestaurantResponse.builder()
+            .restaurants(IntStream.range(0, 10)
+                .mapToObj(i -> {
+                    Deals deal = createDeal("3:00pm", "9:00pm", i < version ? i + 1L : 5L);
+                    deal.setObjectId("deal" + i);
+                    Restaurant restaurant = createRestaurant("3:00pm", "9:00pm", deal);
+                    restaurant.setObjectId("restaurant" + i);
+                    return restaurant;
+                })
+                .toList())
+            .build();
+    }
+
     private Restaurant createRestaurant(String open, String close, Deals... deals) {
         return Restaurant.builder()
             .open(open)
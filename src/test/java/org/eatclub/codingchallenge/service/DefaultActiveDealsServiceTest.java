@@ -1,10 +1,15 @@
 package org.eatclub.codingchallenge.service;
 
+import org.eatclub.codingchallenge.model.DealFilter;
 import org.eatclub.codingchallenge.model.Deals;
 import org.eatclub.codingchallenge.model.Restaurant;
 import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.ActiveDealsAtTime;
+import org.eatclub.codingchallenge.model.response.ActiveDealsBatchResponse;
 import org.eatclub.codingchallenge.model.response.ActiveDealsResponse;
 import org.eatclub.codingchallenge.model.response.DealsItem;
+import org.eatclub.codingchallenge.util.ActiveDealsCursor;
 import org.eatclub.codingchallenge.util.DefaultActiveDealsResponseMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,23 +18,24 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.eatclub.codingchallenge.util.Constants.TIME_OF_DAY_FORMATTER;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class DefaultActiveDealsServiceTest {
-    final static DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("h:mm[a]");
 
     @Mock
     private RestaurantService restaurantService;
@@ -40,6 +46,7 @@ class DefaultActiveDealsServiceTest {
     @BeforeEach
     void setUp() {
         activeDealsService = new DefaultActiveDealsService(restaurantService, activeDealsResponseMapper);
+        ReflectionTestUtils.setField(activeDealsService, "maxBatchTimes", 4);
     }
 
     @Test
@@ -53,10 +60,10 @@ class DefaultActiveDealsServiceTest {
             .restaurants(List.of(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
-        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("10:00pm", TIME_FORMATTER));
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("10:00pm", TIME_OF_DAY_FORMATTER));
 
         // Then
         StepVerifier.create(result)
@@ -77,9 +84,9 @@ class DefaultActiveDealsServiceTest {
             .restaurants(List.of(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
         // When
-        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("8:00pm", TIME_FORMATTER));
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("8:00pm", TIME_OF_DAY_FORMATTER));
 
         // Then
         StepVerifier.create(result)
@@ -102,11 +109,11 @@ class DefaultActiveDealsServiceTest {
 
         DealsItem expectedDealsItem = createDealsItem("3:00pm", "9:00pm", 10L);
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
         doCallRealMethod().when(activeDealsResponseMapper).mapToDealsItem(ArgumentMatchers.any(), ArgumentMatchers.any());
 
         // When
-        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("5:00pm", TIME_FORMATTER));
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("5:00pm", TIME_OF_DAY_FORMATTER));
 
         // Then
         StepVerifier.create(result)
@@ -132,11 +139,11 @@ class DefaultActiveDealsServiceTest {
             .build();
 
         DealsItem expectedDealsItem = createDealsItem("1:00pm", "11:00pm", 4L);
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
         doCallRealMethod().when(activeDealsResponseMapper).mapToDealsItem(ArgumentMatchers.any(), ArgumentMatchers.any());
 
         // When
-        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("7:00pm", TIME_FORMATTER));
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("7:00pm", TIME_OF_DAY_FORMATTER));
 
         // Then
         StepVerifier.create(result)
@@ -155,10 +162,10 @@ class DefaultActiveDealsServiceTest {
         RestaurantResponse restaurantResponse = RestaurantResponse.builder()
             .restaurants(Collections.emptyList())
             .build();
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
-        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("4:00pm", TIME_FORMATTER));
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("4:00pm", TIME_OF_DAY_FORMATTER));
 
         // Then
         StepVerifier.create(result)
@@ -181,10 +188,10 @@ class DefaultActiveDealsServiceTest {
         RestaurantResponse restaurantResponse = RestaurantResponse.builder()
             .restaurants(List.of(restaurant))
             .build();
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
-        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("4:00pm", TIME_FORMATTER));
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("4:00pm", TIME_OF_DAY_FORMATTER));
 
         // Then
         StepVerifier.create(result)
@@ -212,11 +219,11 @@ class DefaultActiveDealsServiceTest {
             .restaurants(Arrays.asList(restaurant1, restaurant2, restaurant3))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
         doCallRealMethod().when(activeDealsResponseMapper).mapToDealsItem(ArgumentMatchers.any(), ArgumentMatchers.any());
 
         // When
-        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("4:00pm", TIME_FORMATTER));
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsAt(LocalTime.parse("4:00pm", TIME_OF_DAY_FORMATTER));
 
         // Then
         StepVerifier.create(result)
@@ -227,6 +234,224 @@ class DefaultActiveDealsServiceTest {
             .verifyComplete();
     }
 
+    @Test
+    void shouldStreamSameDealsInSameOrderAsResponse() {
+        // Given
+        Restaurant restaurant1 = createRestaurant("3:00pm", "9:00pm",
+            createDeal("3:00pm", "9:00pm", 5L),
+            createDealWithStartEnd("5:00pm", "6:00pm", 2L));
+
+        Restaurant restaurant2 = createRestaurant("12:00pm", "11:00pm",
+            createDeal("12:00pm", "11:00pm", 3L),
+            createDeal("6:00pm", "10:00pm", 0L));
+
+        RestaurantResponse restaurantResponse = RestaurantResponse.builder()
+            .restaurants(Arrays.asList(restaurant1, restaurant2))
+            .build();
+
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
+        LocalTime timeOfDay = LocalTime.parse("5:30pm", TIME_OF_DAY_FORMATTER);
+        List<DealsItem> expected = activeDealsService.getActiveDealsAt(timeOfDay).block().getDeals();
+
+        // When
+        StepVerifier.create(activeDealsService.streamActiveDealsAt(timeOfDay, null), 0)
+            // Then - nothing is mapped ahead of demand
+            .thenRequest(1)
+            .expectNext(expected.get(0))
+            .thenRequest(2)
+            .expectNext(expected.get(1), expected.get(2))
+            .verifyComplete();
+        assertThat(expected).hasSize(3);
+    }
+
+    @Test
+    void shouldPageThroughActiveDealsOfOneSnapshot() {
+        // Given
+        Restaurant restaurant = createRestaurant("12:00pm", "11:00pm",
+            createDeal("12:00pm", "11:00pm", 1L),
+            createDeal("12:00pm", "11:00pm", 2L),
+            createDeal("12:00pm", "11:00pm", 3L));
+        RestaurantSnapshot snapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(List.of(restaurant))
+            .build());
+        LocalTime timeOfDay = LocalTime.parse("5:30pm", TIME_OF_DAY_FORMATTER);
+
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+        when(restaurantService.findSnapshot(snapshot.getVersion())).thenReturn(Mono.just(snapshot));
+
+        // When
+        ActiveDealsResponse firstPage = activeDealsService.getActiveDealsPageAt(timeOfDay, null, null, 2).block();
+        ActiveDealsResponse lastPage =
+            activeDealsService.getActiveDealsPageAt(timeOfDay, null, firstPage.getNextCursor(), 2).block();
+
+        // Then
+        assertThat(firstPage.getTotalCount()).isEqualTo(3);
+        assertThat(firstPage.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(1L, 2L);
+        assertThat(lastPage.getTotalCount()).isEqualTo(3);
+        assertThat(lastPage.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(3L);
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldRejectInvalidPageRequests() {
+        // Given
+        LocalTime timeOfDay = LocalTime.parse("5:30pm", TIME_OF_DAY_FORMATTER);
+        String otherTimeCursor = new ActiveDealsCursor(1L, LocalTime.NOON.toSecondOfDay(), 0, 2).encode();
+
+        // Then
+        StepVerifier.create(activeDealsService.getActiveDealsPageAt(timeOfDay, null, null, 0))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        StepVerifier.create(activeDealsService.getActiveDealsPageAt(timeOfDay, null, "not-a-cursor", 2))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        StepVerifier.create(activeDealsService.getActiveDealsPageAt(timeOfDay, null, otherTimeCursor, 2))
+            .expectError(ServerWebInputException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldPageThroughFilteredActiveDeals() {
+        // Given
+        Restaurant restaurant = createRestaurant("12:00pm", "11:00pm",
+            createDeal("12:00pm", "11:00pm", 1L),
+            createDeal("12:00pm", "11:00pm", 2L),
+            createDeal("12:00pm", "11:00pm", 3L),
+            createDeal("12:00pm", "4:00pm", 4L));
+        restaurant.getDeals().get(0).setDineIn(true);
+        restaurant.getDeals().get(2).setDineIn(true);
+        restaurant.getDeals().get(3).setDineIn(true);
+        RestaurantSnapshot snapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(List.of(restaurant))
+            .build());
+        LocalTime timeOfDay = LocalTime.parse("5:30pm", TIME_OF_DAY_FORMATTER);
+        DealFilter dineIn = DealFilter.builder().dineIn(true).build();
+
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+        when(restaurantService.findSnapshot(snapshot.getVersion())).thenReturn(Mono.just(snapshot));
+
+        // When
+        ActiveDealsResponse firstPage = activeDealsService.getActiveDealsPageAt(timeOfDay, dineIn, null, 1).block();
+        ActiveDealsResponse lastPage =
+            activeDealsService.getActiveDealsPageAt(timeOfDay, dineIn, firstPage.getNextCursor(), 1).block();
+
+        // Then
+        assertThat(firstPage.getTotalCount()).isEqualTo(2);
+        assertThat(firstPage.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(1L);
+        assertThat(lastPage.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(3L);
+        assertThat(lastPage.getNextCursor()).isNull();
+        StepVerifier.create(activeDealsService.getActiveDealsPageAt(timeOfDay, DealFilter.builder().build(),
+                firstPage.getNextCursor(), 1))
+            .expectError(ServerWebInputException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldReturnDealsActiveAnywhereInWindow() {
+        // Given
+        Restaurant restaurant = createRestaurant("12:00pm", "11:00pm",
+            createDealWithStartEnd("12:00pm", "6:00pm", 1L),
+            createDealWithStartEnd("5:00pm", "6:30pm", 2L),
+            createDealWithStartEnd("7:00pm", "9:00pm", 3L),
+            createDealWithStartEnd("8:00pm", "10:00pm", 4L));
+        restaurant.getDeals().get(2).setDineIn(true);
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(
+            RestaurantResponse.builder().restaurants(List.of(restaurant)).build())));
+
+        // When
+        ActiveDealsResponse response =
+            activeDealsService.getActiveDealsBetween(LocalTime.of(18, 0), LocalTime.of(20, 0), null).block();
+        ActiveDealsResponse dineIn = activeDealsService.getActiveDealsBetween(LocalTime.of(18, 0),
+            LocalTime.of(20, 0), DealFilter.builder().dineIn(true).build()).block();
+
+        // Then - deals ending at 6pm or starting at 8pm are never active in the window
+        assertThat(response.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(2L, 3L);
+        assertThat(response.getTotalCount()).isEqualTo(2);
+        assertThat(dineIn.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(3L);
+    }
+
+    @Test
+    void shouldRejectWindowEndingBeforeItStarts() {
+        StepVerifier.create(activeDealsService.getActiveDealsBetween(LocalTime.of(20, 0), LocalTime.of(18, 0), null))
+            .expectError(ServerWebInputException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldAnswerBatchOfTimesWithEveryDealOnce() {
+        // Given
+        Restaurant restaurant = createRestaurant("12:00pm", "11:00pm",
+            createDeal("12:00pm", "11:00pm", 1L),
+            createDealWithStartEnd("5:00pm", "6:00pm", 2L),
+            createDealWithStartEnd("7:00pm", "9:00pm", 3L));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(
+            RestaurantResponse.builder().restaurants(List.of(restaurant)).build())));
+        List<LocalTime> timesOfDay = List.of(LocalTime.of(20, 0), LocalTime.of(17, 30), LocalTime.of(18, 30));
+
+        // When
+        ActiveDealsBatchResponse response = activeDealsService.getActiveDealsAt(timesOfDay, null).block();
+
+        // Then
+        assertThat(response.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(1L, 2L, 3L);
+        assertThat(response.getTimes()).extracting(ActiveDealsAtTime::getTimeOfDay).isEqualTo(timesOfDay);
+        assertThat(response.getTimes().get(0).getDealIndexes()).containsExactly(0, 2);
+        assertThat(response.getTimes().get(1).getDealIndexes()).containsExactly(0, 1);
+        assertThat(response.getTimes().get(2).getDealIndexes()).containsExactly(0);
+        assertThat(response.getTimes()).extracting(ActiveDealsAtTime::getTotalCount).containsExactly(2, 2, 1);
+        // The same deals, and in the same order, as one request per time
+        for (ActiveDealsAtTime time : response.getTimes()) {
+            assertThat(Arrays.stream(time.getDealIndexes()).mapToObj(response.getDeals()::get).toList())
+                .isEqualTo(activeDealsService.getActiveDealsAt(time.getTimeOfDay()).block().getDeals());
+        }
+    }
+
+    @Test
+    void shouldOnlyReturnFilteredDealsOfBatch() {
+        // Given
+        Restaurant restaurant = createRestaurant("12:00pm", "11:00pm",
+            createDeal("12:00pm", "11:00pm", 1L),
+            createDealWithStartEnd("5:00pm", "6:00pm", 2L),
+            createDealWithStartEnd("7:00pm", "9:00pm", 3L));
+        restaurant.getDeals().get(2).setDineIn(true);
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(
+            RestaurantResponse.builder().restaurants(List.of(restaurant)).build())));
+
+        // When
+        ActiveDealsBatchResponse response = activeDealsService.getActiveDealsAt(
+            List.of(LocalTime.of(17, 30), LocalTime.of(20, 0)), DealFilter.builder().dineIn(true).build()).block();
+
+        // Then
+        assertThat(response.getDeals()).extracting(DealsItem::getQtyLeft).containsExactly(3L);
+        assertThat(response.getTimes().get(0).getDealIndexes()).isEmpty();
+        assertThat(response.getTimes().get(1).getDealIndexes()).containsExactly(0);
+    }
+
+    @Test
+    void shouldRejectEmptyAndOversizedBatches() {
+        StepVerifier.create(activeDealsService.getActiveDealsAt(List.of(), null))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        StepVerifier.create(activeDealsService.getActiveDealsAt(Collections.nCopies(5, LocalTime.NOON), null))
+            .expectError(ServerWebInputException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldReportExpiredCursorWhenSnapshotIsGone() {
+        // Given
+        LocalTime timeOfDay = LocalTime.parse("5:30pm", TIME_OF_DAY_FORMATTER);
+        String cursor = new ActiveDealsCursor(42L, timeOfDay.toSecondOfDay(), 0, 2).encode();
+        when(restaurantService.findSnapshot(42L)).thenReturn(Mono.empty());
+
+        // When
+        Mono<ActiveDealsResponse> result = activeDealsService.getActiveDealsPageAt(timeOfDay, null, cursor, 2);
+
+        // Then
+        StepVerifier.create(result)
+            .expectError(CursorExpiredException.class)
+            .verify();
+    }
+
     private Restaurant createRestaurant(String open, String close, Deals... deals) {
         return Restaurant.builder()
             .open(open)
@@ -0,0 +1,121 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.DealDensityBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultDealDensityServiceTest {
+
+    @Mock
+    private RestaurantService restaurantService;
+
+    private DefaultDealDensityService dealDensityService;
+
+    @BeforeEach
+    void setUp() {
+        dealDensityService = new DefaultDealDensityService(restaurantService);
+    }
+
+    @Test
+    void shouldReturnActiveDealsForEveryMinuteByDefault() {
+        // Given
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(createSnapshot()));
+
+        // When
+        StepVerifier.create(dealDensityService.getDealDensity(1, false))
+            .assertNext(response -> {
+                // Then
+                assertThat(response.getBucketMinutes()).isEqualTo(1);
+                assertThat(response.getBuckets()).hasSize(24 * 60);
+                assertThat(response.getBuckets().get(13 * 60)).isEqualTo(DealDensityBucket.builder()
+                    .start(LocalTime.of(13, 0))
+                    .activeDeals(2)
+                    .build());
+                assertThat(response.getBuckets().get(10 * 60).getActiveDeals()).isZero();
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnMaximumOfEachBucketWithQtyLeft() {
+        // Given
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(createSnapshot()));
+
+        // When
+        StepVerifier.create(dealDensityService.getDealDensity(180, true))
+            .assertNext(response -> {
+                // Then
+                assertThat(response.getBuckets()).hasSize(8);
+                assertThat(response.getBuckets().get(3)).isEqualTo(DealDensityBucket.builder()
+                    .start(LocalTime.of(9, 0))
+                    .activeDeals(1)
+                    .qtyLeft(3L)
+                    .build());
+                assertThat(response.getBuckets().get(4)).isEqualTo(DealDensityBucket.builder()
+                    .start(LocalTime.of(12, 0))
+                    .activeDeals(2)
+                    .qtyLeft(8L)
+                    .build());
+                assertThat(response.getBuckets().get(0).getQtyLeft()).isZero();
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldEndWithShorterBucketWhenBucketMinutesDoesNotDivideTheDay() {
+        // Given
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(createSnapshot()));
+
+        // When
+        StepVerifier.create(dealDensityService.getDealDensity(1000, false))
+            .assertNext(response -> {
+                // Then
+                assertThat(response.getBuckets()).extracting(DealDensityBucket::getStart)
+                    .containsExactly(LocalTime.MIDNIGHT, LocalTime.of(16, 40));
+                assertThat(response.getBuckets()).extracting(DealDensityBucket::getActiveDeals)
+                    .containsExactly(2, 0);
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectBucketMinutesOutsideTheDay() {
+        StepVerifier.create(dealDensityService.getDealDensity(0, false))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        StepVerifier.create(dealDensityService.getDealDensity(24 * 60 + 1, false))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        verifyNoInteractions(restaurantService);
+    }
+
+    private static RestaurantSnapshot createSnapshot() {
+        return RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(List.of(Restaurant.builder()
+                .open("9:00am")
+                .close("10:00pm")
+                .deals(List.of(
+                    Deals.builder().start("10:00am").end("2:00pm").qtyLeft(3).build(),
+                    Deals.builder().start("12:00pm").end("4:00pm").qtyLeft(5).build()))
+                .build()))
+            .build());
+    }
+}
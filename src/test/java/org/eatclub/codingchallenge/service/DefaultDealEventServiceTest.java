@@ -0,0 +1,213 @@
+package org.eatclub.codingchallenge.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eatclub.codingchallenge.index.SnapshotDiff;
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.DealEvent;
+import org.eatclub.codingchallenge.util.DefaultActiveDealsResponseMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class DefaultDealEventServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DefaultDealEventService dealEventService;
+
+    @BeforeEach
+    void setUp() {
+        dealEventService = new DefaultDealEventService(new DefaultActiveDealsResponseMapper(), meterRegistry);
+        setField(dealEventService, "bufferSize", 2);
+        setField(dealEventService, "timeZone", "Australia/Melbourne");
+        // No wall clock ticks, they would catch the fake minutes of the tests up to the real time
+        dealEventService.registerMeters();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dealEventService.stopMinuteTicks();
+    }
+
+    @Test
+    void shouldEmitAddedRemovedAndQtyChangedEventsOnSnapshotChange() {
+        // Given
+        dealEventService.onSnapshot(createSnapshot(
+            createDeal("deal1", "3:00pm", "6:00pm", 5L),
+            createDeal("deal2", "3:00pm", "6:00pm", 5L)), 16 * 60);
+
+        // When / Then
+        StepVerifier.create(dealEventService.subscribe(Set.of()))
+            .then(() -> dealEventService.onSnapshot(createSnapshot(
+                createDeal("deal1", "3:00pm", "6:00pm", 0L),
+                createDeal("deal3", "7:00pm", "9:00pm", 5L)), 16 * 60))
+            .assertNext(event -> {
+                assertThat(event.getType()).isEqualTo("deal-removed");
+                assertThat(event.getDeal().getDealObjectId()).isEqualTo("deal2");
+            })
+            .assertNext(event -> {
+                // Sold out, so no longer active
+                assertThat(event.getType()).isEqualTo("qty-changed");
+                assertThat(event.getDeal().getDealObjectId()).isEqualTo("deal1");
+                assertThat(event.getDeal().getQtyLeft()).isZero();
+                assertThat(event.getPreviousQtyLeft()).isEqualTo(5L);
+                assertThat(event.isActive()).isFalse();
+                assertThat(event.getTimeOfDay()).isEqualTo(LocalTime.of(16, 0));
+            })
+            .assertNext(event -> {
+                assertThat(event.getType()).isEqualTo("deal-added");
+                assertThat(event.getDeal().getDealObjectId()).isEqualTo("deal3");
+                assertThat(event.isActive()).isFalse();
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+        assertThat(meterRegistry.get("deal.events.published").tag("type", "qty-changed").counter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void shouldEmitActivatedAndExpiredEventsAtMinuteBoundaries() {
+        // Given - deal boundaries are exclusive, the deal is active from just after 3:00pm to just before 4:00pm
+        dealEventService.onSnapshot(createSnapshot(createDeal("deal1", "3:00pm", "4:00pm", 5L)), 14 * 60 + 59);
+
+        // When / Then
+        StepVerifier.create(dealEventService.subscribe(Set.of()))
+            .then(() -> dealEventService.onMinute(15 * 60))
+            .assertNext(event -> {
+                assertThat(event.getType()).isEqualTo("activated");
+                assertThat(event.isActive()).isTrue();
+                assertThat(event.getTimeOfDay()).isEqualTo(LocalTime.of(15, 0));
+            })
+            .then(() -> {
+                dealEventService.onMinute(15 * 60 + 1);
+                dealEventService.onMinute(16 * 60);
+            })
+            .assertNext(event -> {
+                assertThat(event.getType()).isEqualTo("expired");
+                assertThat(event.isActive()).isFalse();
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldCatchUpMinutesMissedBeforeSnapshotChange() {
+        // Given
+        dealEventService.onSnapshot(createSnapshot(createDeal("deal1", "3:00pm", "4:00pm", 5L)), 14 * 60 + 59);
+
+        // When / Then - the snapshot changes at 3:30pm without a tick since 2:59pm
+        StepVerifier.create(dealEventService.subscribe(Set.of()))
+            .then(() -> dealEventService.onSnapshot(createSnapshot(createDeal("deal1", "3:00pm", "4:00pm", 4L)),
+                15 * 60 + 30))
+            .assertNext(event -> assertThat(event.getType()).isEqualTo("activated"))
+            .assertNext(event -> assertThat(event.getType()).isEqualTo("qty-changed"))
+            .then(() -> dealEventService.onMinute(15 * 60 + 30))
+            .expectNoEvent(Duration.ofMillis(50))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldOnlyDeliverSubscribedTypes() {
+        // Given
+        dealEventService.onSnapshot(createSnapshot(createDeal("deal1", "3:00pm", "4:00pm", 5L)), 14 * 60 + 59);
+
+        // When / Then
+        StepVerifier.create(dealEventService.subscribe(Set.of("expired")))
+            .then(() -> {
+                dealEventService.onMinute(15 * 60);
+                dealEventService.onMinute(16 * 60);
+            })
+            .assertNext(event -> assertThat(event.getType()).isEqualTo("expired"))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+        StepVerifier.create(dealEventService.subscribe(Set.of("sold-out")))
+            .expectError(ServerWebInputException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldDropOldestEventsOfSubscriberThatFallsBehind() {
+        // Given
+        dealEventService.onSnapshot(createSnapshot(
+            createDeal("deal1", "3:00pm", "4:00pm", 5L),
+            createDeal("deal2", "3:00pm", "4:00pm", 5L),
+            createDeal("deal3", "3:00pm", "4:00pm", 5L)), 14 * 60 + 59);
+
+        // When / Then - nothing requested while three events arrive, with room for two
+        StepVerifier.create(dealEventService.subscribe(Set.of()), 0)
+            .then(() -> dealEventService.onMinute(15 * 60))
+            .thenRequest(2)
+            .assertNext(event -> assertThat(event.getDeal().getDealObjectId()).isEqualTo("deal2"))
+            .assertNext(event -> assertThat(event.getDeal().getDealObjectId()).isEqualTo("deal3"))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+        assertThat(meterRegistry.get("deal.events.dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReuseDiffOfPatchedSnapshotInsteadOfDiffingFeedsAgain() {
+        // Given
+        final RestaurantSnapshot previous = createSnapshot(createDeal("deal1", "3:00pm", "6:00pm", 5L));
+        final RestaurantResponse next = createResponse(createDeal("deal1", "3:00pm", "6:00pm", 4L));
+        final RestaurantSnapshot patched = RestaurantSnapshot.patch(previous, next,
+            SnapshotDiff.between(previous.getRestaurantResponse().getRestaurants(), next.getRestaurants()));
+        dealEventService.onSnapshot(previous, 16 * 60);
+
+        // When / Then
+        try (MockedStatic<SnapshotDiff> diffs = mockStatic(SnapshotDiff.class, CALLS_REAL_METHODS)) {
+            StepVerifier.create(dealEventService.subscribe(Set.of()))
+                .then(() -> dealEventService.onSnapshot(patched, 16 * 60))
+                .assertNext(event -> {
+                    assertThat(event.getType()).isEqualTo("qty-changed");
+                    assertThat(event.getPreviousQtyLeft()).isEqualTo(5L);
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+            diffs.verify(() -> SnapshotDiff.between(any(), any()), never());
+        }
+    }
+
+    private static RestaurantSnapshot createSnapshot(Deals... deals) {
+        return RestaurantSnapshot.of(createResponse(deals));
+    }
+
+    private static RestaurantResponse createResponse(Deals... deals) {
+        return RestaurantResponse.builder()
+            .restaurants(List.of(Restaurant.builder()
+                .objectId("rest1")
+                .name("Restaurant 1")
+                .open("9:00am")
+                .close("11:00pm")
+                .deals(Arrays.asList(deals))
+                .build()))
+            .build();
+    }
+
+    private static Deals createDeal(String objectId, String start, String end, Long qtyLeft) {
+        return Deals.builder()
+            .objectId(objectId)
+            .start(start)
+            .end(end)
+            .qtyLeft(qtyLeft)
+            .build();
+    }
+}
@@ -0,0 +1,315 @@
+package org.eatclub.codingchallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eatclub.codingchallenge.index.SnapshotDiff;
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultEncodedResponseCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Mock
+    private RestaurantService restaurantService;
+    private DefaultEncodedResponseCache encodedResponseCache;
+    private RestaurantSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        encodedResponseCache = new DefaultEncodedResponseCache(restaurantService, objectMapper);
+        ReflectionTestUtils.setField(encodedResponseCache, "maxEntries", 2);
+        ReflectionTestUtils.setField(encodedResponseCache, "maxBytes", 64L);
+        ReflectionTestUtils.setField(encodedResponseCache, "gzipEnabled", true);
+        ReflectionTestUtils.setField(encodedResponseCache, "gzipMinBytes", 16);
+        snapshot = createSnapshot();
+        lenient().when(restaurantService.getSnapshot()).thenAnswer(invocation -> Mono.just(snapshot));
+    }
+
+    @Test
+    void shouldEncodeOnceAndServeFromCache() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        ResponseEntity<Object> first = respond("/q", List.of(), calls, Map.of("a", 1));
+        ResponseEntity<Object> second = respond("/q", List.of(), calls, Map.of("a", 2));
+
+        // Then
+        assertThat(calls).hasValue(1);
+        assertThat(body(first)).isEqualTo("{\"a\":1}");
+        assertThat(body(second)).isEqualTo("{\"a\":1}");
+        assertThat(second.getHeaders().getETag()).isEqualTo(first.getHeaders().getETag()).isNotNull();
+    }
+
+    @Test
+    void shouldAnswerMatchingIfNoneMatchWithoutProducingBody() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        String eTag = respond("/q", List.of(), calls, Map.of("a", 1)).getHeaders().getETag();
+
+        // When
+        ResponseEntity<Object> notModified = respond("/q", List.of("\"other\"", eTag), calls, Map.of("a", 1));
+        ResponseEntity<Object> otherQuery = respond("/other", List.of(eTag), calls, Map.of("a", 1));
+
+        // Then
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getBody()).isNull();
+        assertThat(otherQuery.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void shouldIgnoreMalformedIfNoneMatch() {
+        // Given
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.IF_NONE_MATCH, "not-an-etag");
+
+        // When
+        ResponseEntity<Object> response = respond("/q", requestHeaders, new AtomicInteger(), Map.of("a", 1));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void shouldDropCachedBodiesWhenSnapshotIsRefreshed() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        String eTag = respond("/q", List.of(), calls, Map.of("a", 1)).getHeaders().getETag();
+
+        // When
+        snapshot = createSnapshot();
+        encodedResponseCache.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(snapshot));
+        ResponseEntity<Object> refreshed = respond("/q", List.of(eTag), calls, Map.of("a", 2));
+
+        // Then
+        assertThat(refreshed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(refreshed)).isEqualTo("{\"a\":2}");
+        assertThat(refreshed.getHeaders().getETag()).isNotEqualTo(eTag);
+        assertThat(encodedResponseCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepBodiesOfUnchangedMinutesWhenSnapshotIsPatched() {
+        // Given - a deal active from 3:00pm to 4:00pm, then made available from 3:30pm
+        ReflectionTestUtils.setField(encodedResponseCache, "maxEntries", 8);
+        ReflectionTestUtils.setField(encodedResponseCache, "maxBytes", 1024L);
+        snapshot = RestaurantSnapshot.of(createResponse("3:00pm"));
+        AtomicInteger calls = new AtomicInteger();
+        respondAt("/noon", 12 * 60, calls, "noon");
+        respondAt("/afternoon", 15 * 60 + 15, calls, "afternoon");
+        respond("/any", List.of(), calls, "any");
+
+        // When
+        final RestaurantResponse patchedResponse = createResponse("3:30pm");
+        snapshot = RestaurantSnapshot.patch(snapshot, patchedResponse, SnapshotDiff.between(
+            snapshot.getRestaurantResponse().getRestaurants(), patchedResponse.getRestaurants()));
+        encodedResponseCache.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(snapshot));
+
+        // Then - only the body of the untouched minute is still served, under the new version
+        assertThat(encodedResponseCache.size()).isEqualTo(1);
+        assertThat(encodedResponseCache.get(new DefaultEncodedResponseCache.Key(snapshot.getVersion(), "/noon")))
+            .isNotNull();
+        assertThat(body(respondAt("/noon", 12 * 60, calls, "other"))).isEqualTo("\"noon\"");
+        assertThat(body(respondAt("/afternoon", 15 * 60 + 15, calls, "other"))).isEqualTo("\"other\"");
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedBodiesPastLimits() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        respond("/a", List.of(), calls, "a");
+        respond("/b", List.of(), calls, "b");
+        respond("/a", List.of(), calls, "a");
+
+        // When - over maxEntries, then a body over maxBytes that isn't kept at all
+        respond("/c", List.of(), calls, "c");
+        respond("/large", List.of(), calls, "x".repeat(100));
+
+        // Then
+        assertThat(encodedResponseCache.size()).isEqualTo(2);
+        assertThat(encodedResponseCache.get(new DefaultEncodedResponseCache.Key(snapshot.getVersion(), "/b"))).isNull();
+        assertThat(encodedResponseCache.get(new DefaultEncodedResponseCache.Key(snapshot.getVersion(), "/a"))).isNotNull();
+    }
+
+    @Test
+    void shouldNotTagBodyBuiltWhileSnapshotWasReplaced() {
+        // When
+        ResponseEntity<Object> response = encodedResponseCache.respond("/q", new HttpHeaders(), () -> Mono.fromSupplier(() -> {
+            snapshot = createSnapshot();
+            return "encoded".getBytes(StandardCharsets.UTF_8);
+        })).block();
+
+        // Then
+        assertThat(body(response)).isEqualTo("encoded");
+        assertThat(response.getHeaders().getETag()).isNull();
+        assertThat(encodedResponseCache.size()).isZero();
+    }
+
+    @Test
+    void shouldServeGzipVariantCompressedOnce() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(encodedResponseCache, "maxBytes", 4096L);
+        AtomicInteger calls = new AtomicInteger();
+        String body = "{\"deals\":[" + "{\"restaurantName\":\"Masala Theory\"},".repeat(20) + "{}]}";
+
+        // When
+        ResponseEntity<Object> identity = respond("/q", new HttpHeaders(), calls, body.getBytes(StandardCharsets.UTF_8));
+        ResponseEntity<Object> first = respond("/q", acceptEncoding("br, gzip;q=0.8"), calls, null);
+        ResponseEntity<Object> second = respond("/q", acceptEncoding("*"), calls, null);
+
+        // Then
+        assertThat(calls).hasValue(1);
+        assertThat(identity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(identity.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(first.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(first.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(first.getHeaders().getETag()).isNotEqualTo(identity.getHeaders().getETag());
+        assertThat(gunzip((byte[]) first.getBody())).isEqualTo(body);
+        assertThat(((byte[]) first.getBody()).length).isLessThan(body.length());
+        assertThat(second.getBody()).isSameAs(first.getBody());
+    }
+
+    @Test
+    void shouldShareOneCompressionBetweenConcurrentRequests() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(encodedResponseCache, "maxBytes", 4096L);
+        AtomicInteger calls = new AtomicInteger();
+        String body = "{\"deals\":[" + "{\"restaurantName\":\"Masala Theory\"},".repeat(20) + "{}]}";
+        respond("/q", new HttpHeaders(), calls, body.getBytes(StandardCharsets.UTF_8));
+
+        // When - the first client goes away while its body is compressed
+        encodedResponseCache.respond("/q", acceptEncoding("gzip"), Mono::empty).subscribe().dispose();
+        ResponseEntity<Object> second = respond("/q", acceptEncoding("gzip"), calls, null);
+        ResponseEntity<Object> third = respond("/q", acceptEncoding("gzip"), calls, null);
+
+        // Then
+        assertThat(calls).hasValue(1);
+        assertThat(gunzip((byte[]) second.getBody())).isEqualTo(body);
+        assertThat(third.getBody()).isSameAs(second.getBody());
+    }
+
+    @Test
+    void shouldServeIdentityWhenGzipIsNotAcceptedOrNotWorthIt() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+
+        // When
+        ResponseEntity<Object> refused = respond("/q", acceptEncoding("gzip;q=0, *"), calls, "x".repeat(40));
+        ResponseEntity<Object> small = respond("/small", acceptEncoding("gzip"), calls, "tiny");
+
+        // Then
+        assertThat(refused.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(body(refused)).isEqualTo("\"" + "x".repeat(40) + "\"");
+        assertThat(small.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    void shouldRevalidateEitherVariant() {
+        // Given
+        ReflectionTestUtils.setField(encodedResponseCache, "maxBytes", 4096L);
+        AtomicInteger calls = new AtomicInteger();
+        String gzipETag = respond("/q", acceptEncoding("gzip"), calls, "y".repeat(200)).getHeaders().getETag();
+        HttpHeaders revalidation = acceptEncoding("gzip");
+        revalidation.setIfNoneMatch(gzipETag);
+
+        // When
+        ResponseEntity<Object> notModified = respond("/q", revalidation, calls, null);
+
+        // Then
+        assertThat(gzipETag).endsWith("-gzip\"");
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getHeaders().getETag()).isEqualTo(gzipETag);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void shouldNegotiateGzipFromAcceptEncoding() {
+        assertThat(DefaultEncodedResponseCache.acceptsGzip(List.of("gzip, deflate, br"))).isTrue();
+        assertThat(DefaultEncodedResponseCache.acceptsGzip(List.of("br", "GZIP;q=0.5"))).isTrue();
+        assertThat(DefaultEncodedResponseCache.acceptsGzip(List.of("*;q=0.1"))).isTrue();
+        assertThat(DefaultEncodedResponseCache.acceptsGzip(List.of("gzip;q=0, *"))).isFalse();
+        assertThat(DefaultEncodedResponseCache.acceptsGzip(List.of("identity"))).isFalse();
+        assertThat(DefaultEncodedResponseCache.acceptsGzip(null)).isFalse();
+    }
+
+    private ResponseEntity<Object> respond(String query, List<String> ifNoneMatch, AtomicInteger calls, Object body) {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        if (!ifNoneMatch.isEmpty()) {
+            requestHeaders.setIfNoneMatch(ifNoneMatch);
+        }
+        return respond(query, requestHeaders, calls, body);
+    }
+
+    private ResponseEntity<Object> respond(String query, HttpHeaders requestHeaders, AtomicInteger calls, Object body) {
+        return encodedResponseCache.respond(query, requestHeaders, () -> {
+            calls.incrementAndGet();
+            return Mono.just(body);
+        }).block();
+    }
+
+    private ResponseEntity<Object> respondAt(String query, int minuteOfDay, AtomicInteger calls, Object body) {
+        return encodedResponseCache.respond(query, minuteOfDay, new HttpHeaders(), () -> {
+            calls.incrementAndGet();
+            return Mono.just(body);
+        }).block();
+    }
+
+    private static HttpHeaders acceptEncoding(String value) {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.ACCEPT_ENCODING, value);
+        return requestHeaders;
+    }
+
+    private static String gunzip(byte[] gzipped) throws IOException {
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String body(ResponseEntity<Object> response) {
+        return new String((byte[]) response.getBody(), StandardCharsets.UTF_8);
+    }
+
+    private static RestaurantResponse createResponse(String dealStart) {
+        return RestaurantResponse.builder()
+            .restaurants(List.of(Restaurant.builder()
+                .objectId("rest1")
+                .open("9:00am")
+                .close("11:00pm")
+                .deals(List.of(Deals.builder().objectId("deal1").start(dealStart).end("4:00pm").qtyLeft(5).build()))
+                .build()))
+            .build();
+    }
+
+    private static RestaurantSnapshot createSnapshot() {
+        return RestaurantSnapshot.of(RestaurantResponse.builder().restaurants(Collections.emptyList()).build());
+    }
+}
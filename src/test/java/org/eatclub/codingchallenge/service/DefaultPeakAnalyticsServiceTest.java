@@ -0,0 +1,231 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.GroupPeakWindow;
+import org.eatclub.codingchallenge.model.response.PeakWindow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultPeakAnalyticsServiceTest {
+
+    @Mock
+    private RestaurantService restaurantService;
+
+    private DefaultPeakAnalyticsService peakAnalyticsService;
+
+    @BeforeEach
+    void setUp() {
+        peakAnalyticsService = new DefaultPeakAnalyticsService(restaurantService);
+        setField(peakAnalyticsService, "parallelism", 2);
+        // Simulate @PostConstruct
+        ReflectionTestUtils.invokeMethod(peakAnalyticsService, "initPool");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(peakAnalyticsService, "shutdownPool");
+    }
+
+    @Test
+    void shouldReturnTopPeakWindowsWithMostDealsFirst() {
+        // Given
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(createSnapshot()));
+
+        // When
+        StepVerifier.create(peakAnalyticsService.getTopPeakWindows(2))
+            .assertNext(response -> {
+                // Then
+                assertThat(response.getWindows()).containsExactly(
+                    peakWindow(LocalTime.of(12, 0), LocalTime.of(14, 0), 3),
+                    peakWindow(LocalTime.of(18, 0), LocalTime.of(19, 0), 2));
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnAllPeakWindowsWhenFewerThanK() {
+        // Given
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(createSnapshot()));
+
+        // When
+        StepVerifier.create(peakAnalyticsService.getTopPeakWindows(10))
+            .assertNext(response -> assertThat(response.getWindows()).hasSize(2))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnPeakWindowOfEverySuburb() {
+        // Given
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(createSnapshot()));
+
+        // When
+        StepVerifier.create(peakAnalyticsService.getGroupedPeakWindows("Suburb", null))
+            .assertNext(response -> {
+                // Then
+                assertThat(response.getGroupBy()).isEqualTo("suburb");
+                assertThat(response.getTotalGroups()).isEqualTo(2);
+                // ties on active deals are ordered by group
+                assertThat(response.getGroups()).containsExactly(
+                    groupPeakWindow("carlton", LocalTime.of(18, 0), LocalTime.of(19, 0), 2),
+                    groupPeakWindow("richmond", LocalTime.of(12, 0), LocalTime.of(14, 0), 2));
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldReturnLimitedPeakWindowsOfCuisines() {
+        // Given
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(createSnapshot()));
+
+        // When
+        StepVerifier.create(peakAnalyticsService.getGroupedPeakWindows("cuisine", 1))
+            .assertNext(response -> {
+                // Then - pizza is served by both restaurants
+                assertThat(response.getTotalGroups()).isEqualTo(3);
+                assertThat(response.getGroups()).containsExactly(
+                    groupPeakWindow("pizza", LocalTime.of(12, 0), LocalTime.of(14, 0), 3));
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldComputeOncePerSnapshot() {
+        // Given
+        final RestaurantSnapshot snapshot = createSnapshot();
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+        peakAnalyticsService.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(snapshot));
+
+        // When
+        final List<GroupPeakWindow> first = peakAnalyticsService.getGroupedPeakWindows("suburb", null).block()
+            .getGroups();
+        final List<GroupPeakWindow> second = peakAnalyticsService.getGroupedPeakWindows("suburb", null).block()
+            .getGroups();
+
+        // Then - both copied out of the same computed groups
+        assertThat(second).isEqualTo(first);
+        assertThat(second.get(0)).isSameAs(first.get(0));
+    }
+
+    @Test
+    void shouldKeepComputingForOthersWhenOneRequestIsCancelled() throws InterruptedException {
+        // Given - the pool is busy, so the analytics are still being computed when the first client goes away
+        final RestaurantSnapshot snapshot = createSnapshot();
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+        final CountDownLatch poolBusy = new CountDownLatch(1);
+        final ForkJoinPool pool = (ForkJoinPool) ReflectionTestUtils.getField(peakAnalyticsService, "pool");
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            pool.execute(() -> {
+                try {
+                    poolBusy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        // When
+        peakAnalyticsService.getTopPeakWindows(1).subscribe().dispose();
+        poolBusy.countDown();
+
+        // Then
+        StepVerifier.create(peakAnalyticsService.getTopPeakWindows(1))
+            .assertNext(response -> assertThat(response.getWindows()).hasSize(1))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldNotReplaceAnalyticsOfNewerSnapshotWithOlderOne() {
+        // Given
+        final RestaurantSnapshot previous = createSnapshot();
+        final RestaurantSnapshot current = createSnapshot();
+        peakAnalyticsService.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(current));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(current));
+        final List<GroupPeakWindow> first = peakAnalyticsService.getGroupedPeakWindows("suburb", null).block()
+            .getGroups();
+
+        // When - a request still holding the previous snapshot
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(previous));
+        StepVerifier.create(peakAnalyticsService.getTopPeakWindows(1))
+            .assertNext(response -> assertThat(response.getWindows()).hasSize(1))
+            .verifyComplete();
+
+        // Then - the current snapshot's analytics weren't computed again
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(current));
+        final List<GroupPeakWindow> second = peakAnalyticsService.getGroupedPeakWindows("suburb", null).block()
+            .getGroups();
+        assertThat(second.get(0)).isSameAs(first.get(0));
+    }
+
+    @Test
+    void shouldRejectInvalidArguments() {
+        StepVerifier.create(peakAnalyticsService.getTopPeakWindows(0))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        StepVerifier.create(peakAnalyticsService.getGroupedPeakWindows("postcode", null))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        StepVerifier.create(peakAnalyticsService.getGroupedPeakWindows("suburb", 0))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        verifyNoInteractions(restaurantService);
+    }
+
+    private static RestaurantSnapshot createSnapshot() {
+        final Restaurant richmond = Restaurant.builder()
+            .suburb("Richmond")
+            .cuisines(List.of("Pizza", "Italian"))
+            .open("9:00am")
+            .close("10:00pm")
+            .deals(Arrays.asList(
+                Deals.builder().start("10:00am").end("2:00pm").qtyLeft(1).build(),
+                Deals.builder().start("12:00pm").end("4:00pm").qtyLeft(1).build()))
+            .build();
+        final Restaurant carlton = Restaurant.builder()
+            .suburb("Carlton")
+            .cuisines(List.of("pizza", "Thai"))
+            .open("9:00am")
+            .close("10:00pm")
+            .deals(Arrays.asList(
+                Deals.builder().start("11:00am").end("2:00pm").qtyLeft(1).build(),
+                Deals.builder().start("6:00pm").end("7:00pm").qtyLeft(1).build(),
+                Deals.builder().start("5:00pm").end("8:00pm").qtyLeft(1).build()))
+            .build();
+        return RestaurantSnapshot.of(RestaurantResponse.builder().restaurants(List.of(richmond, carlton)).build());
+    }
+
+    private static PeakWindow peakWindow(LocalTime start, LocalTime end, int activeDeals) {
+        return PeakWindow.builder().peakTimeStart(start).peakTimeEnd(end).activeDeals(activeDeals).build();
+    }
+
+    private static GroupPeakWindow groupPeakWindow(String group, LocalTime start, LocalTime end, int activeDeals) {
+        return GroupPeakWindow.builder()
+            .group(group)
+            .peakTimeStart(start)
+            .peakTimeEnd(end)
+            .activeDeals(activeDeals)
+            .build();
+    }
+}
@@ -3,6 +3,8 @@ package org.eatclub.codingchallenge.service;
 import org.eatclub.codingchallenge.model.Deals;
 import org.eatclub.codingchallenge.model.Restaurant;
 import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.model.response.PeakDealTimeRangeResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,7 +19,9 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class DefaultPeakDealTimeRangeServiceTest {
@@ -50,7 +54,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Arrays.asList(restaurant1, restaurant2))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -75,7 +79,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -100,7 +104,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -124,7 +128,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -143,7 +147,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.emptyList())
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -164,7 +168,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -179,7 +183,7 @@ class DefaultPeakDealTimeRangeServiceTest {
     @Test
     void testGetPeakDealTimeRange_WithError() {
         // Given
-        when(restaurantService.getRestaurants()).thenReturn(Mono.error(new RuntimeException("Service error")));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.error(new RuntimeException("Service error")));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -190,12 +194,12 @@ class DefaultPeakDealTimeRangeServiceTest {
     @Test
     void testDealStatusChangeEvent_Comparison() {
         // Given
-        DefaultPeakDealTimeRangeService.DealStatusChangeEvent startEvent =
-            new DefaultPeakDealTimeRangeService.DealStatusChangeEvent(LocalTime.of(10, 0), true);
-        DefaultPeakDealTimeRangeService.DealStatusChangeEvent endEvent =
-            new DefaultPeakDealTimeRangeService.DealStatusChangeEvent(LocalTime.of(10, 0), false);
-        DefaultPeakDealTimeRangeService.DealStatusChangeEvent laterEvent =
-            new DefaultPeakDealTimeRangeService.DealStatusChangeEvent(LocalTime.of(11, 0), true);
+        SortingPeakDealTimeRange.DealStatusChangeEvent startEvent =
+            new SortingPeakDealTimeRange.DealStatusChangeEvent(LocalTime.of(10, 0), true);
+        SortingPeakDealTimeRange.DealStatusChangeEvent endEvent =
+            new SortingPeakDealTimeRange.DealStatusChangeEvent(LocalTime.of(10, 0), false);
+        SortingPeakDealTimeRange.DealStatusChangeEvent laterEvent =
+            new SortingPeakDealTimeRange.DealStatusChangeEvent(LocalTime.of(11, 0), true);
 
         // When
         assertThat(startEvent.compareTo(endEvent)).isLessThan(0);
@@ -215,7 +219,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -242,7 +246,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant1))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -269,7 +273,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -293,7 +297,7 @@ class DefaultPeakDealTimeRangeServiceTest {
             .restaurants(Collections.singletonList(restaurant))
             .build();
 
-        when(restaurantService.getRestaurants()).thenReturn(Mono.just(restaurantResponse));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(RestaurantSnapshot.of(restaurantResponse)));
 
         // When
         StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
@@ -305,6 +309,99 @@ class DefaultPeakDealTimeRangeServiceTest {
             .verifyComplete();
     }
 
+    @Test
+    void testGetPeakDealTimeRange_MemoizedPerSnapshot() {
+        // Given
+        RestaurantSnapshot snapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(Collections.singletonList(createRestaurant("Restaurant1", "9:00am", "10:00pm",
+                Collections.singletonList(createDeal("10:00am", "2:00pm", null, null)))))
+            .build());
+
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+
+        // When
+        PeakDealTimeRangeResponse first = peakDealTimeRangeService.getPeakDealTimeRange().block();
+        PeakDealTimeRangeResponse second = peakDealTimeRangeService.getPeakDealTimeRange().block();
+
+        // Then
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void testGetPeakDealTimeRange_RecomputedWhenSnapshotRefreshed() {
+        // Given
+        RestaurantSnapshot snapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(Collections.singletonList(createRestaurant("Restaurant1", "9:00am", "10:00pm",
+                Collections.singletonList(createDeal("10:00am", "2:00pm", null, null)))))
+            .build());
+        RestaurantSnapshot refreshedSnapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(Collections.singletonList(createRestaurant("Restaurant1", "9:00am", "10:00pm",
+                Collections.singletonList(createDeal("11:00am", "3:00pm", null, null)))))
+            .build());
+
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+        PeakDealTimeRangeResponse first = peakDealTimeRangeService.getPeakDealTimeRange().block();
+
+        // When
+        peakDealTimeRangeService.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(refreshedSnapshot));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(refreshedSnapshot));
+
+        // Then
+        StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
+            .assertNext(response -> {
+                assertThat(response).isNotSameAs(first);
+                assertThat(response.getPeakTimeStart()).isEqualTo(LocalTime.of(11, 0));
+                assertThat(response.getPeakTimeEnd()).isEqualTo(LocalTime.of(15, 0));
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void testGetPeakDealTimeRange_OlderSnapshotDoesNotReplaceMemo() {
+        // Given
+        RestaurantSnapshot snapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(Collections.singletonList(createRestaurant("Restaurant1", "9:00am", "10:00pm",
+                Collections.singletonList(createDeal("10:00am", "2:00pm", null, null)))))
+            .build());
+        RestaurantSnapshot refreshedSnapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(Collections.singletonList(createRestaurant("Restaurant1", "9:00am", "10:00pm",
+                Collections.singletonList(createDeal("11:00am", "3:00pm", null, null)))))
+            .build());
+        peakDealTimeRangeService.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(refreshedSnapshot));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(refreshedSnapshot));
+        PeakDealTimeRangeResponse refreshed = peakDealTimeRangeService.getPeakDealTimeRange().block();
+
+        // When - a request still holding the previous snapshot
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+        StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
+            .assertNext(response -> assertThat(response.getPeakTimeStart()).isEqualTo(LocalTime.of(10, 0)))
+            .verifyComplete();
+
+        // Then
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(refreshedSnapshot));
+        assertThat(peakDealTimeRangeService.getPeakDealTimeRange().block()).isSameAs(refreshed);
+    }
+
+    @Test
+    void testOnSnapshotRefreshed_ComputesPeakBeforeFirstRequest() {
+        // Given
+        RestaurantSnapshot snapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(Collections.singletonList(createRestaurant("Restaurant1", "9:00am", "10:00pm",
+                Collections.singletonList(createDeal("10:00am", "2:00pm", null, null)))))
+            .build());
+
+        // When
+        peakDealTimeRangeService.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(snapshot));
+
+        // Then
+        verifyNoInteractions(restaurantService);
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+        StepVerifier.create(peakDealTimeRangeService.getPeakDealTimeRange())
+            .assertNext(response -> assertThat(response.getPeakTimeStart()).isEqualTo(LocalTime.of(10, 0)))
+            .verifyComplete();
+        verify(restaurantService).getSnapshot();
+    }
+
     private Restaurant createRestaurant(String name, String open, String close, List<Deals> deals) {
         return Restaurant.builder()
             .name(name)
@@ -0,0 +1,189 @@
+package org.eatclub.codingchallenge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eatclub.codingchallenge.index.SnapshotDiff;
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.eatclub.codingchallenge.model.RestaurantSnapshot;
+import org.eatclub.codingchallenge.util.DefaultActiveDealsResponseMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultPrecomputedActiveDealsServiceTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final DefaultActiveDealsResponseMapper activeDealsResponseMapper = new DefaultActiveDealsResponseMapper();
+
+    @Mock
+    private RestaurantService restaurantService;
+    private DefaultPrecomputedActiveDealsService precomputedActiveDealsService;
+    private RestaurantSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        precomputedActiveDealsService =
+            new DefaultPrecomputedActiveDealsService(restaurantService, activeDealsResponseMapper, objectMapper);
+        setField(precomputedActiveDealsService, "enabled", true);
+        setField(precomputedActiveDealsService, "maxBytes", 1_000_000L);
+
+        snapshot = RestaurantSnapshot.of(RestaurantResponse.builder()
+            .restaurants(List.of(
+                createRestaurant("rest1", "1:00pm", "11:00pm",
+                    createDeal("deal1", "2:00pm", "5:00pm", 3L),
+                    createDeal("deal2", "6:00pm", "9:00pm", 4L)),
+                createRestaurant("rest2", "3:00pm", "9:00pm",
+                    createDeal("deal3", null, null, 5L))))
+            .build());
+        lenient().when(restaurantService.getSnapshot()).thenReturn(Mono.just(snapshot));
+    }
+
+    @Test
+    void shouldServeSameBodiesAsOnDemandComputationForEveryMinute() throws Exception {
+        // Given
+        final DefaultActiveDealsService activeDealsService =
+            new DefaultActiveDealsService(restaurantService, activeDealsResponseMapper);
+
+        // When
+        precomputedActiveDealsService.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(snapshot));
+        await().atMost(Duration.ofSeconds(5)).until(() ->
+            precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.NOON).hasElement().block());
+
+        // Then
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            final LocalTime timeOfDay = LocalTime.of(minute / 60, minute % 60);
+            final byte[] expected = objectMapper.writeValueAsBytes(activeDealsService.getActiveDealsAt(timeOfDay).block());
+            assertThat(precomputedActiveDealsService.findEncodedActiveDealsAt(timeOfDay).block())
+                .as("precomputed body at %s", timeOfDay)
+                .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void shouldOnlyEncodeChangedMinutesOfPatchedSnapshot() throws Exception {
+        // Given
+        setField(precomputedActiveDealsService, "latestSnapshot", snapshot);
+        precomputedActiveDealsService.precompute(snapshot).block();
+        final byte[] afternoon = precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0)).block();
+
+        final RestaurantResponse refreshedResponse = RestaurantResponse.builder()
+            .restaurants(List.of(
+                createRestaurant("rest1", "1:00pm", "11:00pm",
+                    createDeal("deal1", "2:00pm", "5:00pm", 3L),
+                    createDeal("deal2", "6:00pm", "9:00pm", 1L)),
+                snapshot.getRestaurantResponse().getRestaurants().get(1)))
+            .build();
+        final RestaurantSnapshot patchedSnapshot = RestaurantSnapshot.patch(snapshot, refreshedResponse,
+            SnapshotDiff.between(snapshot.getRestaurantResponse().getRestaurants(), refreshedResponse.getRestaurants()));
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(patchedSnapshot));
+        final DefaultActiveDealsService activeDealsService =
+            new DefaultActiveDealsService(restaurantService, activeDealsResponseMapper);
+
+        // When
+        setField(precomputedActiveDealsService, "latestSnapshot", patchedSnapshot);
+        precomputedActiveDealsService.precompute(patchedSnapshot).block();
+
+        // Then - the body of an unchanged minute is the one encoded for the previous snapshot
+        assertThat(precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0)).block())
+            .isSameAs(afternoon);
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            final LocalTime timeOfDay = LocalTime.of(minute / 60, minute % 60);
+            final byte[] expected = objectMapper.writeValueAsBytes(activeDealsService.getActiveDealsAt(timeOfDay).block());
+            assertThat(precomputedActiveDealsService.findEncodedActiveDealsAt(timeOfDay).block())
+                .as("precomputed body at %s", timeOfDay)
+                .isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void shouldNotServeResponsesWhenDisabled() {
+        // Given
+        setField(precomputedActiveDealsService, "enabled", false);
+
+        // When
+        precomputedActiveDealsService.onSnapshotRefreshed(new RestaurantSnapshotRefreshedEvent(snapshot));
+
+        // Then
+        StepVerifier.create(precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0)))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldFallBackToOnDemandWhenResponsesExceedMaxBytes() {
+        // Given
+        setField(precomputedActiveDealsService, "maxBytes", 100L);
+        setField(precomputedActiveDealsService, "latestSnapshot", snapshot);
+
+        // When
+        precomputedActiveDealsService.precompute(snapshot).block();
+
+        // Then
+        StepVerifier.create(precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0)))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldNotServeResponsesOfPreviousSnapshot() {
+        // Given
+        setField(precomputedActiveDealsService, "latestSnapshot", snapshot);
+        precomputedActiveDealsService.precompute(snapshot).block();
+
+        // When
+        final RestaurantSnapshot refreshedSnapshot = RestaurantSnapshot.of(snapshot.getRestaurantResponse());
+        when(restaurantService.getSnapshot()).thenReturn(Mono.just(refreshedSnapshot));
+
+        // Then
+        StepVerifier.create(precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0)))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldNotServeResponsesForTimesWithinAMinute() {
+        // Given
+        setField(precomputedActiveDealsService, "latestSnapshot", snapshot);
+        precomputedActiveDealsService.precompute(snapshot).block();
+
+        // Then
+        StepVerifier.create(precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0, 30)))
+            .verifyComplete();
+        StepVerifier.create(precomputedActiveDealsService.findEncodedActiveDealsAt(LocalTime.of(16, 0)))
+            .expectNextCount(1)
+            .verifyComplete();
+    }
+
+    private Restaurant createRestaurant(String objectId, String open, String close, Deals... deals) {
+        return Restaurant.builder()
+            .objectId(objectId)
+            .open(open)
+            .close(close)
+            .deals(Arrays.asList(deals))
+            .build();
+    }
+
+    private Deals createDeal(String objectId, String start, String end, Long qtyLeft) {
+        return Deals.builder()
+            .objectId(objectId)
+            .start(start)
+            .end(end)
+            .qtyLeft(qtyLeft)
+            .build();
+    }
+}
@@ -0,0 +1,95 @@
+package org.eatclub.codingchallenge.service;
+
+import org.eatclub.codingchallenge.index.DealColumns;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The original peak computation: one start and one end event per deal, sorted by time with starts first and swept in
+ * order. Kept as the reference the minute histogram sweep is checked and benchmarked against.
+ */
+public final class SortingPeakDealTimeRange {
+
+    private SortingPeakDealTimeRange() {
+    }
+
+    public static List<DealStatusChangeEvent> events(final DealColumns dealColumns) {
+        final List<DealStatusChangeEvent> allDealStartEndTimes = new ArrayList<>(dealColumns.getDealCount() * 2);
+        for (int deal = 0; deal < dealColumns.getDealCount(); deal++) {
+            allDealStartEndTimes.add(new DealStatusChangeEvent(toLocalTime(dealColumns.startMinute(deal)), true));
+            allDealStartEndTimes.add(new DealStatusChangeEvent(toLocalTime(dealColumns.endMinute(deal)), false));
+        }
+        return allDealStartEndTimes;
+    }
+
+    public static LocalTime[] findOverlappingDealEventAtMax(List<DealStatusChangeEvent> events) {
+
+        // Sort the events
+        Collections.sort(events);
+        // hold current active deals
+        int activeDeals = 0;
+        // hold max active deals so far
+        int maxActiveDeals = 0;
+        // hold the first time range for max active deals
+        LocalTime[] firstMaxRange = null;
+        LocalTime currentDealStart = null;
+
+        for (DealStatusChangeEvent event : events) {
+            if (event.isDealStart) {
+                // a deal has started, increment active deals
+                activeDeals++;
+                if (activeDeals > maxActiveDeals) {
+                    // new max, update range start time and clear old range
+                    maxActiveDeals = activeDeals;
+                    currentDealStart = event.eventTime;
+                    firstMaxRange = null; // Reset since we found a higher max
+                }  else if (activeDeals == maxActiveDeals && currentDealStart == null) {
+                    // Handle additional start events before end events, only valid if the previous deal start
+                    // hasn't been set
+                    currentDealStart = event.eventTime;
+                }
+            } else {
+                // a deal has ended, if this is a max period, add to max ranges and decrement active deals.
+                if (activeDeals == maxActiveDeals && currentDealStart != null) {
+                    // Choose the first max durtion among ranges with maximum deals (this is made null when a new deal
+                    // starts at activeDeals > maxActiveDeals)
+                    if (firstMaxRange == null) {
+                        firstMaxRange = new LocalTime[] { currentDealStart, event.eventTime };
+                    }
+                    currentDealStart = null;
+                }
+                activeDeals--;
+            }
+        }
+        return firstMaxRange;
+    }
+
+    private static LocalTime toLocalTime(final int minuteOfDay) {
+        return LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+    }
+
+    // specialised comparable for sorting
+    public static class DealStatusChangeEvent implements Comparable<DealStatusChangeEvent> {
+        LocalTime eventTime;
+        boolean isDealStart;
+
+        public DealStatusChangeEvent(LocalTime eventTime, boolean isDealStart) {
+            this.eventTime = eventTime;
+            this.isDealStart = isDealStart;
+        }
+
+        @Override
+        public int compareTo(DealStatusChangeEvent other) {
+            // Sroted and handle same time even starts
+            int comparison = this.eventTime.compareTo(other.eventTime);
+            if (comparison != 0) {
+                return comparison;
+            } else {
+                return Boolean.compare(!this.isDealStart, !other.isDealStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.eatclub.codingchallenge.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.eatclub.codingchallenge.util.Constants.TIME_FORMATTER;
+
+class MinuteOfDayParserTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"12:00am", "0:30am", "00:30am", "9:05am", "09:05AM", "12:00pm", "0:00pm", "3:45Pm",
+        "11:59pm", "0000000000000000012:15pm"})
+    void shouldParseSameMinuteAsTimeFormatter(String time) {
+        assertThat(MinuteOfDayParser.parse(time)).isEqualTo(minuteOfDay(LocalTime.parse(time, TIME_FORMATTER)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "09:00", "13:00pm", "1:5am", "1:60am", "1:05 am", " 1:05am", "1:05am ", "+1:05am",
+        "-1:05am", "-0:05am", "1:05a.m.", "1:05ap", "00000000000000000001:00am", "1;05am", "１:05am"})
+    void shouldRejectWhatTimeFormatterRejects(String time) {
+        assertThatThrownBy(() -> LocalTime.parse(time, TIME_FORMATTER)).isInstanceOf(DateTimeParseException.class);
+        assertThatThrownBy(() -> MinuteOfDayParser.parse(time)).isInstanceOf(DateTimeParseException.class);
+    }
+
+    @Test
+    void shouldAgreeWithTimeFormatterOnRandomInput() {
+        // Given
+        final Random random = new Random(20240615L);
+        final String alphabet = "0123456789::aAmMpP -+x";
+
+        for (int i = 0; i < 200_000; i++) {
+            // Mostly near-valid times, so both accepted and rejected input is well covered
+            final String time = random.nextInt(4) == 0
+                ? randomText(random, alphabet)
+                : mutate(random, String.format("%d:%02d%s", random.nextInt(14), random.nextInt(61),
+                    random.nextBoolean() ? "am" : "PM"));
+
+            // When
+            Integer expected;
+            try {
+                expected = minuteOfDay(LocalTime.parse(time, TIME_FORMATTER));
+            } catch (DateTimeParseException e) {
+                expected = null;
+            }
+
+            // Then
+            if (expected == null) {
+                assertThatThrownBy(() -> MinuteOfDayParser.parse(time))
+                    .as("'%s'", time)
+                    .isInstanceOf(DateTimeParseException.class);
+            } else {
+                assertThat(MinuteOfDayParser.parse(time)).as("'%s'", time).isEqualTo(expected);
+            }
+        }
+    }
+
+    private static String randomText(final Random random, final String alphabet) {
+        final StringBuilder text = new StringBuilder();
+        final int length = random.nextInt(10);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    private static String mutate(final Random random, final String time) {
+        final StringBuilder text = new StringBuilder(time);
+        switch (random.nextInt(6)) {
+            case 0 -> text.insert(0, "0".repeat(random.nextInt(20)));
+            case 1 -> text.deleteCharAt(random.nextInt(text.length()));
+            case 2 -> text.insert(random.nextInt(text.length() + 1), "0:a- ".charAt(random.nextInt(5)));
+            case 3 -> text.setCharAt(random.nextInt(text.length()), "9:mP".charAt(random.nextInt(4)));
+            default -> {
+                // keep as is
+            }
+        }
+        return text.toString();
+    }
+
+    private static int minuteOfDay(final LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
@@ -0,0 +1,140 @@
+package org.eatclub.codingchallenge.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RestaurantFeedDecoderTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final RestaurantFeedDecoder restaurantFeedDecoder = new RestaurantFeedDecoder(objectMapper);
+
+    @Test
+    void shouldDecodeSameRestaurantsAsFullDocumentDecodeRegardlessOfChunking() throws IOException {
+        // Given
+        final byte[] sampleData;
+        try (InputStream inputStream = getClass().getResourceAsStream("/sample-data.json")) {
+            sampleData = inputStream.readAllBytes();
+        }
+        final List<Restaurant> expected = objectMapper.readValue(sampleData, RestaurantResponse.class).getRestaurants();
+
+        for (int chunkSize : new int[] {1, 7, 64, 4096, sampleData.length}) {
+            // When
+            final List<Restaurant> decoded = restaurantFeedDecoder.decode(chunked(sampleData, chunkSize))
+                .collectList()
+                .block();
+
+            // Then
+            assertThat(decoded).as("chunk size %d", chunkSize).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void shouldEmitEachRestaurantAsSoonAsItIsComplete() {
+        // Given
+        final String firstRestaurant = "{\"objectId\":\"r1\",\"cuisines\":[\"Thai\"],\"deals\":[{\"objectId\":\"d1\"}]}";
+        final String secondRestaurant = "{\"objectId\":\"r2\",\"deals\":[]}";
+
+        // When
+        final Flux<Restaurant> restaurants = restaurantFeedDecoder.decode(Flux.just(
+            buffer("{\"restaurants\":[" + firstRestaurant + ","),
+            buffer(secondRestaurant.substring(0, 10)),
+            buffer(secondRestaurant.substring(10) + "]}")));
+
+        // Then
+        StepVerifier.create(restaurants, 0)
+            .thenRequest(1)
+            .assertNext(restaurant -> {
+                assertThat(restaurant.getObjectId()).isEqualTo("r1");
+                assertThat(restaurant.getCuisines()).containsExactly("Thai");
+                assertThat(restaurant.getDeals()).hasSize(1);
+            })
+            .thenRequest(1)
+            .assertNext(restaurant -> assertThat(restaurant.getObjectId()).isEqualTo("r2"))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldIgnoreOtherTopLevelFields() {
+        // When
+        final Flux<Restaurant> restaurants = restaurantFeedDecoder.decode(Flux.just(buffer(
+            "{\"meta\":{\"restaurants\":[{\"objectId\":\"nested\"}]},\"restaurants\":[{\"objectId\":\"r1\"}],"
+                + "\"tags\":[[1,2],{\"a\":[]}]}")));
+
+        // Then
+        StepVerifier.create(restaurants)
+            .assertNext(restaurant -> assertThat(restaurant.getObjectId()).isEqualTo("r1"))
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldFailOnTruncatedDocument() {
+        // When
+        final Flux<Restaurant> restaurants = restaurantFeedDecoder.decode(Flux.just(
+            buffer("{\"restaurants\":[{\"objectId\":\"r1\"},{\"objectId\":")));
+
+        // Then
+        StepVerifier.create(restaurants)
+            .assertNext(restaurant -> assertThat(restaurant.getObjectId()).isEqualTo("r1"))
+            .expectError(DecodingException.class)
+            .verify();
+    }
+
+    @Test
+    void shouldShareRepeatedValuesWithinOneDecodedDocument() {
+        // Given
+        final String document = "{\"restaurants\":["
+            + "{\"objectId\":\"r1\",\"suburb\":\"Richmond\",\"open\":\"3:00pm\",\"cuisines\":[\"Thai\"],"
+            + "\"deals\":[{\"objectId\":\"d1\",\"discount\":\"30\",\"open\":\"3:00pm\"}]},"
+            + "{\"objectId\":\"r2\",\"suburb\":\"Richmond\",\"open\":\"3:00pm\",\"cuisines\":[\"Thai\"],"
+            + "\"deals\":[{\"objectId\":\"d2\",\"discount\":\"30\",\"open\":\"3:00pm\"}]}]}";
+
+        // When
+        final List<Restaurant> streamed = restaurantFeedDecoder.decode(Flux.just(buffer(document)))
+            .collectList()
+            .block();
+        final List<Restaurant> buffered = restaurantFeedDecoder.decodeDocument(buffer(document)).getRestaurants();
+
+        // Then
+        for (List<Restaurant> restaurants : List.of(streamed, buffered)) {
+            final Restaurant first = restaurants.get(0);
+            final Restaurant second = restaurants.get(1);
+            assertThat(second.getSuburb()).isSameAs(first.getSuburb());
+            assertThat(second.getOpen()).isSameAs(first.getOpen());
+            assertThat(second.getCuisines().getFirst()).isSameAs(first.getCuisines().getFirst());
+            assertThat(second.getDeals().getFirst().getDiscount()).isSameAs(first.getDeals().getFirst().getDiscount());
+            assertThat(second.getDeals().getFirst().getOpen()).isSameAs(first.getOpen());
+        }
+        // Nothing is shared between snapshots
+        assertThat(buffered.getFirst().getSuburb()).isNotSameAs(streamed.getFirst().getSuburb());
+    }
+
+    private static Flux<DataBuffer> chunked(final byte[] bytes, final int chunkSize) {
+        final List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(
+                Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + chunkSize))));
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    private static DataBuffer buffer(final String json) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,129 @@
+package org.eatclub.codingchallenge.util;
+
+import org.eatclub.codingchallenge.model.Deals;
+import org.eatclub.codingchallenge.model.Restaurant;
+import org.eatclub.codingchallenge.model.RestaurantResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded synthetic upstream feeds for the benchmarks and load tests, so runs at the same size and seed compare like
+ * for like.
+ * <p>
+ * Restaurants have 1 to 8 deals and trade from morning, lunch or evening until the evening or past midnight. Deals
+ * are split evenly between start/end times inside the opening hours, open/close times and no times at all (the whole
+ * opening hours), about one in ten has nothing left. Times, suburbs, cuisines and discounts come from small fixed sets,
+ * as they do upstream.
+ */
+public final class SyntheticRestaurantResponseGenerator {
+
+    public static final long DEFAULT_SEED = 20240615L;
+
+    private static final int MAX_DEALS_PER_RESTAURANT = 8;
+    private static final int[] OPEN_MINUTES = {7 * 60, 9 * 60, 11 * 60, 12 * 60, 15 * 60, 17 * 60};
+    // Midnight and 2am close after midnight, the restaurant is closed from close to open
+    private static final int[] CLOSE_MINUTES = {15 * 60, 21 * 60, 22 * 60, 23 * 60, 0, 2 * 60};
+    private static final String[] SUBURBS = {"Richmond", "Carlton", "South Yarra", "Fitzroy", "Brunswick",
+        "St Kilda", "Collingwood", "Prahran", "Footscray", "Melbourne CBD"};
+    private static final String[] CUISINES = {"Asian", "Thai", "Italian", "Pizza", "Indian", "Japanese", "Burgers",
+        "Cafe", "Mexican", "Vietnamese", "Breakfast", "Korean"};
+    private static final String[] DISCOUNTS = {"10", "15", "20", "25", "30", "35", "40", "50"};
+    // Every quarter of an hour in the upstream h:mma format
+    private static final String[] TIMES = new String[24 * 4];
+
+    static {
+        for (int i = 0; i < TIMES.length; i++) {
+            TIMES[i] = format(i * 15);
+        }
+    }
+
+    private SyntheticRestaurantResponseGenerator() {
+    }
+
+    public static RestaurantResponse generate(final int dealCount) {
+        return generate(dealCount, DEFAULT_SEED);
+    }
+
+    public static RestaurantResponse generate(final int dealCount, final long seed) {
+        final Random random = new Random(seed);
+        final List<Restaurant> restaurants = new ArrayList<>(dealCount / 4);
+        int remaining = dealCount;
+        while (remaining > 0) {
+            final int deals = Math.min(remaining, 1 + random.nextInt(MAX_DEALS_PER_RESTAURANT));
+            restaurants.add(createRestaurant(random, restaurants.size(), deals));
+            remaining -= deals;
+        }
+        return RestaurantResponse.builder().restaurants(restaurants).build();
+    }
+
+    private static Restaurant createRestaurant(final Random random, final int index, final int dealCount) {
+        final int open = OPEN_MINUTES[random.nextInt(OPEN_MINUTES.length)];
+        int close = CLOSE_MINUTES[random.nextInt(CLOSE_MINUTES.length)];
+        if (close == open || (close > open && close - open < 60)) {
+            close = 23 * 60;
+        }
+        // Minutes from open to close, wrapping past midnight
+        final int hours = Math.floorMod(close - open, 24 * 60);
+
+        final List<Deals> deals = new ArrayList<>(dealCount);
+        for (int i = 0; i < dealCount; i++) {
+            deals.add(createDeal(random, open, hours));
+        }
+        final List<String> cuisines = new ArrayList<>(2);
+        cuisines.add(CUISINES[random.nextInt(CUISINES.length)]);
+        if (random.nextBoolean()) {
+            cuisines.add(CUISINES[random.nextInt(CUISINES.length)]);
+        }
+        return Restaurant.builder()
+            .objectId(objectId(random))
+            .name("Restaurant " + index)
+            .address1((1 + random.nextInt(400)) + " Chapel Street")
+            .suburb(SUBURBS[random.nextInt(SUBURBS.length)])
+            .cuisines(cuisines)
+            .imageLink("https://demo.eccdn.com.au/images/" + index + ".jpg")
+            .open(format(open))
+            .close(format(close))
+            .deals(deals)
+            .build();
+    }
+
+    private static Deals createDeal(final Random random, final int open, final int hours) {
+        final Deals.DealsBuilder deal = Deals.builder()
+            .objectId(objectId(random))
+            .discount(DISCOUNTS[random.nextInt(DISCOUNTS.length)])
+            .dineIn(random.nextBoolean())
+            .lightning(random.nextInt(4) == 0)
+            .qtyLeft(random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(10));
+
+        // A quarter aligned window of at least an hour inside the opening hours
+        final int quarters = hours / 15;
+        final int from = random.nextInt(Math.max(1, quarters - 4));
+        final int to = Math.min(quarters, from + 4 + random.nextInt(Math.max(1, quarters - from - 3)));
+        final String start = format(open + from * 15);
+        final String end = format(open + to * 15);
+        switch (random.nextInt(3)) {
+            case 0 -> deal.start(start).end(end);
+            case 1 -> deal.open(start).close(end);
+            default -> {
+                // The whole opening hours
+            }
+        }
+        return deal.build();
+    }
+
+    private static String objectId(final Random random) {
+        return String.format("%08X-%04X-%04X-%04X-%012X", random.nextInt(), random.nextInt(0x10000),
+            random.nextInt(0x10000), random.nextInt(0x10000), random.nextLong() & 0xFFFFFFFFFFFFL);
+    }
+
+    private static String format(final int minuteOfDay) {
+        final int minute = Math.floorMod(minuteOfDay, 24 * 60);
+        if (minute % 15 == 0 && TIMES[minute / 15] != null) {
+            return TIMES[minute / 15];
+        }
+        final int hour = minute / 60;
+        return String.format("%d:%02d%s", hour % 12 == 0 ? 12 : hour % 12, minute % 60, hour < 12 ? "am" : "pm");
+    }
+}
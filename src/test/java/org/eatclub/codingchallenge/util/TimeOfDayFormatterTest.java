@@ -0,0 +1,37 @@
+package org.eatclub.codingchallenge.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimeOfDayFormatterTest {
+
+    private final TimeOfDayFormatter formatter = new TimeOfDayFormatter();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"4:00pm", "04:00pm", "4:00PM", "4:00Pm", "16:00"})
+    void shouldParseAmPmInAnyCaseWhateverTheLocale(String time) {
+        for (Locale locale : new Locale[]{Locale.US, Locale.UK, Locale.of("en", "AU"), Locale.GERMANY}) {
+            assertThat(formatter.parse(time, locale)).isEqualTo(LocalTime.of(16, 0));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "4:00", "13:00pm", "4:00 pm", "4pm"})
+    void shouldRejectInvalidTimes(String time) {
+        assertThatThrownBy(() -> formatter.parse(time, Locale.US)).isInstanceOf(DateTimeParseException.class);
+    }
+
+    @Test
+    void shouldPrintWhatItParses() {
+        assertThat(formatter.parse(formatter.print(LocalTime.of(9, 5), Locale.GERMANY), Locale.GERMANY))
+            .isEqualTo(LocalTime.of(9, 5));
+    }
+}